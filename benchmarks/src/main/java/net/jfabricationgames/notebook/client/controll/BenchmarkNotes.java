@@ -0,0 +1,71 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Creates reproducible (seeded) random notes for the benchmarks.
+ */
+public final class BenchmarkNotes {
+	
+	public static final long SEED = 42;
+	
+	private static final String[] WORDS = {"meeting", "call", "project", "report", "review", "shopping", "doctor", "birthday", "invoice",
+			"deadline", "release", "backup", "server", "client", "notes", "travel", "train", "flight", "hotel", "budget", "garden", "repair",
+			"dentist", "insurance", "taxes", "presentation", "workshop", "conference", "holiday", "library"};
+	
+	private BenchmarkNotes() {}
+	
+	/**
+	 * Create notes with the ids 1 to count (in random order, like the snapshots of a {@link NoteStore}).
+	 */
+	public static List<Note> create(int count) {
+		Random random = new Random(SEED);
+		LocalDateTime now = LocalDateTime.of(2019, 6, 1, 12, 0);
+		List<Note> notes = new ArrayList<Note>(count);
+		for (int i = 1; i <= count; i++) {
+			Note note = new Note(words(random, 1 + random.nextInt(4)), words(random, 10 + random.nextInt(40)), 1 + random.nextInt(5));
+			note.setId(i);
+			note.setExecutionDates(dates(random, now, random.nextInt(4)));
+			note.setReminderDates(dates(random, now, random.nextInt(3)));
+			notes.add(note);
+		}
+		Collections.shuffle(notes, random);
+		return notes;
+	}
+	
+	/**
+	 * Create copies of the notes (e.g. to simulate the notes that are loaded from the server).
+	 */
+	public static List<Note> copy(List<Note> notes) {
+		List<Note> copies = new ArrayList<Note>(notes.size());
+		for (Note note : notes) {
+			copies.add(PendingOperation.copyOf(note));
+		}
+		return copies;
+	}
+	
+	private static String words(Random random, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+	
+	private static List<LocalDateTime> dates(Random random, LocalDateTime now, int count) {
+		List<LocalDateTime> dates = new ArrayList<LocalDateTime>(count);
+		for (int i = 0; i < count; i++) {
+			dates.add(now.plusMinutes(random.nextInt(60 * 24 * 365)));
+		}
+		return dates;
+	}
+}
\ No newline at end of file
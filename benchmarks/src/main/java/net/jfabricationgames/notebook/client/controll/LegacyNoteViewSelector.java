@@ -0,0 +1,41 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.jfabricationgames.notebook.client.controll.NoteViewSelector.SortOrder;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteSelector;
+
+/**
+ * The selection of the notes as it was implemented before the selectors were compiled to a {@link NoteQueryPlan} (the baseline for the
+ * {@link NoteViewSelectorBenchmark}): the service's selector creates a list, that is streamed again for the text filters, collected again and
+ * sorted.
+ */
+public class LegacyNoteViewSelector extends NoteSelector {
+	
+	private SortOrder sortOrder = SortOrder.NONE;
+	private String headlineContainsText;
+	
+	public List<Note> getMatching(List<Note> notes) {
+		notes = super.getMatching(notes);
+		Stream<Note> noteStream = notes.stream();
+		
+		if (headlineContainsText != null) {
+			noteStream = noteStream.filter(note -> note.getHeadline().contains(headlineContainsText));
+		}
+		
+		List<Note> matching = noteStream.collect(Collectors.toList());
+		Collections.sort(matching, sortOrder.getComparator());
+		return matching;
+	}
+	
+	public void setSortOrder(SortOrder sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+	public void setHeadlineContainsText(String headlineContainsText) {
+		this.headlineContainsText = headlineContainsText;
+	}
+}
\ No newline at end of file
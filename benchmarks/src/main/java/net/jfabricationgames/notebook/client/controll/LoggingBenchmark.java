@@ -0,0 +1,87 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Compares the former eager rendering of the logged request payloads with the lazy, truncated {@link LogPayload}: with a disabled log level
+ * (the benchmark's log configuration only logs warnings) and with an enabled log level (measured as the formatting of the message, that the
+ * appender's layout does). Run with <code>-prof gc</code> to compare the allocation per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+	
+	private static final Logger LOGGER = LogManager.getLogger(LoggingBenchmark.class);
+	
+	private static final String MESSAGE = "Sending POST request to url: {}; request: {}";
+	private static final String URL = "http://localhost:8080/NoteBookService/notebook/notebook/";
+	
+	/**
+	 * The length of the logged note's text.
+	 */
+	@Param({"100", "1000000"})
+	private int textLength;
+	
+	private byte[] requestBody;
+	
+	@Setup
+	public void setUp() throws Exception {
+		StringBuilder text = new StringBuilder(textLength);
+		while (text.length() < textLength) {
+			text.append("note text ");
+		}
+		Note note = new Note("headline", text.substring(0, textLength), 1);
+		note.setId(1);
+		
+		//the client doesn't connect to the host before a request is sent
+		requestBody = JsonRpcTransport.writeRequest(new NoteClient().createNoteRequest(note), WireFormat.JSON);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		JsonRpcTransport.closeInstance();
+	}
+	
+	@Benchmark
+	public void disabledEager() {
+		LOGGER.info(MESSAGE, URL, new String(requestBody, StandardCharsets.UTF_8));
+	}
+	
+	@Benchmark
+	public void disabledLazy() {
+		LOGGER.info(MESSAGE, URL, LogPayload.of(requestBody, WireFormat.JSON));
+	}
+	
+	@Benchmark
+	public String enabledEager() {
+		return new ParameterizedMessage(MESSAGE, URL, new String(requestBody, StandardCharsets.UTF_8)).getFormattedMessage();
+	}
+	
+	@Benchmark
+	public String enabledLazy() {
+		return new ParameterizedMessage(MESSAGE, URL, LogPayload.of(requestBody, WireFormat.JSON)).getFormattedMessage();
+	}
+}
\ No newline at end of file
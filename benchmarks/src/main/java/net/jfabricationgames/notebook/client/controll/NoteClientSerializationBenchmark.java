@@ -0,0 +1,97 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookCommunicationException;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Measures the (de-)serialization of the JSON-RPC requests and responses of the {@link NoteClient} (without sending them).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class NoteClientSerializationBenchmark {
+	
+	/**
+	 * The number of notes in a get_notes response or a batch request.
+	 */
+	@Param({"1", "100", "1000"})
+	private int notes;
+	
+	private NoteClient client;
+	private Note note;
+	private List<JsonRpcRequest> batchRequests;
+	private byte[] getNotesResponseBytes;
+	
+	@Setup
+	public void setUp() throws Exception {
+		//the client doesn't connect to the host before a request is sent
+		client = new NoteClient();
+		List<Note> noteList = BenchmarkNotes.create(notes);
+		note = noteList.get(0);
+		batchRequests = noteList.stream().map(client::updateNoteRequest).collect(Collectors.toList());
+		
+		//a response like the service's response to a get_notes request
+		JsonRpcResponse response = new JsonRpcResponse();
+		response.setJsonRpc("2.0");
+		response.setId("1");
+		response.setResult(noteList);
+		getNotesResponseBytes = WireFormat.JSON.getMapper().writeValueAsBytes(response);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		JsonRpcTransport.closeInstance();
+	}
+	
+	@Benchmark
+	public byte[] serializeCreateNoteRequest() throws Exception {
+		return JsonRpcTransport.writeRequest(client.createNoteRequest(note), WireFormat.JSON);
+	}
+	
+	@Benchmark
+	public byte[] serializeBatchRequest() throws Exception {
+		return JsonRpcTransport.writeBatchRequest(batchRequests, WireFormat.JSON);
+	}
+	
+	/**
+	 * Parse a get_notes response including the mapping of the result to notes (Note.fromJsonRpcParametersSave).
+	 */
+	@Benchmark
+	public List<Note> deserializeGetNotesResponse() throws NoteBookCommunicationException {
+		return client.parseNotesResult(JsonRpcTransport.parseResponse(getNotesResponseBytes, WireFormat.JSON));
+	}
+	
+	/**
+	 * Parse a get_notes response from the response stream, passing the notes to a consumer one by one (like
+	 * {@link NoteClient#getNotes(net.jfabricationgames.notebook.note.NoteSelector, java.util.function.Consumer)}).
+	 */
+	@Benchmark
+	public int deserializeGetNotesResponseStreaming(Blackhole blackhole) throws NoteBookCommunicationException {
+		return JsonRpcTransport.parseStreamingResponse(new ByteArrayInputStream(getNotesResponseBytes), WireFormat.JSON,
+				parser -> NoteClient.readNotes(parser, blackhole::consume));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jfabricationgames.notebook.client.controll.NoteViewSelector.SortOrder;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Measures the local operations of the {@link NoteManager} (that don't need the server) and the merging of synchronized notes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class NoteManagerBenchmark {
+	
+	@Param({"1000", "10000", "100000"})
+	private int notes;
+	
+	private Path tempDirectory;
+	private NoteCache cache;
+	private NoteManager noteManager;
+	private NoteViewSelector viewSelector;
+	
+	private NoteStore noteStore;
+	private List<Note> loadedNotes;
+	private Random random;
+	
+	@Setup
+	public void setUp() throws IOException {
+		List<Note> noteList = BenchmarkNotes.create(notes);
+		
+		//the note manager loads the notes from it's cache (the client is never used, because no note is changed)
+		tempDirectory = Files.createTempDirectory("notebook-benchmark");
+		cache = new NoteCache(tempDirectory.resolve("notes.cache"), NoteCache.DEFAULT_SAVE_DELAY);
+		cache.save(noteList);
+		NoteClient client = new NoteClient();
+		noteManager = new NoteManager(client, cache, new PendingOperationQueue(client, tempDirectory.resolve("pending.ops")));
+		
+		viewSelector = new NoteViewSelector();
+		viewSelector.setSortOrder(SortOrder.ID_DESC);
+		
+		noteStore = new NoteStore(noteList);
+		//the same notes as new instances (like the response to a full synchronization without changes)
+		loadedNotes = BenchmarkNotes.copy(noteList);
+		random = new Random(BenchmarkNotes.SEED);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		noteManager.close();
+		JsonRpcTransport.closeInstance();
+		try (Stream<Path> files = Files.list(tempDirectory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(tempDirectory);
+	}
+	
+	@Benchmark
+	public List<Note> getNotes() {
+		return noteManager.getNotes();
+	}
+	
+	@Benchmark
+	public List<Note> getSelectedNotes() {
+		return noteManager.getSelectedNotes(viewSelector);
+	}
+	
+	@Benchmark
+	public Note getNote() {
+		return noteManager.getNote(1 + random.nextInt(notes));
+	}
+	
+	@Benchmark
+	public List<Note> searchNotes() {
+		return noteManager.searchNotes("meet rev");
+	}
+	
+	/**
+	 * Update a note in the store (the note is indexed again).
+	 */
+	@Benchmark
+	public Note updateNoteInStore() {
+		Note note = noteStore.get(1 + random.nextInt(notes));
+		note.setPriority(1 + random.nextInt(5));
+		return noteStore.put(note);
+	}
+	
+	/**
+	 * Remove a note from the store and add it again.
+	 */
+	@Benchmark
+	public Note removeAndAddNoteInStore() {
+		Note note = noteStore.remove(1 + random.nextInt(notes));
+		noteStore.put(note);
+		return note;
+	}
+	
+	/**
+	 * Merge the response of a full synchronization, that contains no changes.
+	 */
+	@Benchmark
+	public SyncStatistics mergeFullSync() {
+		return new NoteSynchronizer().merge(noteStore, loadedNotes, true, 0, System.currentTimeMillis(), id -> false);
+	}
+	
+	@Benchmark
+	public List<Note> loadCache() {
+		return cache.load();
+	}
+}
\ No newline at end of file
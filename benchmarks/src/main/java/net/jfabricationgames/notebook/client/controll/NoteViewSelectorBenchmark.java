@@ -0,0 +1,110 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jfabricationgames.notebook.client.controll.NoteViewSelector.SortOrder;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Compares the selection of the notes by the compiled {@link NoteQueryPlan} with the previous implementation ({@link LegacyNoteViewSelector})
+ * for all sort orders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class NoteViewSelectorBenchmark {
+	
+	public static final int PAGE_SIZE = 50;
+	public static final String HEADLINE_FILTER = "meeting";
+	
+	@Param({"1000", "10000", "100000"})
+	private int notes;
+	
+	@Param({"ID_ASC", "ID_DESC", "DATE_ASC", "DATE_DESC", "NAME_ASC", "NAME_DESC", "PRIORITY_ASC", "PRIORITY_DESC", "NONE"})
+	private SortOrder sortOrder;
+	
+	private List<Note> noteList;
+	private NoteStore noteStore;
+	
+	private LegacyNoteViewSelector legacySelector;
+	private LegacyNoteViewSelector legacyTextSelector;
+	private NoteViewSelector selector;
+	private NoteViewSelector firstPageSelector;
+	private NoteViewSelector textSelector;
+	
+	@Setup
+	public void setUp() {
+		noteList = BenchmarkNotes.create(notes);
+		noteStore = new NoteStore(noteList);
+		
+		legacySelector = new LegacyNoteViewSelector();
+		legacySelector.setSortOrder(sortOrder);
+		legacyTextSelector = new LegacyNoteViewSelector();
+		legacyTextSelector.setSortOrder(sortOrder);
+		legacyTextSelector.setHeadlineContainsText(HEADLINE_FILTER);
+		
+		selector = createSelector();
+		firstPageSelector = createSelector();
+		firstPageSelector.setLimit(PAGE_SIZE);
+		textSelector = createSelector();
+		textSelector.setHeadlineContainsText(HEADLINE_FILTER);
+	}
+	
+	private NoteViewSelector createSelector() {
+		NoteViewSelector selector = new NoteViewSelector();
+		selector.setSortOrder(sortOrder);
+		return selector;
+	}
+	
+	@Benchmark
+	public List<Note> legacy() {
+		return legacySelector.getMatching(noteList);
+	}
+	
+	@Benchmark
+	public List<Note> compiled() {
+		return selector.getMatching(noteList);
+	}
+	
+	/**
+	 * Only the first page of notes is selected (top-k heap instead of a full sort).
+	 */
+	@Benchmark
+	public List<Note> compiledFirstPage() {
+		return firstPageSelector.getMatching(noteList);
+	}
+	
+	@Benchmark
+	public List<Note> legacyHeadlineFilter() {
+		return legacyTextSelector.getMatching(noteList);
+	}
+	
+	@Benchmark
+	public List<Note> compiledHeadlineFilter() {
+		return textSelector.getMatching(noteList);
+	}
+	
+	/**
+	 * The headline filter is resolved by the text index of the note store.
+	 */
+	@Benchmark
+	public List<Note> indexedHeadlineFilter() {
+		return textSelector.getMatching(noteStore);
+	}
+}
\ No newline at end of file
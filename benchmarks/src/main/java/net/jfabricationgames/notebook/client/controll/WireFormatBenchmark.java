@@ -0,0 +1,116 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookCommunicationException;
+
+/**
+ * Compares the wire formats (and the former pretty printed JSON) with and without gzip compression: the time to encode and decode a get_notes
+ * response. The number of bytes on the wire of every combination is printed when the benchmark is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+	
+	/**
+	 * The encodings of the responses (JSON_PRETTY is the pretty printed JSON, that was sent before the compact JSON).
+	 */
+	public enum Encoding {
+		
+		JSON_PRETTY(WireFormat.JSON, WireFormat.JSON.getMapper().writerFor(JsonRpcResponse.class).withDefaultPrettyPrinter()), //
+		JSON(WireFormat.JSON), //
+		SMILE(WireFormat.SMILE), //
+		CBOR(WireFormat.CBOR);
+		
+		private final WireFormat format;
+		private final ObjectWriter writer;
+		
+		private Encoding(WireFormat format) {
+			this(format, format.getMapper().writerFor(JsonRpcResponse.class));
+		}
+		private Encoding(WireFormat format, ObjectWriter writer) {
+			this.format = format;
+			this.writer = writer;
+		}
+	}
+	
+	@Param({"JSON_PRETTY", "JSON", "SMILE", "CBOR"})
+	private Encoding encoding;
+	
+	@Param({"false", "true"})
+	private boolean gzip;
+	
+	/**
+	 * The number of notes in the get_notes response.
+	 */
+	@Param({"10", "1000"})
+	private int notes;
+	
+	private JsonRpcResponse response;
+	private byte[] responseBody;
+	
+	@Setup
+	public void setUp() throws IOException {
+		response = new JsonRpcResponse();
+		response.setJsonRpc("2.0");
+		response.setId("1");
+		response.setResult(BenchmarkNotes.create(notes));
+		responseBody = encode();
+		System.out.printf(Locale.ROOT, "%n%s (gzip: %b) - %d notes: %d bytes on the wire%n", encoding, gzip, notes, responseBody.length);
+	}
+	
+	/**
+	 * Encode a get_notes response (like the service does).
+	 */
+	@Benchmark
+	public byte[] encode() throws IOException {
+		byte[] body = encoding.writer.writeValueAsBytes(response);
+		if (!gzip) {
+			return body;
+		}
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+			output.write(body);
+		}
+		return compressed.toByteArray();
+	}
+	
+	/**
+	 * Decode a get_notes response like {@link NoteClient#getNotes(net.jfabricationgames.notebook.note.NoteSelector, java.util.function.Consumer)}.
+	 */
+	@Benchmark
+	public int decode(Blackhole blackhole) throws IOException, NoteBookCommunicationException {
+		InputStream input = new ByteArrayInputStream(responseBody);
+		if (gzip) {
+			input = new GZIPInputStream(input);
+		}
+		return JsonRpcTransport.parseStreamingResponse(input, encoding.format, parser -> NoteClient.readNotes(parser, blackhole::consume));
+	}
+}
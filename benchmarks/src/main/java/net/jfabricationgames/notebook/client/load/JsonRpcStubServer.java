@@ -0,0 +1,395 @@
+package net.jfabricationgames.notebook.client.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.jfabricationgames.json_rpc.JsonRpcError;
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.controll.HostConfiguration;
+import net.jfabricationgames.notebook.client.controll.NoteClient;
+import net.jfabricationgames.notebook.client.controll.NotePatch;
+import net.jfabricationgames.notebook.client.controll.WireFormat;
+import net.jfabricationgames.notebook.client.error.NoteBookRpcException;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteSelector;
+import net.jfabricationgames.notebook.service.NoteBookServiceMethods;
+
+/**
+ * An in-process JSON-RPC server that implements the methods of the NoteBookService (see {@link NoteBookServiceMethods}) on notes in memory,
+ * so the client can be tested without the service and it's database.
+ *
+ * The latency of the responses and the rate of failing requests (that are answered with a JSON-RPC error) can be configured. Batch requests
+ * are supported. The server answers in the wire format of the request (see {@link WireFormat}), accepts gzip or deflate compressed requests and
+ * compresses larger responses if the client accepts it.
+ */
+public class JsonRpcStubServer {
+	
+	public static final String DEFAULT_RESOURCE_PATH = "NoteBookService/notebook/notebook";
+	public static final int DEFAULT_THREADS = 64;
+	
+	public static final int ERROR_CODE_PARSE_ERROR = -32700;
+	public static final int ERROR_CODE_METHOD_NOT_FOUND = -32601;
+	public static final int ERROR_CODE_INVALID_PARAMS = -32602;
+	public static final int ERROR_CODE_INJECTED = -32000;
+	
+	//responses are only compressed if they are large enough (like the default of the client's request compression)
+	public static final int COMPRESSION_MIN_SIZE = HostConfiguration.DEFAULT_COMPRESSION_MIN_SIZE;
+	
+	private static final String JSON_RPC = "2.0";
+	private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+	
+	static {
+		//without TCP_NODELAY the small responses are delayed by the delayed ACKs of the client (about 40 ms per request)
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+	
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final String resourcePath;
+	
+	private final Map<Integer, Note> notes = new ConcurrentHashMap<Integer, Note>();
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	private final LongAdder requests = new LongAdder();
+	
+	private volatile long latencyMillis;
+	private volatile long latencyJitterMillis;
+	private volatile double errorRate;
+	private volatile boolean patchSupported = true;
+	
+	/**
+	 * Create a server on the loopback interface.
+	 *
+	 * @param port
+	 *        The port of the server (or 0 to use a free port; see {@link #getPort()}).
+	 *
+	 * @param resourcePath
+	 *        The path of the JSON-RPC resource (without leading slash).
+	 *
+	 * @param threads
+	 *        The number of threads that handle the requests.
+	 */
+	public JsonRpcStubServer(int port, String resourcePath, int threads) throws IOException {
+		this.resourcePath = resourcePath;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/" + resourcePath, this::handle);
+		AtomicInteger threadNumber = new AtomicInteger(1);
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "JsonRpcStubServer-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+	}
+	
+	/**
+	 * Start a stub server on the given port (default 8080), e.g. to use the client application without the service.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		JsonRpcStubServer server = new JsonRpcStubServer(port, DEFAULT_RESOURCE_PATH, DEFAULT_THREADS);
+		server.start();
+		System.out.println("JSON-RPC stub server running on http://localhost:" + server.getPort() + "/" + DEFAULT_RESOURCE_PATH);
+	}
+	
+	public void start() {
+		server.start();
+	}
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Add notes directly (without requests), e.g. to start a test with a filled notebook. The notes get new ids.
+	 */
+	public void addNotes(List<Note> newNotes) {
+		for (Note note : newNotes) {
+			int id = nextId.getAndIncrement();
+			note.setId(id);
+			notes.put(id, note);
+		}
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			
+			WireFormat format = WireFormat.forContentType(exchange.getRequestHeaders().getFirst("Content-Type"));
+			if (format == null) {
+				format = WireFormat.JSON;
+			}
+			String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+			if (contentEncoding != null && !"gzip".equals(contentEncoding) && !"deflate".equals(contentEncoding)
+					&& !"identity".equals(contentEncoding)) {
+				exchange.sendResponseHeaders(415, -1);
+				return;
+			}
+			
+			JsonNode request;
+			try (InputStream input = decode(exchange.getRequestBody(), contentEncoding)) {
+				request = format.getMapper().readTree(input);
+			}
+			catch (JsonProcessingException e) {
+				respond(exchange, format, createError(null, ERROR_CODE_PARSE_ERROR, "Parse error: " + e.getOriginalMessage()));
+				return;
+			}
+			
+			simulateLatency();
+			if (request.isArray()) {
+				List<Object> responses = new ArrayList<Object>(request.size());
+				for (JsonNode batchRequest : request) {
+					responses.add(execute(batchRequest));
+				}
+				respond(exchange, format, responses);
+			}
+			else {
+				respond(exchange, format, execute(request));
+			}
+		}
+		finally {
+			exchange.close();
+		}
+	}
+	
+	private void simulateLatency() {
+		long latency = latencyMillis;
+		if (latencyJitterMillis > 0) {
+			latency += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+		}
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	private InputStream decode(InputStream input, String contentEncoding) throws IOException {
+		if ("gzip".equals(contentEncoding)) {
+			return new GZIPInputStream(input);
+		}
+		else if ("deflate".equals(contentEncoding)) {
+			return new InflaterInputStream(input);
+		}
+		return input;
+	}
+	
+	private void respond(HttpExchange exchange, WireFormat format, Object response) throws IOException {
+		byte[] body = format.getMapper().writeValueAsBytes(response);
+		exchange.getResponseHeaders().set("Content-Type", format.getMediaType().toString());
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (body.length >= COMPRESSION_MIN_SIZE && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			//the length of the compressed body is not known before it's written (chunked encoding)
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream output = new GZIPOutputStream(exchange.getResponseBody())) {
+				output.write(body);
+			}
+		}
+		else {
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		}
+	}
+	
+	/**
+	 * Execute a single JSON-RPC request.
+	 *
+	 * @return The response or the error response.
+	 */
+	private Object execute(JsonNode request) {
+		requests.increment();
+		String id = request.path("id").asText(null);
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			return createError(id, ERROR_CODE_INJECTED, "Injected error");
+		}
+		
+		if (patchSupported && NoteClient.PATCH_NOTE.equals(request.path("method").asText())) {
+			try {
+				NotePatch patch = MAPPER.treeToValue(request.get("params"), NotePatch.class);
+				boolean[] conflict = new boolean[1];
+				Note patched = notes.computeIfPresent(patch.getId(), (noteId, note) -> {
+					//a text edit that is not based on the current text would corrupt it
+					NotePatch.TextEdit edit = patch.getNoteTextEdit();
+					conflict[0] = edit != null && !edit.isBasedOn(note.getNoteText() == null ? "" : note.getNoteText());
+					if (!conflict[0]) {
+						patch.applyTo(note);
+					}
+					return note;
+				});
+				if (conflict[0]) {
+					return createError(id, NoteBookRpcException.PATCH_CONFLICT, "The text of note " + patch.getId() + " was changed");
+				}
+				return createResult(id, patched != null ? 1 : 0);
+			}
+			catch (JsonProcessingException | IllegalArgumentException | IndexOutOfBoundsException | NullPointerException e) {
+				return createError(id, ERROR_CODE_INVALID_PARAMS, "Invalid params: " + e.getMessage());
+			}
+		}
+		
+		NoteBookServiceMethods method = getMethod(request.path("method").asText());
+		if (method == null) {
+			return createError(id, ERROR_CODE_METHOD_NOT_FOUND, "Method not found: " + request.path("method").asText());
+		}
+		
+		JsonNode params = request.get("params");
+		try {
+			switch (method) {
+				case CREATE_NOTE:
+					Note note = MAPPER.treeToValue(params, Note.class);
+					int noteId = nextId.getAndIncrement();
+					note.setId(noteId);
+					notes.put(noteId, note);
+					return createResult(id, noteId);
+				case GET_NOTES:
+					return createResult(id, select(MAPPER.treeToValue(params, NoteSelector.class)));
+				case UPDATE_NOTE:
+					Note updated = MAPPER.treeToValue(params, Note.class);
+					return createResult(id, notes.replace(updated.getId(), updated) != null ? 1 : 0);
+				case DELETE_NOTES:
+					int deleted = 0;
+					for (Note selected : select(MAPPER.treeToValue(params, NoteSelector.class))) {
+						if (notes.remove(selected.getId()) != null) {
+							deleted++;
+						}
+					}
+					return createResult(id, deleted);
+				default:
+					return createError(id, ERROR_CODE_METHOD_NOT_FOUND, "Method not implemented: " + method.getMethodName());
+			}
+		}
+		catch (JsonProcessingException | IllegalArgumentException | NullPointerException e) {
+			return createError(id, ERROR_CODE_INVALID_PARAMS, "Invalid params: " + e.getMessage());
+		}
+	}
+	
+	private NoteBookServiceMethods getMethod(String methodName) {
+		for (NoteBookServiceMethods method : NoteBookServiceMethods.values()) {
+			if (method.getMethodName().equals(methodName)) {
+				return method;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Select the notes using the service's selector (ordered by id, like the service's database).
+	 */
+	private List<Note> select(NoteSelector selector) {
+		List<Note> allNotes = new ArrayList<Note>(notes.values());
+		allNotes.sort(Comparator.comparingInt(Note::getId));
+		return selector.getMatching(allNotes);
+	}
+	
+	private JsonRpcResponse createResult(String id, Object result) {
+		JsonRpcResponse response = new JsonRpcResponse();
+		response.setJsonRpc(JSON_RPC);
+		response.setId(id);
+		response.setResult(result);
+		return response;
+	}
+	
+	private JsonRpcErrorResponse createError(String id, int code, String message) {
+		JsonRpcError error = new JsonRpcError();
+		error.setCode(code);
+		error.setMessage(message);
+		JsonRpcErrorResponse response = new JsonRpcErrorResponse();
+		response.setJsonRpc(JSON_RPC);
+		response.setId(id);
+		response.setError(error);
+		return response;
+	}
+	
+	/**
+	 * The port of the server (that was chosen by the system if the server was created with port 0).
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+	public String getResourcePath() {
+		return resourcePath;
+	}
+	
+	public int getNoteCount() {
+		return notes.size();
+	}
+	/**
+	 * The number of JSON-RPC requests that were executed (every request of a batch is counted).
+	 */
+	public long getRequestCount() {
+		return requests.sum();
+	}
+	
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+	/**
+	 * The latency that is added to every HTTP request (a batch is delayed once).
+	 */
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+	
+	public long getLatencyJitterMillis() {
+		return latencyJitterMillis;
+	}
+	/**
+	 * A random latency between 0 and the jitter that is added to the latency.
+	 */
+	public void setLatencyJitterMillis(long latencyJitterMillis) {
+		this.latencyJitterMillis = latencyJitterMillis;
+	}
+	
+	public double getErrorRate() {
+		return errorRate;
+	}
+	/**
+	 * The probability (between 0 and 1) that a request is answered with a JSON-RPC error.
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+	
+	public boolean isPatchSupported() {
+		return patchSupported;
+	}
+	/**
+	 * Whether the server answers patch_note requests (if not they are answered with "method not found", like by older services).
+	 */
+	public void setPatchSupported(boolean patchSupported) {
+		this.patchSupported = patchSupported;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,385 @@
+package net.jfabricationgames.notebook.client.load;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.jfabricationgames.notebook.client.controll.BenchmarkNotes;
+import net.jfabricationgames.notebook.client.controll.HostConfiguration;
+import net.jfabricationgames.notebook.client.controll.JsonRpcTransport;
+import net.jfabricationgames.notebook.client.controll.NoteClient;
+import net.jfabricationgames.notebook.client.controll.WireFormat;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
+import net.jfabricationgames.notebook.note.NoteSelector;
+import net.jfabricationgames.notebook.note.NoteSelectorBuilder;
+
+/**
+ * Drives concurrent {@link NoteClient}s (one per thread, each with it's own {@link JsonRpcTransport}) against a {@link JsonRpcStubServer} and
+ * reports the throughput, the latency percentiles of the operations and the allocation rate of the client threads.
+ *
+ * Usage: LoadGenerator [--clients 8] [--duration 30] [--warmup 5] [--notes 1000] [--latency 0] [--jitter 0] [--error-rate 0] [--port 0]
+ * [--wire-format json] [--request-compression false]
+ */
+public class LoadGenerator {
+	
+	/**
+	 * The operations of the clients and their share of all operations (in percent).
+	 */
+	public enum Operation {
+		
+		GET_NOTE(40), //
+		GET_NEW_NOTES(10), //
+		CREATE_NOTE(20), //
+		UPDATE_NOTE(25), //
+		DELETE_NOTE(5);
+		
+		private final int share;
+		
+		private Operation(int share) {
+			this.share = share;
+		}
+		
+		public int getShare() {
+			return share;
+		}
+		
+		public static Operation choose(Random random) {
+			int value = random.nextInt(100);
+			for (Operation operation : values()) {
+				value -= operation.share;
+				if (value < 0) {
+					return operation;
+				}
+			}
+			return GET_NOTE;
+		}
+	}
+	
+	private int clients = 8;
+	private int durationSeconds = 30;
+	private int warmupSeconds = 5;
+	private int notes = 1000;
+	private long latencyMillis = 0;
+	private long jitterMillis = 0;
+	private double errorRate = 0;
+	private int port = 0;
+	private WireFormat wireFormat = HostConfiguration.DEFAULT_WIRE_FORMAT;
+	private boolean requestCompression = HostConfiguration.DEFAULT_REQUEST_COMPRESSION;
+	
+	private volatile boolean measuring;
+	private volatile boolean running = true;
+	
+	public static void main(String[] args) throws Exception {
+		//log only warnings and errors (the clients would log every request otherwise)
+		if (System.getProperty("log4j.configurationFile") == null) {
+			System.setProperty("log4j.configurationFile", "log4j2-benchmark.xml");
+		}
+		
+		LoadGenerator generator = new LoadGenerator();
+		try {
+			generator.parseArguments(args);
+		}
+		catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.err.println("Usage: LoadGenerator [--clients 8] [--duration 30] [--warmup 5] [--notes 1000] [--latency 0] [--jitter 0] "
+					+ "[--error-rate 0] [--port 0] [--wire-format json] [--request-compression false]");
+			System.exit(1);
+		}
+		generator.run();
+	}
+	
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for option: " + args[i]);
+			}
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--clients":
+					clients = Integer.parseInt(value);
+					break;
+				case "--duration":
+					durationSeconds = Integer.parseInt(value);
+					break;
+				case "--warmup":
+					warmupSeconds = Integer.parseInt(value);
+					break;
+				case "--notes":
+					notes = Integer.parseInt(value);
+					break;
+				case "--latency":
+					latencyMillis = Long.parseLong(value);
+					break;
+				case "--jitter":
+					jitterMillis = Long.parseLong(value);
+					break;
+				case "--error-rate":
+					errorRate = Double.parseDouble(value);
+					break;
+				case "--port":
+					port = Integer.parseInt(value);
+					break;
+				case "--wire-format":
+					wireFormat = WireFormat.forName(value);
+					break;
+				case "--request-compression":
+					requestCompression = Boolean.parseBoolean(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+	}
+	
+	public void run() throws Exception {
+		JsonRpcStubServer server = new JsonRpcStubServer(port, JsonRpcStubServer.DEFAULT_RESOURCE_PATH, Math.max(clients, 1) * 2);
+		server.setLatencyMillis(latencyMillis);
+		server.setLatencyJitterMillis(jitterMillis);
+		server.setErrorRate(errorRate);
+		server.addNotes(BenchmarkNotes.create(notes));
+		server.start();
+		System.out.printf(Locale.ROOT, "Stub server on port %d with %d notes (latency %d ms + %d ms jitter, error rate %.3f)%n", server.getPort(),
+				notes, latencyMillis, jitterMillis, errorRate);
+		System.out.printf(Locale.ROOT, "%d clients, warmup %d s, measurement %d s, wire format %s, request compression %b%n", clients, warmupSeconds,
+				durationSeconds, wireFormat, requestCompression);
+		
+		List<Worker> workers = new ArrayList<Worker>(clients);
+		CountDownLatch finished = new CountDownLatch(clients);
+		for (int i = 0; i < clients; i++) {
+			HostConfiguration hostConfig = new HostConfiguration("localhost", server.getPort(), server.getResourcePath());
+			hostConfig.setWireFormat(wireFormat);
+			hostConfig.setRequestCompression(requestCompression);
+			//every query is sent to the server (the cache would answer the repeated queries)
+			hostConfig.setSelectorCacheSize(0);
+			Worker worker = new Worker(new NoteClient(new JsonRpcTransport(hostConfig)), new Random(BenchmarkNotes.SEED + i), finished);
+			workers.add(worker);
+			Thread thread = new Thread(worker, "LoadGenerator-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		TimeUnit.SECONDS.sleep(warmupSeconds);
+		measuring = true;
+		long start = System.nanoTime();
+		TimeUnit.SECONDS.sleep(durationSeconds);
+		measuring = false;
+		double seconds = (System.nanoTime() - start) / 1e9;
+		running = false;
+		finished.await();
+		server.stop();
+		
+		printReport(workers, seconds);
+	}
+	
+	private void printReport(List<Worker> workers, double seconds) {
+		long requests = 0;
+		long errors = 0;
+		long allocatedBytes = 0;
+		System.out.printf(Locale.ROOT, "%n%-14s %10s %8s %10s %10s %10s%n", "operation", "count", "errors", "p50 [ms]", "p99 [ms]", "max [ms]");
+		for (Operation operation : Operation.values()) {
+			LatencyRecorder recorder = new LatencyRecorder();
+			long operationErrors = 0;
+			for (Worker worker : workers) {
+				recorder.addAll(worker.latencies[operation.ordinal()]);
+				operationErrors += worker.errors[operation.ordinal()];
+			}
+			long[] sorted = recorder.sorted();
+			requests += sorted.length;
+			errors += operationErrors;
+			System.out.printf(Locale.ROOT, "%-14s %10d %8d %10.3f %10.3f %10.3f%n", operation, sorted.length, operationErrors,
+					percentile(sorted, 0.5), percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+		}
+		long bytesSent = 0;
+		long bytesReceived = 0;
+		for (Worker worker : workers) {
+			bytesSent += worker.client.getTransport().getBytesSent();
+			bytesReceived += worker.client.getTransport().getBytesReceived();
+		}
+		for (Worker worker : workers) {
+			if (worker.allocatedBytes < 0) {
+				allocatedBytes = -1;
+				break;
+			}
+			allocatedBytes += worker.allocatedBytes;
+		}
+		System.out.printf(Locale.ROOT, "%nthroughput: %.1f requests/s (%d requests, %d errors)%n", requests / seconds, requests, errors);
+		if (allocatedBytes >= 0) {
+			System.out.printf(Locale.ROOT, "allocation rate of the client threads: %.1f MB/s (%.1f KB/request)%n",
+					allocatedBytes / seconds / (1024 * 1024), requests == 0 ? 0 : allocatedBytes / 1024d / requests);
+		}
+		System.out.printf(Locale.ROOT, "request bodies sent: %.1f MB, response bodies received (decompressed): %.1f MB (including the warmup)%n",
+				bytesSent / (1024d * 1024), bytesReceived / (1024d * 1024));
+	}
+	
+	/**
+	 * The percentile in milliseconds (nearest rank).
+	 */
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+	
+	/**
+	 * The allocated bytes of the current thread (or -1 if the JVM can't measure them).
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+				return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * A client that executes random operations until the load generator is stopped.
+	 */
+	private class Worker implements Runnable {
+		
+		private final NoteClient client;
+		private final Random random;
+		private final CountDownLatch finished;
+		
+		private final LatencyRecorder[] latencies = new LatencyRecorder[Operation.values().length];
+		private final long[] errors = new long[Operation.values().length];
+		private long allocatedBytes = -1;
+		
+		//the ids of the notes that this client created (only these notes are deleted, so the notes of other clients stay available)
+		private final List<Integer> createdIds = new ArrayList<Integer>();
+		
+		public Worker(NoteClient client, Random random, CountDownLatch finished) {
+			this.client = client;
+			this.random = random;
+			this.finished = finished;
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = new LatencyRecorder();
+			}
+		}
+		
+		@Override
+		public void run() {
+			try {
+				boolean measured = false;
+				long allocatedAtStart = 0;
+				//the measurement is stopped before the clients, so every client that started measuring reads it's allocated bytes
+				while (true) {
+					if (!measured && measuring) {
+						measured = true;
+						allocatedAtStart = getAllocatedBytes();
+					}
+					else if (measured && !measuring) {
+						long allocatedAtEnd = getAllocatedBytes();
+						if (allocatedAtStart >= 0 && allocatedAtEnd >= 0) {
+							allocatedBytes = allocatedAtEnd - allocatedAtStart;
+						}
+						break;
+					}
+					else if (!running) {
+						break;
+					}
+					
+					Operation operation = Operation.choose(random);
+					long start = System.nanoTime();
+					boolean failed = false;
+					try {
+						execute(operation);
+					}
+					catch (NoteBookException nbe) {
+						failed = true;
+					}
+					long latency = System.nanoTime() - start;
+					if (measured) {
+						latencies[operation.ordinal()].add(latency);
+						if (failed) {
+							errors[operation.ordinal()]++;
+						}
+					}
+				}
+			}
+			finally {
+				client.getTransport().close();
+				finished.countDown();
+			}
+		}
+		
+		private void execute(Operation operation) throws NoteBookException {
+			switch (operation) {
+				case GET_NOTE:
+					client.getNotes(selectId(randomNoteId(), NoteRelation.EQUALS));
+					break;
+				case GET_NEW_NOTES:
+					//like the delta synchronization of the note manager: only the notes that were created after the prefilled notes
+					client.getNotes(selectId(notes, NoteRelation.GREATER));
+					break;
+				case CREATE_NOTE:
+					Note note = new Note("load test", "created by the load generator", 1 + random.nextInt(5));
+					createdIds.add(client.createNote(note));
+					break;
+				case UPDATE_NOTE:
+					Note updated = new Note("load test", "updated by the load generator", 1 + random.nextInt(5));
+					updated.setId(randomNoteId());
+					client.updateNote(updated);
+					break;
+				case DELETE_NOTE:
+					if (createdIds.isEmpty()) {
+						client.getNotes(selectId(randomNoteId(), NoteRelation.EQUALS));
+					}
+					else {
+						client.deleteNotes(selectId(createdIds.remove(createdIds.size() - 1), NoteRelation.EQUALS));
+					}
+					break;
+			}
+		}
+		
+		/**
+		 * A random id of the prefilled notes (that are never deleted).
+		 */
+		private int randomNoteId() {
+			return 1 + random.nextInt(Math.max(notes, 1));
+		}
+		
+		private NoteSelector selectId(int id, NoteRelation relation) {
+			return new NoteSelectorBuilder().addId(id).setIdRelation(relation).build();
+		}
+	}
+	
+	/**
+	 * A growing array of latencies in nanoseconds (without boxing them).
+	 */
+	private static class LatencyRecorder {
+		
+		private long[] values = new long[1024];
+		private int size;
+		
+		public void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+		
+		public void addAll(LatencyRecorder other) {
+			for (int i = 0; i < other.size; i++) {
+				add(other.values[i]);
+			}
+		}
+		
+		public long[] sorted() {
+			long[] sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+}
\ No newline at end of file
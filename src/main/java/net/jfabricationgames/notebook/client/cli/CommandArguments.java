@@ -0,0 +1,137 @@
+package net.jfabricationgames.notebook.client.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The arguments of a command of the {@link NoteBookCli}: positional arguments and options (that always have a value, e.g. --limit 10). An
+ * option can be given more than once (e.g. several dates).
+ */
+final class CommandArguments {
+	
+	private final List<String> positional = new ArrayList<String>();
+	private final Map<String, List<String>> options = new HashMap<String, List<String>>();
+	
+	private CommandArguments() {}
+	
+	static CommandArguments parse(List<String> arguments) {
+		CommandArguments parsed = new CommandArguments();
+		for (int i = 0; i < arguments.size(); i++) {
+			String argument = arguments.get(i);
+			if (argument.startsWith("--")) {
+				if (i + 1 >= arguments.size()) {
+					throw new IllegalArgumentException("Missing value for option: " + argument);
+				}
+				parsed.options.computeIfAbsent(argument, option -> new ArrayList<String>()).add(arguments.get(++i));
+			}
+			else {
+				parsed.positional.add(argument);
+			}
+		}
+		return parsed;
+	}
+	
+	/**
+	 * Split a command line (of the daemon mode) into arguments. Arguments can be quoted with double or single quotes and characters can be
+	 * escaped with a backslash.
+	 */
+	static List<String> tokenize(String line) {
+		List<String> arguments = new ArrayList<String>();
+		StringBuilder argument = new StringBuilder();
+		boolean inArgument = false;
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if (ch == '\\' && quote != '\'') {
+				if (++i >= line.length()) {
+					throw new IllegalArgumentException("The line ends with an escape character");
+				}
+				argument.append(line.charAt(i));
+				inArgument = true;
+			}
+			else if (quote != 0) {
+				if (ch == quote) {
+					quote = 0;
+				}
+				else {
+					argument.append(ch);
+				}
+			}
+			else if (ch == '"' || ch == '\'') {
+				quote = ch;
+				inArgument = true;
+			}
+			else if (Character.isWhitespace(ch)) {
+				if (inArgument) {
+					arguments.add(argument.toString());
+					argument.setLength(0);
+					inArgument = false;
+				}
+			}
+			else {
+				argument.append(ch);
+				inArgument = true;
+			}
+		}
+		if (quote != 0) {
+			throw new IllegalArgumentException("Missing closing quote: " + quote);
+		}
+		if (inArgument) {
+			arguments.add(argument.toString());
+		}
+		return arguments;
+	}
+	
+	/**
+	 * Check that only the allowed options were given.
+	 */
+	void checkOptions(String... allowedOptions) {
+		List<String> allowed = Arrays.asList(allowedOptions);
+		for (String option : options.keySet()) {
+			if (!allowed.contains(option)) {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+		}
+	}
+	
+	List<String> getPositional() {
+		return Collections.unmodifiableList(positional);
+	}
+	String getPositional(int index, String name) {
+		if (index >= positional.size()) {
+			throw new IllegalArgumentException("Missing argument: " + name);
+		}
+		return positional.get(index);
+	}
+	
+	boolean hasOption(String option) {
+		return options.containsKey(option);
+	}
+	/**
+	 * The (last) value of the option or null if it's not set.
+	 */
+	String getOption(String option) {
+		List<String> values = options.get(option);
+		return values == null ? null : values.get(values.size() - 1);
+	}
+	List<String> getOptions(String option) {
+		return options.getOrDefault(option, Collections.emptyList());
+	}
+	int getIntOption(String option, int defaultValue) {
+		String value = getOption(option);
+		return value == null ? defaultValue : parseInt(value, option);
+	}
+	
+	static int parseInt(String value, String name) {
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Not a number (" + name + "): " + value);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,607 @@
+package net.jfabricationgames.notebook.client.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.jfabricationgames.notebook.client.controll.HostConfiguration;
+import net.jfabricationgames.notebook.client.controll.JsonRpcTransport;
+import net.jfabricationgames.notebook.client.controll.NoteClient;
+import net.jfabricationgames.notebook.client.controll.NoteExporter;
+import net.jfabricationgames.notebook.client.controll.NoteFileFormat;
+import net.jfabricationgames.notebook.client.controll.NoteImporter;
+import net.jfabricationgames.notebook.client.controll.NotePatch;
+import net.jfabricationgames.notebook.client.controll.NoteStore;
+import net.jfabricationgames.notebook.client.controll.NoteTextIndex;
+import net.jfabricationgames.notebook.client.controll.NoteViewSelector;
+import net.jfabricationgames.notebook.client.controll.TransferStatistics;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
+import net.jfabricationgames.notebook.note.NoteSelector;
+import net.jfabricationgames.notebook.note.NoteSelectorBuilder;
+
+/**
+ * A command line client for scripts, that executes the commands directly on the server (see {@link NoteClient}) without the user interface
+ * (so JavaFX is never loaded). The connection to the server is only created by the first command that needs it.
+ *
+ * In the daemon mode the commands are read from the standard input (one command per line), so the JVM, the connections and the cached results
+ * are reused by all commands. Every command writes exactly one response: a single line in the JSON output and a table or message followed by
+ * an empty line in the table output (also for errors).
+ */
+public class NoteBookCli {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteBookCli.class);
+	
+	public enum OutputFormat {
+		TABLE, JSON;
+	}
+	
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_USAGE = 1;
+	/** Some notes of an import were skipped or failed */
+	public static final int EXIT_INCOMPLETE = 2;
+	public static final int EXIT_FAILED = 3;
+	
+	private static final String USAGE = String.join(System.lineSeparator(), //
+			"Usage: NoteBookCli [--output table|json] <command> [arguments]", //
+			"       NoteBookCli [--output table|json] --daemon (reads the commands from the standard input; 'quit' ends the daemon)", //
+			"Commands:", //
+			"  list [filters] [--sort id_asc|id_desc|date_asc|date_desc|name_asc|name_desc|priority_asc|priority_desc] [--limit n]", //
+			"  search <query> [filters] [--limit n]", //
+			"  get <id>", //
+			"  create --headline <text> [--text <text>] [--priority 1-5] [--execution-date <date>]... [--reminder-date <date>]...", //
+			"  update <id> [--headline <text>] [--text <text>] [--priority 1-5] [--execution-date <date>]... [--reminder-date <date>]...", //
+			"  delete <id>... | delete <filters>", //
+			"  import <file> [--format jsonl|csv] [--batch-size n] [--parallel n]", //
+			"  export <file> [--format jsonl|csv] [filters]", //
+			"  help", //
+			"Filters: [--ids 1,2,3 [--id-relation in]] [--priority n [--priority-relation equals]] [--date <date> --date-relation <relation>]", //
+			"  relations: equals, in, greater, greater_equals, less, less_equals, before, after", //
+			"Dates: 2020-01-31T12:00 or 2020-01-31 (given dates replace the dates of an updated note; an empty date removes them)");
+	
+	private static final String[] FILTER_OPTIONS = {"--ids", "--id-relation", "--priority", "--priority-relation", "--date", "--date-relation"};
+	private static final String[] NOTE_OPTIONS = {"--headline", "--text", "--priority", "--execution-date", "--reminder-date"};
+	
+	private static final DateTimeFormatter TABLE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+	
+	/**
+	 * The JSON mapper is only created when the first JSON response is written (the initialization of Jackson slows down the start).
+	 */
+	private static class Json {
+		
+		private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule())
+				.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+	
+	private final PrintWriter out;
+	private OutputFormat outputFormat = OutputFormat.TABLE;
+	private boolean daemon;
+	
+	private NoteClient client;
+	
+	public NoteBookCli(PrintWriter out) {
+		this.out = out;
+	}
+	
+	public static void main(String[] args) {
+		NoteBookCli cli = new NoteBookCli(new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+		int exitCode;
+		try {
+			List<String> arguments = cli.parseGlobalOptions(Arrays.asList(args));
+			if (cli.daemon) {
+				cli.runDaemon(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+				exitCode = EXIT_OK;
+			}
+			else {
+				exitCode = cli.execute(arguments);
+			}
+		}
+		catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.err.println(USAGE);
+			exitCode = EXIT_USAGE;
+		}
+		catch (IOException ioe) {
+			System.err.println("The commands couldn't be read: " + ioe.getMessage());
+			exitCode = EXIT_FAILED;
+		}
+		finally {
+			cli.close();
+		}
+		System.exit(exitCode);
+	}
+	
+	/**
+	 * Read the options before the command (--output and --daemon).
+	 *
+	 * @return The command and it's arguments.
+	 */
+	private List<String> parseGlobalOptions(List<String> arguments) {
+		int i = 0;
+		while (i < arguments.size() && arguments.get(i).startsWith("--")) {
+			switch (arguments.get(i)) {
+				case "--daemon":
+					daemon = true;
+					i++;
+					break;
+				case "--output":
+					if (i + 1 >= arguments.size()) {
+						throw new IllegalArgumentException("Missing value for option: --output");
+					}
+					outputFormat = parseEnum(OutputFormat.class, arguments.get(i + 1), "--output");
+					i += 2;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + arguments.get(i));
+			}
+		}
+		return arguments.subList(i, arguments.size());
+	}
+	
+	/**
+	 * Execute the commands of the input line by line, until the input ends or the command 'quit' is read. Empty lines and lines that start with
+	 * '#' are ignored.
+	 */
+	public void runDaemon(BufferedReader in) throws IOException {
+		daemon = true;
+		LOGGER.info("Starting the command line daemon (output format: {})", outputFormat);
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			List<String> arguments;
+			try {
+				arguments = CommandArguments.tokenize(line);
+			}
+			catch (IllegalArgumentException iae) {
+				printError(iae.getMessage());
+				continue;
+			}
+			if (arguments.get(0).equals("quit") || arguments.get(0).equals("exit")) {
+				break;
+			}
+			execute(arguments);
+		}
+		LOGGER.info("Command line daemon stopped");
+	}
+	
+	/**
+	 * Execute a command and write it's result (or the error) to the output.
+	 *
+	 * @return The exit code of the command.
+	 */
+	public int execute(List<String> arguments) {
+		try {
+			if (arguments.isEmpty()) {
+				throw new IllegalArgumentException("Missing command (see help)");
+			}
+			String command = arguments.get(0);
+			CommandArguments commandArguments = CommandArguments.parse(arguments.subList(1, arguments.size()));
+			LOGGER.debug("executing command: {}", arguments);
+			switch (command) {
+				case "list":
+					return list(commandArguments);
+				case "search":
+					return search(commandArguments);
+				case "get":
+					return get(commandArguments);
+				case "create":
+					return create(commandArguments);
+				case "update":
+					return update(commandArguments);
+				case "delete":
+					return delete(commandArguments);
+				case "import":
+					return importNotes(commandArguments);
+				case "export":
+					return exportNotes(commandArguments);
+				case "help":
+					if (outputFormat == OutputFormat.JSON) {
+						printJson(Collections.singletonMap("usage", USAGE));
+					}
+					else {
+						printMessage(USAGE);
+					}
+					return EXIT_OK;
+				default:
+					throw new IllegalArgumentException("Unknown command: " + command + " (see help)");
+			}
+		}
+		catch (IllegalArgumentException iae) {
+			printError(iae.getMessage());
+			return EXIT_USAGE;
+		}
+		catch (NoteBookException | IOException e) {
+			LOGGER.error("command failed: {}", arguments, e);
+			printError(e.getMessage() != null ? e.getMessage() : e.toString());
+			return EXIT_FAILED;
+		}
+		finally {
+			out.flush();
+		}
+	}
+	
+	private int list(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions(concat(FILTER_OPTIONS, "--sort", "--limit"));
+		if (!arguments.getPositional().isEmpty()) {
+			throw new IllegalArgumentException("Unexpected argument: " + arguments.getPositional().get(0));
+		}
+		List<Note> notes = getClient().getNotes(createSelector(arguments));
+		
+		NoteViewSelector view = new NoteViewSelector();
+		String sortOrder = arguments.getOption("--sort");
+		view.setSortOrder(sortOrder == null ? NoteViewSelector.SortOrder.ID_ASC : parseEnum(NoteViewSelector.SortOrder.class, sortOrder, "--sort"));
+		view.setLimit(arguments.getIntOption("--limit", 0));
+		printNotes(view.getMatching(notes));
+		return EXIT_OK;
+	}
+	
+	private int search(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions(concat(FILTER_OPTIONS, "--limit"));
+		String query = String.join(" ", arguments.getPositional());
+		if (query.trim().isEmpty()) {
+			throw new IllegalArgumentException("Missing argument: query");
+		}
+		//the notes are ranked by the text index of the note manager's store
+		NoteStore store = new NoteStore(getClient().getNotes(createSelector(arguments)));
+		List<Note> notes = store.search(query, NoteTextIndex.Field.ALL);
+		int limit = arguments.getIntOption("--limit", 0);
+		if (limit > 0 && notes.size() > limit) {
+			notes = notes.subList(0, limit);
+		}
+		printNotes(notes);
+		return EXIT_OK;
+	}
+	
+	private int get(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions();
+		Note note = getNote(CommandArguments.parseInt(arguments.getPositional(0, "id"), "id"));
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(note);
+		}
+		else {
+			printNotes(Collections.singletonList(note));
+		}
+		return EXIT_OK;
+	}
+	
+	private int create(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions(NOTE_OPTIONS);
+		Note note = new Note(arguments.getOption("--headline"), "", NoteImporter.MIN_PRIORITY);
+		applyNoteOptions(note, arguments);
+		int id = getClient().createNote(note);
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(Collections.singletonMap("id", id));
+		}
+		else {
+			printMessage("Created note " + id);
+		}
+		return EXIT_OK;
+	}
+	
+	private int update(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions(NOTE_OPTIONS);
+		Note note = getNote(CommandArguments.parseInt(arguments.getPositional(0, "id"), "id"));
+		applyNoteOptions(note, arguments);
+		//only the given fields are sent, so concurrent changes of the other fields are kept (if the server supports patches)
+		int updated = getClient().patchNote(note, createPatch(note, arguments));
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(Collections.singletonMap("updated", updated));
+		}
+		else {
+			printMessage("Updated " + updated + " note(s)");
+		}
+		return EXIT_OK;
+	}
+	
+	private int delete(CommandArguments arguments) throws NoteBookException {
+		arguments.checkOptions(FILTER_OPTIONS);
+		NoteSelector selector;
+		if (!arguments.getPositional().isEmpty()) {
+			if (arguments.hasOption("--ids")) {
+				throw new IllegalArgumentException("The ids can't be combined with the --ids filter");
+			}
+			List<Integer> ids = new ArrayList<Integer>();
+			for (String id : arguments.getPositional()) {
+				ids.add(CommandArguments.parseInt(id, "id"));
+			}
+			selector = new NoteSelectorBuilder().addIds(ids).setIdRelation(NoteRelation.IN).build();
+		}
+		else if (hasFilter(arguments)) {
+			selector = createSelector(arguments);
+		}
+		else {
+			//all notes would be deleted by an empty selector
+			throw new IllegalArgumentException("The notes to delete have to be selected by ids or filters");
+		}
+		int deleted = getClient().deleteNotes(selector);
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(Collections.singletonMap("deleted", deleted));
+		}
+		else {
+			printMessage("Deleted " + deleted + " note(s)");
+		}
+		return EXIT_OK;
+	}
+	
+	private int importNotes(CommandArguments arguments) throws NoteBookException, IOException {
+		arguments.checkOptions("--format", "--batch-size", "--parallel");
+		String file = arguments.getPositional(0, "file");
+		String format = arguments.getOption("--format");
+		NoteImporter importer = new NoteImporter(getClient(), arguments.getIntOption("--batch-size", NoteImporter.DEFAULT_BATCH_SIZE),
+				arguments.getIntOption("--parallel", NoteImporter.DEFAULT_PARALLELISM));
+		importer.setProgressListener(NoteBookTransfer::printProgress);
+		TransferStatistics statistics = format == null ? importer.importNotes(Paths.get(file))
+				: importer.importNotes(Paths.get(file), NoteFileFormat.forName(format));
+		printStatistics(statistics);
+		return statistics.getNotesInvalid() + statistics.getNotesFailed() > 0 ? EXIT_INCOMPLETE : EXIT_OK;
+	}
+	
+	private int exportNotes(CommandArguments arguments) throws NoteBookException, IOException {
+		arguments.checkOptions(concat(FILTER_OPTIONS, "--format"));
+		String file = arguments.getPositional(0, "file");
+		String format = arguments.getOption("--format");
+		NoteExporter exporter = new NoteExporter(getClient());
+		exporter.setProgressListener(NoteBookTransfer::printProgress);
+		NoteSelector selector = createSelector(arguments);
+		TransferStatistics statistics = format == null ? exporter.exportNotes(selector, Paths.get(file))
+				: exporter.exportNotes(selector, Paths.get(file), NoteFileFormat.forName(format));
+		printStatistics(statistics);
+		return EXIT_OK;
+	}
+	
+	private Note getNote(int id) throws NoteBookException {
+		//requested without the selector cache, that might contain an old version of the note (in the daemon mode)
+		List<Note> notes = getClient().getNotesIfChanged(new NoteSelectorBuilder().addId(id).setIdRelation(NoteRelation.EQUALS).build(), null)
+				.getResult();
+		for (Note note : notes) {
+			if (note.getId() == id) {
+				return note;
+			}
+		}
+		throw new NoteBookException("There is no note with the id " + id);
+	}
+	
+	/**
+	 * Change the fields of the note, that are given as options (and check that the note is valid then).
+	 */
+	private void applyNoteOptions(Note note, CommandArguments arguments) {
+		if (arguments.hasOption("--headline")) {
+			note.setHeadline(arguments.getOption("--headline"));
+		}
+		if (arguments.hasOption("--text")) {
+			note.setNoteText(arguments.getOption("--text"));
+		}
+		if (arguments.hasOption("--priority")) {
+			note.setPriority(arguments.getIntOption("--priority", note.getPriority()));
+		}
+		if (arguments.hasOption("--execution-date")) {
+			note.setExecutionDates(parseDates(arguments.getOptions("--execution-date"), "--execution-date"));
+		}
+		if (arguments.hasOption("--reminder-date")) {
+			note.setReminderDates(parseDates(arguments.getOptions("--reminder-date"), "--reminder-date"));
+		}
+		String problem = NoteImporter.validate(note);
+		if (problem != null) {
+			throw new IllegalArgumentException(problem);
+		}
+	}
+	
+	/**
+	 * The patch of the fields that are given as options (taken from the note, to which the options were applied).
+	 */
+	private NotePatch createPatch(Note note, CommandArguments arguments) {
+		NotePatch patch = new NotePatch(note.getId());
+		if (arguments.hasOption("--headline")) {
+			patch.setHeadline(note.getHeadline());
+		}
+		if (arguments.hasOption("--text")) {
+			patch.setNoteText(note.getNoteText());
+		}
+		if (arguments.hasOption("--priority")) {
+			patch.setPriority(note.getPriority());
+		}
+		if (arguments.hasOption("--execution-date")) {
+			patch.setExecutionDates(note.getExecutionDates());
+		}
+		if (arguments.hasOption("--reminder-date")) {
+			patch.setReminderDates(note.getReminderDates());
+		}
+		return patch;
+	}
+	
+	private boolean hasFilter(CommandArguments arguments) {
+		return arguments.hasOption("--ids") || arguments.hasOption("--priority") || arguments.hasOption("--date");
+	}
+	
+	/**
+	 * Create the selector of the notes from the filter options (the empty selector, that selects all notes, if there are no filters).
+	 */
+	private NoteSelector createSelector(CommandArguments arguments) {
+		checkRelation(arguments, "--ids", "--id-relation");
+		checkRelation(arguments, "--priority", "--priority-relation");
+		checkRelation(arguments, "--date", "--date-relation");
+		if (!hasFilter(arguments)) {
+			return NoteSelector.empty();
+		}
+		NoteSelectorBuilder builder = new NoteSelectorBuilder();
+		if (arguments.hasOption("--ids")) {
+			List<Integer> ids = new ArrayList<Integer>();
+			for (String id : arguments.getOption("--ids").split(",")) {
+				ids.add(CommandArguments.parseInt(id, "--ids"));
+			}
+			builder.addIds(ids).setIdRelation(parseRelation(arguments.getOption("--id-relation"), NoteRelation.IN));
+		}
+		if (arguments.hasOption("--priority")) {
+			builder.setPriority(arguments.getIntOption("--priority", 0))
+					.setPriorityRelation(parseRelation(arguments.getOption("--priority-relation"), NoteRelation.EQUALS));
+		}
+		if (arguments.hasOption("--date")) {
+			if (!arguments.hasOption("--date-relation")) {
+				throw new IllegalArgumentException("The --date filter needs a --date-relation (e.g. before or after)");
+			}
+			builder.setDate(parseDate(arguments.getOption("--date"), "--date")).setDateRelation(parseRelation(arguments.getOption("--date-relation"),
+					null));
+		}
+		return builder.build();
+	}
+	
+	private void checkRelation(CommandArguments arguments, String filter, String relation) {
+		if (arguments.hasOption(relation) && !arguments.hasOption(filter)) {
+			throw new IllegalArgumentException("The option " + relation + " needs the filter " + filter);
+		}
+	}
+	
+	private NoteRelation parseRelation(String relation, NoteRelation defaultRelation) {
+		return relation == null ? defaultRelation : parseEnum(NoteRelation.class, relation, "relation");
+	}
+	
+	private static <T extends Enum<T>> T parseEnum(Class<T> type, String value, String name) {
+		try {
+			return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+		catch (IllegalArgumentException iae) {
+			throw new IllegalArgumentException("Unknown value of " + name + ": " + value);
+		}
+	}
+	
+	private static List<LocalDateTime> parseDates(List<String> values, String name) {
+		List<LocalDateTime> dates = new ArrayList<LocalDateTime>();
+		for (String value : values) {
+			if (!value.trim().isEmpty()) {
+				dates.add(parseDate(value, name));
+			}
+		}
+		return dates;
+	}
+	private static LocalDateTime parseDate(String value, String name) {
+		try {
+			if (value.contains("T")) {
+				return LocalDateTime.parse(value.trim());
+			}
+			return LocalDate.parse(value.trim()).atStartOfDay();
+		}
+		catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Not a date (" + name + "): " + value);
+		}
+	}
+	
+	private static String[] concat(String[] options, String... moreOptions) {
+		String[] all = Arrays.copyOf(options, options.length + moreOptions.length);
+		System.arraycopy(moreOptions, 0, all, options.length, moreOptions.length);
+		return all;
+	}
+	
+	private void printNotes(List<Note> notes) {
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(notes);
+			return;
+		}
+		out.printf(Locale.ROOT, "%6s  %-8s  %-16s  %s%n", "ID", "PRIORITY", "EXECUTION", "HEADLINE");
+		for (Note note : notes) {
+			List<LocalDateTime> executionDates = note.getExecutionDates();
+			String executionDate = executionDates == null || executionDates.isEmpty() || executionDates.get(0) == null ? ""
+					: TABLE_DATE_FORMAT.format(executionDates.get(0));
+			String headline = note.getHeadline() == null ? "" : note.getHeadline().replaceAll("\\s+", " ");
+			out.printf(Locale.ROOT, "%6d  %-8d  %-16s  %s%n", note.getId(), note.getPriority(), executionDate, headline);
+		}
+		endResponse();
+	}
+	
+	private void printStatistics(TransferStatistics statistics) {
+		if (outputFormat == OutputFormat.JSON) {
+			printJson(statistics);
+		}
+		else {
+			printMessage(String.format(Locale.ROOT, "%d notes read, %d transferred, %d invalid, %d failed in %.1f s", statistics.getNotesRead(),
+					statistics.getNotesTransferred(), statistics.getNotesInvalid(), statistics.getNotesFailed(),
+					statistics.getDurationMillis() / 1000.0));
+		}
+	}
+	
+	private void printJson(Object value) {
+		try {
+			out.println(Json.MAPPER.writeValueAsString(value));
+		}
+		catch (JsonProcessingException e) {
+			//can't happen for the notes and the maps of numbers
+			throw new IllegalStateException("The result couldn't be written as JSON", e);
+		}
+	}
+	
+	private void printMessage(String message) {
+		out.println(message);
+		endResponse();
+	}
+	
+	private void printError(String message) {
+		if (!daemon) {
+			System.err.println("Error: " + message);
+		}
+		else if (outputFormat == OutputFormat.JSON) {
+			printJson(Collections.singletonMap("error", message));
+		}
+		else {
+			printMessage("Error: " + message);
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Mark the end of a table response in the daemon mode (the JSON responses are single lines).
+	 */
+	private void endResponse() {
+		if (daemon) {
+			out.println();
+		}
+	}
+	
+	private NoteClient getClient() {
+		if (client == null) {
+			client = new NoteClient(new JsonRpcTransport(HostConfiguration.getInstance()));
+		}
+		return client;
+	}
+	
+	/**
+	 * Close the connections to the server.
+	 */
+	public void close() {
+		out.flush();
+		if (client != null) {
+			client.getTransport().close();
+			client = null;
+		}
+	}
+	
+	public OutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+	public void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package net.jfabricationgames.notebook.client.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import net.jfabricationgames.notebook.client.controll.HostConfiguration;
+import net.jfabricationgames.notebook.client.controll.JsonRpcTransport;
+import net.jfabricationgames.notebook.client.controll.NoteClient;
+import net.jfabricationgames.notebook.client.controll.NoteExporter;
+import net.jfabricationgames.notebook.client.controll.NoteFileFormat;
+import net.jfabricationgames.notebook.client.controll.NoteImporter;
+import net.jfabricationgames.notebook.client.controll.TransferStatistics;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.note.NoteSelector;
+
+/**
+ * Imports or exports the notes of the host (configured in the hosts.properties) without the user interface. The progress is printed to the
+ * standard error stream.
+ *
+ * Usage: NoteBookTransfer import|export &lt;file&gt; [--format jsonl|csv] [--batch-size 100] [--parallel 4]
+ */
+public class NoteBookTransfer {
+	
+	private static final String USAGE = "Usage: NoteBookTransfer import|export <file> [--format jsonl|csv] [--batch-size "
+			+ NoteImporter.DEFAULT_BATCH_SIZE + "] [--parallel " + NoteImporter.DEFAULT_PARALLELISM + "]";
+	
+	private boolean export;
+	private Path file;
+	private NoteFileFormat format;
+	private int batchSize = NoteImporter.DEFAULT_BATCH_SIZE;
+	private int parallelism = NoteImporter.DEFAULT_PARALLELISM;
+	
+	public static void main(String[] args) {
+		NoteBookTransfer transfer = new NoteBookTransfer();
+		try {
+			transfer.parseArguments(args);
+		}
+		catch (IllegalArgumentException iae) {
+			System.err.println(iae.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		try {
+			TransferStatistics statistics = transfer.run();
+			System.exit(statistics.getNotesInvalid() + statistics.getNotesFailed() > 0 ? 2 : 0);
+		}
+		catch (IOException ioe) {
+			System.err.println((transfer.export ? "Export" : "Import") + " failed: " + ioe);
+			System.exit(3);
+		}
+		catch (NoteBookException nbe) {
+			System.err.println((transfer.export ? "Export" : "Import") + " failed: " + nbe.getMessage());
+			System.exit(3);
+		}
+	}
+	
+	private void parseArguments(String[] args) {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Missing command or file");
+		}
+		switch (args[0]) {
+			case "import":
+				export = false;
+				break;
+			case "export":
+				export = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown command: " + args[0]);
+		}
+		file = Paths.get(args[1]);
+		format = NoteFileFormat.forFile(file);
+		for (int i = 2; i < args.length; i += 2) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for option: " + args[i]);
+			}
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--format":
+					format = NoteFileFormat.forName(value);
+					break;
+				case "--batch-size":
+					batchSize = Integer.parseInt(value);
+					break;
+				case "--parallel":
+					parallelism = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if (batchSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("The batch size and the parallelism must be positive");
+		}
+	}
+	
+	public TransferStatistics run() throws IOException, NoteBookException {
+		HostConfiguration hostConfig = HostConfiguration.getInstance();
+		//send the batches of the import as they are built (and use a connection for every parallel batch)
+		hostConfig.setMaxBatchSize(Math.max(hostConfig.getMaxBatchSize(), batchSize));
+		hostConfig.setMaxConnections(Math.max(hostConfig.getMaxConnections(), parallelism));
+		
+		JsonRpcTransport transport = new JsonRpcTransport(hostConfig);
+		try {
+			NoteClient client = new NoteClient(transport);
+			TransferStatistics statistics;
+			if (export) {
+				NoteExporter exporter = new NoteExporter(client);
+				exporter.setProgressListener(NoteBookTransfer::printProgress);
+				statistics = exporter.exportNotes(NoteSelector.empty(), file, format);
+			}
+			else {
+				NoteImporter importer = new NoteImporter(client, batchSize, parallelism);
+				importer.setProgressListener(NoteBookTransfer::printProgress);
+				statistics = importer.importNotes(file, format);
+			}
+			return statistics;
+		}
+		finally {
+			transport.close();
+		}
+	}
+	
+	/**
+	 * Print the progress of an import or export to the standard error stream.
+	 */
+	static void printProgress(TransferStatistics statistics) {
+		System.err.printf(Locale.ROOT, "%d notes read, %d transferred, %d invalid, %d failed (%.1f notes/s)%n", statistics.getNotesRead(),
+				statistics.getNotesTransferred(), statistics.getNotesInvalid(), statistics.getNotesFailed(), statistics.getThroughput());
+	}
+}
\ No newline at end of file
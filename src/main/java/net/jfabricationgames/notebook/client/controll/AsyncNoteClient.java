@@ -0,0 +1,162 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookConflictException;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.client.error.NoteBookRpcException;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteSelector;
+
+/**
+ * A non-blocking version of the {@link NoteClient}. All requests are executed by the bounded executor of the {@link JsonRpcTransport}, so the
+ * calling thread (e.g. the JavaFX application thread) never waits for the network.
+ * 
+ * The returned futures are completed exceptionally with a {@link NoteBookException} (wrapped in a {@link CompletionException} for dependent
+ * stages) if a request fails.
+ */
+public class AsyncNoteClient {
+	
+	private static final Logger LOGGER = LogManager.getLogger(AsyncNoteClient.class);
+	
+	private final NoteClient client;
+	private final JsonRpcTransport transport;
+	
+	public AsyncNoteClient() {
+		this(new NoteClient());
+	}
+	
+	/**
+	 * Create an async client that uses the requests, response parsing and transport of the given (blocking) client.
+	 */
+	public AsyncNoteClient(NoteClient client) {
+		this.client = client;
+		this.transport = client.getTransport();
+	}
+	
+	public CompletableFuture<Integer> createNote(Note note) {
+		LOGGER.info("creating note (async): {}", LogPayload.of(note));
+		return send(client.createNoteRequest(note)).thenApply(response -> {
+			try {
+				int noteId = client.parseIntResult(response, "Create");
+				LOGGER.info("Received note's id: {}", noteId);
+				return noteId;
+			}
+			catch (NoteBookException nbe) {
+				throw new CompletionException(nbe);
+			}
+		}).whenComplete((noteId, throwable) -> client.noteCreated(note, noteId));
+	}
+	
+	public CompletableFuture<List<Note>> getNotes(NoteSelector selector) {
+		List<Note> notes = new ArrayList<Note>();
+		return getNotes(selector, notes::add).thenApply(count -> notes);
+	}
+	
+	/**
+	 * Request the notes and pass them to the consumer one by one while the response is parsed (see
+	 * {@link NoteClient#getNotes(NoteSelector, Consumer)}). The consumer is called by a thread of the transport's executor.
+	 * 
+	 * @return A future for the number of notes that were passed to the consumer.
+	 */
+	public CompletableFuture<Integer> getNotes(NoteSelector selector, Consumer<Note> consumer) {
+		List<Note> cachedNotes = client.getCachedNotes(selector);
+		if (cachedNotes != null) {
+			cachedNotes.forEach(consumer);
+			return CompletableFuture.completedFuture(cachedNotes.size());
+		}
+		LOGGER.info("reqeusting notes with selector (async): {}", selector);
+		if (client.getSelectorCache() == null) {
+			return transport.sendStreamingAsync(client.getNotesRequest(selector), parser -> NoteClient.readNotes(parser, consumer));
+		}
+		NoteSelectorCache.Load load = client.getSelectorCache().startLoad(selector, consumer);
+		return transport.sendStreamingAsync(client.getNotesRequest(selector), parser -> NoteClient.readNotes(parser, load)).thenApply(notes -> {
+			load.completed();
+			return notes;
+		});
+	}
+	
+	public CompletableFuture<Integer> updateNote(Note note) {
+		LOGGER.info("updating note (async): {}", LogPayload.of(note));
+		return send(client.updateNoteRequest(note)).thenApply(response -> {
+			try {
+				return client.parseUpdateResult(response);
+			}
+			catch (NoteBookException nbe) {
+				throw new CompletionException(nbe);
+			}
+		}).whenComplete((affectedRows, throwable) -> client.noteChanged(note));
+	}
+	
+	/**
+	 * Update only the changed fields of a note (see {@link NoteClient#patchNote(Note, NotePatch)}).
+	 */
+	public CompletableFuture<Integer> patchNote(Note note, NotePatch patch) {
+		if (!client.isPatchSupported()) {
+			return updateNote(note);
+		}
+		LOGGER.info("patching note (async): {}", patch);
+		return send(client.patchNoteRequest(patch)).thenApply(response -> {
+			try {
+				return client.parseUpdateResult(response);
+			}
+			catch (NoteBookException nbe) {
+				throw new CompletionException(nbe);
+			}
+		}).whenComplete((affectedRows, throwable) -> client.noteChanged(note)).handle((affectedRows, throwable) -> {
+			if (throwable == null) {
+				return CompletableFuture.completedFuture(affectedRows);
+			}
+			Throwable cause = unwrap(throwable);
+			if (cause instanceof NoteBookRpcException && ((NoteBookRpcException) cause).isMethodNotFound()) {
+				client.patchNotSupported();
+				return updateNote(note);
+			}
+			if (cause instanceof NoteBookRpcException && ((NoteBookRpcException) cause).isPatchConflict()) {
+				LOGGER.warn("The patch of note {} was rejected ({})", patch.getId(), ((NoteBookRpcException) cause).getErrorMessage());
+				cause = new NoteBookConflictException(patch.getId(), cause);
+			}
+			CompletableFuture<Integer> failed = new CompletableFuture<Integer>();
+			failed.completeExceptionally(cause);
+			return failed;
+		}).thenCompose(result -> result);
+	}
+	
+	public CompletableFuture<Integer> deleteNotes(NoteSelector selector) {
+		LOGGER.info("deleting notes (async): selector: {}", selector);
+		return send(client.deleteNotesRequest(selector)).thenApply(response -> {
+			try {
+				int affectedRows = client.parseIntResult(response, "Delete");
+				LOGGER.info("Deleted selected; affected rows: {}", affectedRows);
+				return affectedRows;
+			}
+			catch (NoteBookException nbe) {
+				throw new CompletionException(nbe);
+			}
+		}).whenComplete((affectedRows, throwable) -> client.notesDeleted(selector));
+	}
+	
+	private CompletableFuture<JsonRpcResponse> send(JsonRpcRequest request) {
+		return transport.sendAsync(request);
+	}
+	
+	/**
+	 * Get the {@link NoteBookException} (or any other cause) that caused a future of this client to complete exceptionally.
+	 */
+	public static Throwable unwrap(Throwable throwable) {
+		Throwable cause = throwable;
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Saves the changes of notes in the background, after the note was not changed for a while (debouncing), so a note is not sent to the server
+ * for every keystroke.
+ *
+ * The changes of a note are coalesced: only the latest content of the note is saved and a note is only saved if it's content differs from the
+ * last saved content (compared by a hash of the content). Only the fields that were changed since the last save are sent (see
+ * {@link NotePatch}). The saves of one note are sent one after another.
+ *
+ * Every save expects the version of the note that the editor's content is based on (see {@link NoteManager#getNoteVersion(int)}), so a note that
+ * was changed concurrently (e.g. by a synchronization with the server) is not overwritten (the save fails with a
+ * {@link net.jfabricationgames.notebook.client.error.NoteBookConflictException}).
+ */
+public class AutoSaveScheduler {
+	
+	private static final Logger LOGGER = LogManager.getLogger(AutoSaveScheduler.class);
+	
+	public static final long DEFAULT_DELAY = 1000;
+	
+	private final SaveFunction saveFunction;
+	private final Executor saveExecutor;
+	private final long delay;
+	private final Consumer<Throwable> errorHandler;
+	private final ScheduledExecutorService timer;
+	
+	//the latest unsaved content of the notes and the timers that save them (by note id)
+	private final Map<Integer, PendingSave> pendingSaves = new HashMap<Integer, PendingSave>();
+	//the content hashes of the last saved (or loaded) versions of the notes
+	private final Map<Integer, Long> savedHashes = new HashMap<Integer, Long>();
+	//copies of the last saved (or loaded) versions of the notes, to find the changed fields
+	private final Map<Integer, Note> savedContents = new HashMap<Integer, Note>();
+	//the last save of every note, that is still running (the next save of the note is started after it)
+	private final Map<Integer, CompletableFuture<Void>> runningSaves = new HashMap<Integer, CompletableFuture<Void>>();
+	//the local versions of the last saved (or loaded) notes, that the next saves expect
+	private final Map<Integer, Long> savedVersions = new HashMap<Integer, Long>();
+	
+	/**
+	 * Saves a note (e.g. {@link NoteManager#updateNoteAsync(Note, NotePatch, long)}).
+	 */
+	public interface SaveFunction {
+		
+		/**
+		 * @param patch
+		 *        The changes since the last save (or null if they are not known).
+		 *
+		 * @param expectedVersion
+		 *        The version of the last saved note (or {@link NoteManager#ANY_VERSION}).
+		 *
+		 * @return A future for the new version of the note.
+		 */
+		public CompletableFuture<Long> save(Note note, NotePatch patch, long expectedVersion);
+	}
+	
+	private static class PendingSave {
+		
+		private final Note note;
+		private final Note content;
+		private final ScheduledFuture<?> timer;
+		
+		public PendingSave(Note note, Note content, ScheduledFuture<?> timer) {
+			this.note = note;
+			this.content = content;
+			this.timer = timer;
+		}
+	}
+	
+	/**
+	 * @param saveFunction
+	 *        Saves a note, using the changes since the last save if they are known (e.g.
+	 *        {@link NoteManager#updateNoteAsync(Note, NotePatch, long)}).
+	 *
+	 * @param saveExecutor
+	 *        Executes the debounced saves (e.g. the JavaFX application thread, that also changes the notes).
+	 *
+	 * @param delay
+	 *        The time (in milliseconds) without changes after which a note is saved.
+	 *
+	 * @param errorHandler
+	 *        Is informed about failed saves, that were started by the timer.
+	 */
+	public AutoSaveScheduler(SaveFunction saveFunction, Executor saveExecutor, long delay,
+			Consumer<Throwable> errorHandler) {
+		this.saveFunction = saveFunction;
+		this.saveExecutor = saveExecutor;
+		this.delay = delay;
+		this.errorHandler = errorHandler;
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "AutoSaveScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Remember the current content of the note as saved (e.g. when it was loaded into the editor), so it's not saved again if it's not changed.
+	 */
+	public synchronized void markSaved(Note note) {
+		markSaved(note, NoteManager.ANY_VERSION);
+	}
+	/**
+	 * Remember the current content of the note as saved, with the version it was loaded in (see {@link NoteManager#getNoteVersion(int)}). The
+	 * next save fails if the note was changed concurrently.
+	 */
+	public synchronized void markSaved(Note note, long version) {
+		savedHashes.put(note.getId(), contentHash(note));
+		savedContents.put(note.getId(), PendingOperation.copyOf(note));
+		savedVersions.put(note.getId(), version);
+	}
+	
+	/**
+	 * The content of the note was changed. The note is saved after the delay, if it's not changed again.
+	 *
+	 * @param content
+	 *        A copy of the note with the changed content, that is applied to the note when it's saved.
+	 */
+	public synchronized void changed(Note note, Note content) {
+		PendingSave previous = pendingSaves.get(note.getId());
+		if (previous != null) {
+			previous.timer.cancel(false);
+		}
+		ScheduledFuture<?> saveTimer = timer.schedule(() -> saveExecutor.execute(() -> saveTimed(note.getId())), delay, TimeUnit.MILLISECONDS);
+		pendingSaves.put(note.getId(), new PendingSave(note, content, saveTimer));
+	}
+	
+	/**
+	 * Save the content of the note now (without waiting for the delay). Unsaved changes of the note are replaced by the content.
+	 *
+	 * @return A future that is completed when the note was saved.
+	 */
+	public synchronized CompletableFuture<Void> saveNow(Note note, Note content) {
+		PendingSave previous = pendingSaves.remove(note.getId());
+		if (previous != null) {
+			previous.timer.cancel(false);
+		}
+		return save(note, content);
+	}
+	
+	/**
+	 * Save all unsaved changes now (e.g. before the notes are reloaded or the application is closed).
+	 *
+	 * @return A future that is completed when all notes (including the saves that were already running) were saved.
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		List<CompletableFuture<Void>> saves = new ArrayList<CompletableFuture<Void>>();
+		for (PendingSave pendingSave : new ArrayList<PendingSave>(pendingSaves.values())) {
+			pendingSave.timer.cancel(false);
+			saves.add(save(pendingSave.note, pendingSave.content));
+		}
+		pendingSaves.clear();
+		saves.addAll(runningSaves.values());
+		return CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[saves.size()]));
+	}
+	
+	/**
+	 * Drop the unsaved changes of a note (e.g. because it was deleted).
+	 */
+	public synchronized void discard(int noteId) {
+		PendingSave pendingSave = pendingSaves.remove(noteId);
+		if (pendingSave != null) {
+			pendingSave.timer.cancel(false);
+		}
+		savedHashes.remove(noteId);
+		savedContents.remove(noteId);
+		savedVersions.remove(noteId);
+	}
+	
+	public synchronized boolean hasUnsavedChanges() {
+		return !pendingSaves.isEmpty();
+	}
+	
+	/**
+	 * Stop the timer. Unsaved changes have to be saved before (see {@link #flush()}).
+	 */
+	public void close() {
+		timer.shutdownNow();
+	}
+	
+	private synchronized void saveTimed(int noteId) {
+		PendingSave pendingSave = pendingSaves.remove(noteId);
+		if (pendingSave != null) {
+			save(pendingSave.note, pendingSave.content).whenComplete((v, throwable) -> {
+				if (throwable != null) {
+					errorHandler.accept(throwable);
+				}
+			});
+		}
+	}
+	
+	private CompletableFuture<Void> save(Note note, Note content) {
+		int noteId = note.getId();
+		long hash = contentHash(content);
+		Long savedHash = savedHashes.get(noteId);
+		if (savedHash != null && savedHash.longValue() == hash) {
+			LOGGER.debug("note {} was not changed since it was saved - not saving it", noteId);
+			return CompletableFuture.completedFuture(null);
+		}
+		Note savedContent = savedContents.get(noteId);
+		NotePatch patch = savedContent != null ? NotePatch.diff(savedContent, content) : null;
+		savedHashes.put(noteId, hash);
+		savedContents.put(noteId, PendingOperation.copyOf(content));
+		//the stored note is not changed here, but replaced by the saved copy (if it was not changed concurrently, see NoteManager)
+		Note saving = PendingOperation.copyOf(content);
+		saving.setId(noteId);
+		
+		//the note is sent after the previous save of the note (so the server receives the versions in order)
+		CompletableFuture<Void> previous = runningSaves.getOrDefault(noteId, CompletableFuture.completedFuture(null));
+		CompletableFuture<Void> saved = previous.handle((v, throwable) -> throwable == null).thenCompose(previousSaved -> {
+			LOGGER.debug("auto saving note {}", noteId);
+			//the patch is based on the previous version, so the whole note is sent if the previous version was not saved
+			return saveFunction.save(saving, previousSaved ? patch : null, getSavedVersion(noteId))
+					.thenAccept(version -> setSavedVersion(noteId, version));
+		});
+		runningSaves.put(noteId, saved);
+		saved.whenComplete((v, throwable) -> saveCompleted(noteId, hash, saved, throwable));
+		return saved;
+	}
+	
+	private synchronized long getSavedVersion(int noteId) {
+		return savedVersions.getOrDefault(noteId, NoteManager.ANY_VERSION);
+	}
+	private synchronized void setSavedVersion(int noteId, long version) {
+		//the note might have been discarded while it was saved
+		if (savedHashes.containsKey(noteId)) {
+			savedVersions.put(noteId, version);
+		}
+	}
+	
+	private synchronized void saveCompleted(int noteId, long hash, CompletableFuture<Void> saved, Throwable throwable) {
+		runningSaves.remove(noteId, saved);
+		if (throwable != null && savedHashes.remove(noteId, hash)) {
+			//the content is saved again (completely) with the next change
+			savedContents.remove(noteId);
+			//the user was informed about the failed save (or the conflict), so the next change overwrites the note
+			savedVersions.remove(noteId);
+		}
+	}
+	
+	/**
+	 * A 64 bit hash (FNV-1a) of the content of a note (without the id).
+	 */
+	public static long contentHash(Note note) {
+		long hash = 0xcbf29ce484222325L;
+		hash = hash(hash, note.getHeadline());
+		hash = hash(hash, note.getNoteText());
+		hash = hash(hash, note.getPriority());
+		hash = hash(hash, note.getExecutionDates());
+		hash = hash(hash, note.getReminderDates());
+		return hash;
+	}
+	
+	private static long hash(long hash, String text) {
+		if (text == null) {
+			return hash(hash, -1);
+		}
+		for (int i = 0; i < text.length(); i++) {
+			hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+		}
+		//the length separates the texts (so moving characters from one text to the other changes the hash)
+		return hash(hash, text.length());
+	}
+	private static long hash(long hash, int value) {
+		for (int i = 0; i < 4; i++) {
+			hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+	private static long hash(long hash, List<LocalDateTime> dates) {
+		if (dates == null) {
+			return hash(hash, -1);
+		}
+		for (LocalDateTime date : dates) {
+			hash = hash(hash, date == null ? "" : date.toString());
+		}
+		return hash(hash, dates.size());
+	}
+}
\ No newline at end of file
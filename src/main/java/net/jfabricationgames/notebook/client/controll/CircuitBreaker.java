@@ -0,0 +1,121 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fails the requests to a host fast while the host seems to be down: after a number of consecutive failed requests the breaker is opened and no
+ * requests are sent to the host for a while. After that time a single trial request is let through (half open), that closes the breaker again if
+ * it succeeds.
+ */
+public class CircuitBreaker {
+	
+	private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+	
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN;
+	}
+	
+	private final String name;
+	private final int failureThreshold;
+	private final long openTime;
+	//the time in milliseconds (can be replaced to test the breaker)
+	private final LongSupplier clock;
+	
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialRunning;
+	
+	/**
+	 * @param name
+	 *        Identifies the breaker in the log (e.g. the host).
+	 *
+	 * @param failureThreshold
+	 *        The number of consecutive failures after which the breaker is opened (0 to never open it).
+	 *
+	 * @param openTime
+	 *        The time (in milliseconds) the breaker stays open before a trial request is let through.
+	 */
+	public CircuitBreaker(String name, int failureThreshold, long openTime) {
+		this(name, failureThreshold, openTime, System::currentTimeMillis);
+	}
+	
+	public CircuitBreaker(String name, int failureThreshold, long openTime, LongSupplier clock) {
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+		this.clock = clock;
+	}
+	
+	/**
+	 * Check whether a request can be sent. If the breaker is half open only the first caller gets the permission (the trial request), so the
+	 * result has to be reported with {@link #recordSuccess()} or {@link #recordFailure()}.
+	 */
+	public synchronized boolean allowRequest() {
+		switch (state) {
+			case CLOSED:
+				return true;
+			case OPEN:
+				if (clock.getAsLong() - openedAt < openTime) {
+					return false;
+				}
+				LOGGER.info("Circuit breaker of {} is half open; sending a trial request", name);
+				state = State.HALF_OPEN;
+				trialRunning = true;
+				return true;
+			case HALF_OPEN:
+				if (trialRunning) {
+					return false;
+				}
+				trialRunning = true;
+				return true;
+			default:
+				throw new IllegalStateException("Unknown state: " + state);
+		}
+	}
+	
+	/**
+	 * Whether the breaker would reject requests at the moment (without starting a trial request).
+	 */
+	public synchronized boolean isRejecting() {
+		return (state == State.OPEN && clock.getAsLong() - openedAt < openTime) || (state == State.HALF_OPEN && trialRunning);
+	}
+	
+	public synchronized void recordSuccess() {
+		if (state != State.CLOSED) {
+			LOGGER.info("Circuit breaker of {} is closed again", name);
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		trialRunning = false;
+	}
+	
+	public synchronized void recordFailure() {
+		consecutiveFailures++;
+		trialRunning = false;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+			LOGGER.warn("Circuit breaker of {} is opened after {} failed requests (no requests are sent for {}ms)", name, consecutiveFailures, openTime);
+			state = State.OPEN;
+			openedAt = clock.getAsLong();
+		}
+	}
+	
+	/**
+	 * The request that was allowed was not sent (e.g. because the executor rejected it), so the trial request of a half open breaker can be sent
+	 * again.
+	 */
+	public synchronized void recordNotSent() {
+		trialRunning = false;
+	}
+	
+	public synchronized State getState() {
+		return state;
+	}
+	
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+}
\ No newline at end of file
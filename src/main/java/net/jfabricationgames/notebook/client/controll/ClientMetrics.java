@@ -0,0 +1,194 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The metrics of the requests of a {@link JsonRpcTransport}: the number of requests, the latency histograms and the payload sizes per JSON-RPC
+ * method, the errors by exception type and the state of the connection pool.
+ *
+ * The metrics can be watched via JMX (see {@link #registerMBean(String)}) and reported periodically to the log or a CSV file (see
+ * {@link MetricsReporter}). Recording is thread safe and doesn't lock.
+ */
+public class ClientMetrics implements ClientMetricsMXBean {
+	
+	private static final Logger LOGGER = LogManager.getLogger(ClientMetrics.class);
+	
+	public static final String JMX_DOMAIN = "net.jfabricationgames.notebook.client";
+	/**
+	 * The method name under which batch requests are recorded.
+	 */
+	public static final String BATCH = "batch";
+	
+	//makes the JMX names of several transports to the same host unique
+	private static final AtomicInteger INSTANCES = new AtomicInteger(1);
+	
+	private final ConnPoolControl<?> connectionPool;
+	private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<String, MethodMetrics>();
+	private final ConcurrentMap<String, LongAdder> errorsByType = new ConcurrentHashMap<String, LongAdder>();
+	
+	private ObjectName objectName;
+	
+	private static class MethodMetrics {
+		
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder requestBytes = new LongAdder();
+		private final LongAdder responseBytes = new LongAdder();
+	}
+	
+	/**
+	 * @param connectionPool
+	 *        The connection pool of the transport (or null if there is none).
+	 */
+	public ClientMetrics(ConnPoolControl<?> connectionPool) {
+		this.connectionPool = connectionPool;
+	}
+	
+	/**
+	 * Record a successful request.
+	 *
+	 * @param nanos
+	 *        The time from the start of the request to the parsed response.
+	 */
+	public void recordRequest(String method, long nanos, long requestBytes, long responseBytes) {
+		MethodMetrics metrics = getMethodMetrics(method);
+		metrics.latencies.record(nanos);
+		metrics.requestBytes.add(requestBytes);
+		metrics.responseBytes.add(responseBytes);
+	}
+	
+	/**
+	 * Record a failed request.
+	 */
+	public void recordError(String method, long nanos, Throwable throwable) {
+		MethodMetrics metrics = getMethodMetrics(method);
+		metrics.latencies.record(nanos);
+		metrics.errors.increment();
+		String type = AsyncNoteClient.unwrap(throwable).getClass().getSimpleName();
+		errorsByType.computeIfAbsent(type, t -> new LongAdder()).increment();
+	}
+	
+	private MethodMetrics getMethodMetrics(String method) {
+		return methods.computeIfAbsent(method == null ? "unknown" : method, m -> new MethodMetrics());
+	}
+	
+	/**
+	 * Register the metrics at the platform's MBean server (the name is used to identify the transport, e.g. the host).
+	 */
+	public synchronized void registerMBean(String name) {
+		if (objectName != null) {
+			return;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName newName = new ObjectName(
+					JMX_DOMAIN + ":type=ClientMetrics,name=" + ObjectName.quote(name) + ",id=" + INSTANCES.getAndIncrement());
+			server.registerMBean(this, newName);
+			objectName = newName;
+			LOGGER.debug("Registered client metrics as MBean {}", objectName);
+		}
+		catch (JMException e) {
+			LOGGER.warn("The client metrics couldn't be registered via JMX", e);
+		}
+	}
+	public synchronized void unregisterMBean() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+		catch (JMException e) {
+			LOGGER.warn("The client metrics couldn't be unregistered from JMX", e);
+		}
+		objectName = null;
+	}
+	
+	@Override
+	public long getRequests() {
+		long requests = 0;
+		for (MethodMetrics metrics : methods.values()) {
+			requests += metrics.latencies.getCount();
+		}
+		return requests;
+	}
+	@Override
+	public long getErrors() {
+		long errors = 0;
+		for (MethodMetrics metrics : methods.values()) {
+			errors += metrics.errors.sum();
+		}
+		return errors;
+	}
+	
+	@Override
+	public List<MethodStatistics> getMethodStatistics() {
+		List<MethodStatistics> statistics = new ArrayList<MethodStatistics>(methods.size());
+		for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+			MethodMetrics metrics = entry.getValue();
+			LatencyHistogram latencies = metrics.latencies;
+			statistics.add(new MethodStatistics(entry.getKey(), latencies.getCount(), metrics.errors.sum(), latencies.getMeanMillis(),
+					latencies.getPercentileMillis(0.5), latencies.getPercentileMillis(0.99), latencies.getMaxMillis(), metrics.requestBytes.sum(),
+					metrics.responseBytes.sum()));
+		}
+		statistics.sort(Comparator.comparing(MethodStatistics::getMethod));
+		return statistics;
+	}
+	
+	@Override
+	public Map<String, Long> getErrorsByType() {
+		Map<String, Long> errors = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : errorsByType.entrySet()) {
+			errors.put(entry.getKey(), entry.getValue().sum());
+		}
+		return errors;
+	}
+	
+	@Override
+	public int getLeasedConnections() {
+		return getPoolStats().getLeased();
+	}
+	@Override
+	public int getAvailableConnections() {
+		return getPoolStats().getAvailable();
+	}
+	@Override
+	public int getPendingConnections() {
+		return getPoolStats().getPending();
+	}
+	@Override
+	public int getMaxConnections() {
+		return getPoolStats().getMax();
+	}
+	
+	/**
+	 * The state of the connection pool (all values are 0 if the transport has no pool).
+	 */
+	public PoolStats getPoolStats() {
+		return connectionPool != null ? connectionPool.getTotalStats() : new PoolStats(0, 0, 0, 0);
+	}
+	
+	@Override
+	public void reset() {
+		methods.clear();
+		errorsByType.clear();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JMX interface of the {@link ClientMetrics} (e.g. to watch the client with JConsole or VisualVM).
+ */
+public interface ClientMetricsMXBean {
+	
+	public long getRequests();
+	public long getErrors();
+	
+	/**
+	 * The metrics of every JSON-RPC method that was called (batches are counted as method "batch").
+	 */
+	public List<MethodStatistics> getMethodStatistics();
+	
+	/**
+	 * The number of failed requests by the type of the exception.
+	 */
+	public Map<String, Long> getErrorsByType();
+	
+	public int getLeasedConnections();
+	public int getAvailableConnections();
+	public int getPendingConnections();
+	public int getMaxConnections();
+	
+	/**
+	 * Drop all recorded metrics.
+	 */
+	public void reset();
+}
\ No newline at end of file
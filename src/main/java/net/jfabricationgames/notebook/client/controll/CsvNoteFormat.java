@@ -0,0 +1,305 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.jfabricationgames.notebook.client.error.NoteBookFormatException;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * The CSV format of the note files (see {@link NoteFileFormat#CSV}). The columns are found by the names in the header line, so their order
+ * doesn't matter and unknown columns are ignored.
+ */
+final class CsvNoteFormat {
+	
+	private static final String ID = "id";
+	private static final String HEADLINE = "headline";
+	private static final String NOTE_TEXT = "noteText";
+	private static final String PRIORITY = "priority";
+	private static final String EXECUTION_DATES = "executionDates";
+	private static final String REMINDER_DATES = "reminderDates";
+	
+	private static final String[] COLUMNS = {ID, HEADLINE, NOTE_TEXT, PRIORITY, EXECUTION_DATES, REMINDER_DATES};
+	private static final String DATE_SEPARATOR = ";";
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+	//written by some spreadsheet programs at the start of UTF-8 files
+	private static final String BYTE_ORDER_MARK = "\uFEFF";
+	
+	/**
+	 * The maximum length of a record in characters (an unterminated quote would read the rest of the file into memory otherwise). Longer records
+	 * are skipped when they are read and can't be written.
+	 */
+	public static final int MAX_RECORD_LENGTH = 1 << 24;
+	
+	private CsvNoteFormat() {}
+	
+	static class Input implements NoteFileFormat.NoteInput {
+		
+		private final BufferedReader reader;
+		private int lineNumber;
+		//the indices of the columns in the records (-1 if the column is missing)
+		private final int[] columnIndices = new int[COLUMNS.length];
+		
+		Input(BufferedReader reader) throws IOException {
+			this.reader = reader;
+			List<String> header;
+			try {
+				header = readRecord();
+			}
+			catch (NoteBookFormatException e) {
+				throw new IOException("The header couldn't be read", e);
+			}
+			if (header != null && !header.isEmpty() && header.get(0).startsWith(BYTE_ORDER_MARK)) {
+				header.set(0, header.get(0).substring(BYTE_ORDER_MARK.length()));
+			}
+			if (header == null || !header.contains(HEADLINE)) {
+				throw new IOException("The file has no header line with a '" + HEADLINE + "' column");
+			}
+			for (int i = 0; i < COLUMNS.length; i++) {
+				columnIndices[i] = header.indexOf(COLUMNS[i]);
+			}
+		}
+		
+		@Override
+		public Note read() throws IOException, NoteBookFormatException {
+			List<String> record;
+			do {
+				record = readRecord();
+				if (record == null) {
+					return null;
+				}
+			} while (record.size() == 1 && record.get(0).isEmpty());
+			
+			Note note = new Note();
+			String id = field(record, ID);
+			if (!id.isEmpty()) {
+				note.setId(parseInt(id, ID));
+			}
+			note.setHeadline(field(record, HEADLINE));
+			note.setNoteText(field(record, NOTE_TEXT));
+			String priority = field(record, PRIORITY);
+			if (!priority.isEmpty()) {
+				note.setPriority(parseInt(priority, PRIORITY));
+			}
+			note.setExecutionDates(parseDates(field(record, EXECUTION_DATES), EXECUTION_DATES));
+			note.setReminderDates(parseDates(field(record, REMINDER_DATES), REMINDER_DATES));
+			return note;
+		}
+		
+		private String field(List<String> record, String column) {
+			for (int i = 0; i < COLUMNS.length; i++) {
+				if (COLUMNS[i].equals(column)) {
+					int index = columnIndices[i];
+					return index >= 0 && index < record.size() ? record.get(index) : "";
+				}
+			}
+			throw new IllegalArgumentException("Unknown column: " + column);
+		}
+		
+		private int parseInt(String value, String column) throws NoteBookFormatException {
+			try {
+				return Integer.parseInt(value.trim());
+			}
+			catch (NumberFormatException nfe) {
+				throw new NoteBookFormatException(lineNumber, "The " + column + " is no number: " + value, nfe);
+			}
+		}
+		
+		private List<LocalDateTime> parseDates(String value, String column) throws NoteBookFormatException {
+			if (value.trim().isEmpty()) {
+				return null;
+			}
+			List<LocalDateTime> dates = new ArrayList<LocalDateTime>();
+			for (String date : value.split(DATE_SEPARATOR)) {
+				if (!date.trim().isEmpty()) {
+					try {
+						dates.add(LocalDateTime.parse(date.trim(), DATE_FORMAT));
+					}
+					catch (DateTimeParseException e) {
+						throw new NoteBookFormatException(lineNumber, "The " + column + " contain an invalid date: " + date, e);
+					}
+				}
+			}
+			return dates;
+		}
+		
+		/**
+		 * Read the fields of the next record (or null at the end of the file). Quoted fields can contain separators, line breaks and (doubled)
+		 * quotes.
+		 */
+		private List<String> readRecord() throws IOException, NoteBookFormatException {
+			int c = reader.read();
+			if (c == -1) {
+				return null;
+			}
+			lineNumber++;
+			int startLine = lineNumber;
+			List<String> fields = new ArrayList<String>();
+			StringBuilder field = new StringBuilder();
+			int length = 0;
+			boolean quoted = false;
+			while (true) {
+				if (c == -1) {
+					if (quoted) {
+						throw new NoteBookFormatException(startLine, "The record ends in a quoted field");
+					}
+					return endRecord(fields, field, length, startLine);
+				}
+				if (length > MAX_RECORD_LENGTH || ++length > MAX_RECORD_LENGTH) {
+					//the rest of the record is only parsed to find it's end (so the next record can be read)
+					fields.clear();
+					field.setLength(0);
+				}
+				char ch = (char) c;
+				if (quoted) {
+					if (ch == '"') {
+						c = reader.read();
+						if (c != '"') {
+							//the end of the quoted part (the next character is handled as unquoted)
+							quoted = false;
+							continue;
+						}
+					}
+					else if (ch == '\n') {
+						lineNumber++;
+					}
+					field.append(ch);
+				}
+				else if (ch == '"' && field.length() == 0) {
+					quoted = true;
+				}
+				else if (ch == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				}
+				else if (ch == '\n') {
+					return endRecord(fields, field, length, startLine);
+				}
+				else if (ch != '\r') {
+					field.append(ch);
+				}
+				c = reader.read();
+			}
+		}
+		
+		private List<String> endRecord(List<String> fields, StringBuilder field, int length, int startLine) throws NoteBookFormatException {
+			if (length > MAX_RECORD_LENGTH) {
+				throw new NoteBookFormatException(startLine, "The record is longer than " + MAX_RECORD_LENGTH + " characters");
+			}
+			fields.add(field.toString());
+			return fields;
+		}
+		
+		@Override
+		public int getLineNumber() {
+			return lineNumber;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+	
+	static class Output implements NoteFileFormat.NoteOutput {
+		
+		private final BufferedWriter writer;
+		
+		Output(BufferedWriter writer) throws IOException {
+			this.writer = writer;
+			writeRecord(COLUMNS);
+		}
+		
+		@Override
+		public void write(Note note) throws IOException {
+			writeRecord(new String[] {Integer.toString(note.getId()), note.getHeadline(), note.getNoteText(), Integer.toString(note.getPriority()),
+					formatDates(note.getExecutionDates()), formatDates(note.getReminderDates())});
+		}
+		
+		private void writeRecord(String[] fields) throws IOException {
+			//a file that can't be imported again is not written
+			if (getRecordLength(fields) > MAX_RECORD_LENGTH) {
+				throw new IOException("The record of note " + fields[0] + " is longer than " + MAX_RECORD_LENGTH + " characters");
+			}
+			for (int i = 0; i < fields.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writeField(fields[i]);
+			}
+			writer.write("\r\n");
+		}
+		
+		/**
+		 * The number of characters of the written record (like they are counted when the record is read).
+		 */
+		private static long getRecordLength(String[] fields) {
+			//the separators and the line break
+			long length = fields.length + 1;
+			for (String field : fields) {
+				if (field != null) {
+					length += field.length();
+					if (needsQuotes(field)) {
+						length += 2 + field.chars().filter(ch -> ch == '"').count();
+					}
+				}
+			}
+			return length;
+		}
+		
+		private static boolean needsQuotes(String field) {
+			for (int i = 0; i < field.length(); i++) {
+				char ch = field.charAt(i);
+				if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private void writeField(String field) throws IOException {
+			if (field == null) {
+				return;
+			}
+			if (!needsQuotes(field)) {
+				writer.write(field);
+				return;
+			}
+			writer.write('"');
+			writer.write(field.replace("\"", "\"\""));
+			writer.write('"');
+		}
+		
+		private static String formatDates(List<LocalDateTime> dates) {
+			if (dates == null || dates.isEmpty()) {
+				return "";
+			}
+			StringBuilder formatted = new StringBuilder();
+			for (LocalDateTime date : dates) {
+				if (date != null) {
+					if (formatted.length() > 0) {
+						formatted.append(DATE_SEPARATOR);
+					}
+					formatted.append(DATE_FORMAT.format(date));
+				}
+			}
+			return formatted.toString();
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+	}
+}
\ No newline at end of file
@@ -2,6 +2,10 @@ package net.jfabricationgames.notebook.client.controll;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.logging.log4j.LogManager;
@@ -16,11 +20,96 @@ public class HostConfiguration {
 	private String hostUrl;
 	private int hostPort;
 	private String hostResourcePath;
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	private long connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int asyncThreads = DEFAULT_ASYNC_THREADS;
+	private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+	private WireFormat wireFormat = DEFAULT_WIRE_FORMAT;
+	private boolean requestCompression = DEFAULT_REQUEST_COMPRESSION;
+	private boolean responseCompression = DEFAULT_RESPONSE_COMPRESSION;
+	private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+	private boolean metricsJmx = DEFAULT_METRICS_JMX;
+	private int metricsReportInterval = DEFAULT_METRICS_REPORT_INTERVAL;
+	private Path metricsCsvFile;
+	private int logPayloadMaxLength = DEFAULT_LOG_PAYLOAD_MAX_LENGTH;
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private int readTimeout = DEFAULT_READ_TIMEOUT;
+	private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+	private List<String> failoverHosts = new ArrayList<String>();
+	private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+	private int circuitBreakerOpenTime = DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+	private int readRetries = DEFAULT_READ_RETRIES;
+	private int hedgeDelay = DEFAULT_HEDGE_DELAY;
+	private int healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+	private int selectorCacheSize = DEFAULT_SELECTOR_CACHE_SIZE;
+	private int selectorCacheTimeToLive = DEFAULT_SELECTOR_CACHE_TIME_TO_LIVE;
+	private String notificationPath = DEFAULT_NOTIFICATION_PATH;
+	private int pollInterval = DEFAULT_POLL_INTERVAL;
+	private int notificationRetryInterval = DEFAULT_NOTIFICATION_RETRY_INTERVAL;
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 10;
+	public static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 30000;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+	public static final int DEFAULT_ASYNC_THREADS = 4;
+	public static final int DEFAULT_ASYNC_QUEUE_SIZE = 100;
+	public static final WireFormat DEFAULT_WIRE_FORMAT = WireFormat.JSON;
+	//the host has to be able to decode compressed requests, so they are only compressed if it's configured
+	public static final boolean DEFAULT_REQUEST_COMPRESSION = false;
+	public static final boolean DEFAULT_RESPONSE_COMPRESSION = true;
+	public static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+	public static final boolean DEFAULT_METRICS_JMX = true;
+	//the metrics are not reported periodically by default
+	public static final int DEFAULT_METRICS_REPORT_INTERVAL = 0;
+	public static final int DEFAULT_LOG_PAYLOAD_MAX_LENGTH = LogPayload.DEFAULT_MAX_LENGTH;
+	public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+	public static final int DEFAULT_REQUEST_TIMEOUT = 60000;
+	public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+	public static final int DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 30000;
+	public static final int DEFAULT_READ_RETRIES = 1;
+	//hedged requests load the host twice, so they are only sent if it's configured
+	public static final int DEFAULT_HEDGE_DELAY = 0;
+	public static final int DEFAULT_HEALTH_CHECK_INTERVAL = 30;
+	public static final int DEFAULT_SELECTOR_CACHE_SIZE = 32;
+	//the changes of other clients are not seen while a result is cached
+	public static final int DEFAULT_SELECTOR_CACHE_TIME_TO_LIVE = 10000;
+	//relative to the resource path
+	public static final String DEFAULT_NOTIFICATION_PATH = "events";
+	public static final int DEFAULT_POLL_INTERVAL = 30;
+	public static final int DEFAULT_NOTIFICATION_RETRY_INTERVAL = 300;
 
 	public static final String RESOURCE_FILE = "hosts.properties";
 	public static final String URL_IDENT = "HOST_URL";
 	public static final String PORT_IDENT = "HOST_PORT";
 	public static final String RESOURCE_PATH_IDENT = "HOST_RESOURCE_PATH";
+	public static final String MAX_CONNECTIONS_IDENT = "MAX_CONNECTIONS";
+	public static final String CONNECTION_IDLE_TIMEOUT_IDENT = "CONNECTION_IDLE_TIMEOUT_MS";
+	public static final String MAX_BATCH_SIZE_IDENT = "MAX_BATCH_SIZE";
+	public static final String ASYNC_THREADS_IDENT = "ASYNC_THREADS";
+	public static final String ASYNC_QUEUE_SIZE_IDENT = "ASYNC_QUEUE_SIZE";
+	public static final String WIRE_FORMAT_IDENT = "WIRE_FORMAT";
+	public static final String REQUEST_COMPRESSION_IDENT = "REQUEST_COMPRESSION";
+	public static final String RESPONSE_COMPRESSION_IDENT = "RESPONSE_COMPRESSION";
+	public static final String COMPRESSION_MIN_SIZE_IDENT = "COMPRESSION_MIN_SIZE";
+	public static final String METRICS_JMX_IDENT = "METRICS_JMX";
+	public static final String METRICS_REPORT_INTERVAL_IDENT = "METRICS_REPORT_INTERVAL_S";
+	public static final String METRICS_CSV_FILE_IDENT = "METRICS_CSV_FILE";
+	public static final String LOG_PAYLOAD_MAX_LENGTH_IDENT = "LOG_PAYLOAD_MAX_LENGTH";
+	public static final String CONNECT_TIMEOUT_IDENT = "CONNECT_TIMEOUT_MS";
+	public static final String READ_TIMEOUT_IDENT = "READ_TIMEOUT_MS";
+	public static final String REQUEST_TIMEOUT_IDENT = "REQUEST_TIMEOUT_MS";
+	public static final String FAILOVER_HOSTS_IDENT = "FAILOVER_HOSTS";
+	public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD_IDENT = "CIRCUIT_BREAKER_FAILURE_THRESHOLD";
+	public static final String CIRCUIT_BREAKER_OPEN_TIME_IDENT = "CIRCUIT_BREAKER_OPEN_TIME_MS";
+	public static final String READ_RETRIES_IDENT = "READ_RETRIES";
+	public static final String HEDGE_DELAY_IDENT = "HEDGE_DELAY_MS";
+	public static final String HEALTH_CHECK_INTERVAL_IDENT = "HEALTH_CHECK_INTERVAL_S";
+	public static final String SELECTOR_CACHE_SIZE_IDENT = "SELECTOR_CACHE_SIZE";
+	public static final String SELECTOR_CACHE_TIME_TO_LIVE_IDENT = "SELECTOR_CACHE_TTL_MS";
+	public static final String NOTIFICATION_PATH_IDENT = "NOTIFICATION_PATH";
+	public static final String POLL_INTERVAL_IDENT = "POLL_INTERVAL_S";
+	public static final String NOTIFICATION_RETRY_INTERVAL_IDENT = "NOTIFICATION_RETRY_INTERVAL_S";
 
 	private HostConfiguration() {
 		try {
@@ -34,6 +123,15 @@ public class HostConfiguration {
 		}
 	}
 
+	/**
+	 * A configuration for another host than the configured one (e.g. a local test server). The optional settings have their default values.
+	 */
+	public HostConfiguration(String hostUrl, int hostPort, String hostResourcePath) {
+		this.hostUrl = hostUrl;
+		this.hostPort = hostPort;
+		this.hostResourcePath = hostResourcePath;
+	}
+
 	public static synchronized HostConfiguration getInstance() {
 		if (instance == null) {
 			instance = new HostConfiguration();
@@ -52,6 +150,55 @@ public class HostConfiguration {
 				hostUrl = urlProperties.getProperty(URL_IDENT);
 				hostPortString = urlProperties.getProperty(PORT_IDENT);
 				hostResourcePath = urlProperties.getProperty(RESOURCE_PATH_IDENT);
+
+				//optional connection pool settings (the defaults are used if they are not set)
+				maxConnections = parseOptionalInt(urlProperties, MAX_CONNECTIONS_IDENT, DEFAULT_MAX_CONNECTIONS, 1);
+				connectionIdleTimeout = parseOptionalInt(urlProperties, CONNECTION_IDLE_TIMEOUT_IDENT,
+						(int) DEFAULT_CONNECTION_IDLE_TIMEOUT, 1);
+				maxBatchSize = parseOptionalInt(urlProperties, MAX_BATCH_SIZE_IDENT, DEFAULT_MAX_BATCH_SIZE, 1);
+				asyncThreads = parseOptionalInt(urlProperties, ASYNC_THREADS_IDENT, DEFAULT_ASYNC_THREADS, 1);
+				asyncQueueSize = parseOptionalInt(urlProperties, ASYNC_QUEUE_SIZE_IDENT, DEFAULT_ASYNC_QUEUE_SIZE, 1);
+
+				//optional encoding settings
+				wireFormat = parseOptionalWireFormat(urlProperties);
+				requestCompression = parseOptionalBoolean(urlProperties, REQUEST_COMPRESSION_IDENT, DEFAULT_REQUEST_COMPRESSION);
+				responseCompression = parseOptionalBoolean(urlProperties, RESPONSE_COMPRESSION_IDENT, DEFAULT_RESPONSE_COMPRESSION);
+				compressionMinSize = parseOptionalInt(urlProperties, COMPRESSION_MIN_SIZE_IDENT, DEFAULT_COMPRESSION_MIN_SIZE, 0);
+
+				//optional metrics settings
+				metricsJmx = parseOptionalBoolean(urlProperties, METRICS_JMX_IDENT, DEFAULT_METRICS_JMX);
+				metricsReportInterval = parseOptionalInt(urlProperties, METRICS_REPORT_INTERVAL_IDENT, DEFAULT_METRICS_REPORT_INTERVAL, 0);
+				String csvFile = urlProperties.getProperty(METRICS_CSV_FILE_IDENT);
+				if (csvFile != null && !csvFile.trim().equals("")) {
+					metricsCsvFile = Paths.get(csvFile.trim());
+				}
+
+				//optional logging settings
+				logPayloadMaxLength = parseOptionalInt(urlProperties, LOG_PAYLOAD_MAX_LENGTH_IDENT, DEFAULT_LOG_PAYLOAD_MAX_LENGTH, 0);
+
+				//optional resilience settings (timeouts, failover hosts, circuit breakers and retries of read requests)
+				connectTimeout = parseOptionalInt(urlProperties, CONNECT_TIMEOUT_IDENT, DEFAULT_CONNECT_TIMEOUT, 0);
+				readTimeout = parseOptionalInt(urlProperties, READ_TIMEOUT_IDENT, DEFAULT_READ_TIMEOUT, 0);
+				requestTimeout = parseOptionalInt(urlProperties, REQUEST_TIMEOUT_IDENT, DEFAULT_REQUEST_TIMEOUT, 0);
+				failoverHosts = parseOptionalHosts(urlProperties, FAILOVER_HOSTS_IDENT);
+				circuitBreakerFailureThreshold = parseOptionalInt(urlProperties, CIRCUIT_BREAKER_FAILURE_THRESHOLD_IDENT,
+						DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD, 0);
+				circuitBreakerOpenTime = parseOptionalInt(urlProperties, CIRCUIT_BREAKER_OPEN_TIME_IDENT,
+						DEFAULT_CIRCUIT_BREAKER_OPEN_TIME, 0);
+				readRetries = parseOptionalInt(urlProperties, READ_RETRIES_IDENT, DEFAULT_READ_RETRIES, 0);
+				hedgeDelay = parseOptionalInt(urlProperties, HEDGE_DELAY_IDENT, DEFAULT_HEDGE_DELAY, 0);
+				healthCheckInterval = parseOptionalInt(urlProperties, HEALTH_CHECK_INTERVAL_IDENT, DEFAULT_HEALTH_CHECK_INTERVAL, 0);
+
+				//optional cache of the get_notes results
+				selectorCacheSize = parseOptionalInt(urlProperties, SELECTOR_CACHE_SIZE_IDENT, DEFAULT_SELECTOR_CACHE_SIZE, 0);
+				selectorCacheTimeToLive = parseOptionalInt(urlProperties, SELECTOR_CACHE_TIME_TO_LIVE_IDENT,
+						DEFAULT_SELECTOR_CACHE_TIME_TO_LIVE, 0);
+
+				//optional change notifications (an empty path disables them, so the changes are only polled)
+				notificationPath = urlProperties.getProperty(NOTIFICATION_PATH_IDENT, DEFAULT_NOTIFICATION_PATH).trim();
+				pollInterval = parseOptionalInt(urlProperties, POLL_INTERVAL_IDENT, DEFAULT_POLL_INTERVAL, 0);
+				notificationRetryInterval = parseOptionalInt(urlProperties, NOTIFICATION_RETRY_INTERVAL_IDENT,
+						DEFAULT_NOTIFICATION_RETRY_INTERVAL, 0);
 			}
 		}
 
@@ -64,8 +211,71 @@ public class HostConfiguration {
 		} catch (NumberFormatException nfe) {
 			throw new IOException("No host port could be loaded (port couldn't be parsed as int)", nfe);
 		}
-		LOGGER.info("Configuration loaded: host: " + hostUrl + " port: " + hostPort + " resource path: "
-				+ hostResourcePath);
+		LOGGER.info("Configuration loaded: host: {} port: {} resource path: {} max connections: {} idle timeout: {}ms wire format: {} "
+				+ "request compression: {} response compression: {} failover hosts: {} connect timeout: {}ms read timeout: {}ms", hostUrl, hostPort,
+				hostResourcePath, maxConnections, connectionIdleTimeout, wireFormat, requestCompression, responseCompression, failoverHosts,
+				connectTimeout, readTimeout);
+	}
+
+	/**
+	 * Parse an optional int property, that must not be smaller than the minimum value (the default is used otherwise, e.g. because 0 would
+	 * break the thread pool or the timer of the transport).
+	 */
+	private int parseOptionalInt(Properties properties, String ident, int defaultValue, int minValue) {
+		String value = properties.getProperty(ident);
+		if (value == null || value.equals("")) {
+			return defaultValue;
+		}
+		int parsed;
+		try {
+			parsed = Integer.parseInt(value.trim());
+		} catch (NumberFormatException nfe) {
+			LOGGER.warn("Property {} couldn't be parsed as int (using default: {})", ident, defaultValue, nfe);
+			return defaultValue;
+		}
+		if (parsed < minValue) {
+			LOGGER.warn("Property {} must be at least {}, but is {} (using default: {})", ident, minValue, parsed, defaultValue);
+			return defaultValue;
+		}
+		return parsed;
+	}
+
+	private boolean parseOptionalBoolean(Properties properties, String ident, boolean defaultValue) {
+		String value = properties.getProperty(ident);
+		if (value == null || value.equals("")) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Parse a comma separated list of hosts (<code>host:port</code>, or only <code>host</code> to use the port of the primary host).
+	 */
+	private List<String> parseOptionalHosts(Properties properties, String ident) {
+		List<String> hosts = new ArrayList<String>();
+		String value = properties.getProperty(ident);
+		if (value == null) {
+			return hosts;
+		}
+		for (String host : value.split(",")) {
+			if (!host.trim().equals("")) {
+				hosts.add(host.trim());
+			}
+		}
+		return hosts;
+	}
+
+	private WireFormat parseOptionalWireFormat(Properties properties) {
+		String value = properties.getProperty(WIRE_FORMAT_IDENT);
+		if (value == null || value.equals("")) {
+			return DEFAULT_WIRE_FORMAT;
+		}
+		try {
+			return WireFormat.forName(value);
+		} catch (IllegalArgumentException iae) {
+			LOGGER.warn("Property {} is no known wire format (using default: {})", WIRE_FORMAT_IDENT, DEFAULT_WIRE_FORMAT, iae);
+			return DEFAULT_WIRE_FORMAT;
+		}
 	}
 
 	public String getHostUrlWithPort() {
@@ -73,6 +283,18 @@ public class HostConfiguration {
 		return urlWithPort;
 	}
 
+	/**
+	 * The URLs of the primary host and the failover hosts (in the configured order).
+	 */
+	public List<String> getHostUrlsWithPort() {
+		List<String> urls = new ArrayList<String>(failoverHosts.size() + 1);
+		urls.add(getHostUrlWithPort());
+		for (String host : failoverHosts) {
+			urls.add("http://" + (host.contains(":") ? host : host + ":" + hostPort));
+		}
+		return urls;
+	}
+
 	public String getHostUrl() {
 		return hostUrl;
 	}
@@ -96,4 +318,274 @@ public class HostConfiguration {
 	public void setHostResourcePath(String hostResourcePath) {
 		this.hostResourcePath = hostResourcePath;
 	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public long getConnectionIdleTimeout() {
+		return connectionIdleTimeout;
+	}
+
+	public void setConnectionIdleTimeout(long connectionIdleTimeout) {
+		this.connectionIdleTimeout = connectionIdleTimeout;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public int getAsyncThreads() {
+		return asyncThreads;
+	}
+
+	public void setAsyncThreads(int asyncThreads) {
+		this.asyncThreads = asyncThreads;
+	}
+
+	public int getAsyncQueueSize() {
+		return asyncQueueSize;
+	}
+
+	public void setAsyncQueueSize(int asyncQueueSize) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	public WireFormat getWireFormat() {
+		return wireFormat;
+	}
+
+	public void setWireFormat(WireFormat wireFormat) {
+		this.wireFormat = wireFormat;
+	}
+
+	public boolean isRequestCompression() {
+		return requestCompression;
+	}
+
+	public void setRequestCompression(boolean requestCompression) {
+		this.requestCompression = requestCompression;
+	}
+
+	public boolean isResponseCompression() {
+		return responseCompression;
+	}
+
+	public void setResponseCompression(boolean responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+
+	public int getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	public void setCompressionMinSize(int compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	public boolean isMetricsJmx() {
+		return metricsJmx;
+	}
+
+	public void setMetricsJmx(boolean metricsJmx) {
+		this.metricsJmx = metricsJmx;
+	}
+
+	/**
+	 * The interval (in seconds) in which the metrics are reported (0 if they are not reported).
+	 */
+	public int getMetricsReportInterval() {
+		return metricsReportInterval;
+	}
+
+	public void setMetricsReportInterval(int metricsReportInterval) {
+		this.metricsReportInterval = metricsReportInterval;
+	}
+
+	/**
+	 * The CSV file to which the metrics are reported (or null if they are only reported to the log).
+	 */
+	public Path getMetricsCsvFile() {
+		return metricsCsvFile;
+	}
+
+	public void setMetricsCsvFile(Path metricsCsvFile) {
+		this.metricsCsvFile = metricsCsvFile;
+	}
+
+	/**
+	 * The maximum length of the logged requests and responses (see {@link LogPayload#getMaxLength()}).
+	 */
+	public int getLogPayloadMaxLength() {
+		return logPayloadMaxLength;
+	}
+
+	public void setLogPayloadMaxLength(int logPayloadMaxLength) {
+		this.logPayloadMaxLength = logPayloadMaxLength;
+	}
+
+	/**
+	 * The timeout (in milliseconds) for establishing a connection to a host (and for waiting for a pooled connection).
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * The timeout (in milliseconds) for waiting for data of the response (between two received packets).
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * The timeout (in milliseconds) of a whole asynchronous request including the retries (0 for no timeout).
+	 */
+	public int getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	public void setRequestTimeout(int requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * The hosts that are used if the primary host is not reachable (<code>host:port</code> or <code>host</code>).
+	 */
+	public List<String> getFailoverHosts() {
+		return failoverHosts;
+	}
+
+	public void setFailoverHosts(List<String> failoverHosts) {
+		this.failoverHosts = failoverHosts;
+	}
+
+	/**
+	 * The number of consecutive failed requests to a host, after which no requests are sent to it for a while (0 to disable the circuit
+	 * breakers).
+	 */
+	public int getCircuitBreakerFailureThreshold() {
+		return circuitBreakerFailureThreshold;
+	}
+
+	public void setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+		this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+	}
+
+	/**
+	 * The time (in milliseconds) in which no requests are sent to a host after it's circuit breaker was opened.
+	 */
+	public int getCircuitBreakerOpenTime() {
+		return circuitBreakerOpenTime;
+	}
+
+	public void setCircuitBreakerOpenTime(int circuitBreakerOpenTime) {
+		this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+	}
+
+	/**
+	 * The number of times a failed read request (get_notes) is repeated (on the next host).
+	 */
+	public int getReadRetries() {
+		return readRetries;
+	}
+
+	public void setReadRetries(int readRetries) {
+		this.readRetries = readRetries;
+	}
+
+	/**
+	 * The time (in milliseconds) after which an asynchronous read request, that was not answered yet, is sent a second time (to the next host);
+	 * the first response is used (0 to disable the hedged requests).
+	 */
+	public int getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	public void setHedgeDelay(int hedgeDelay) {
+		this.hedgeDelay = hedgeDelay;
+	}
+
+	/**
+	 * The interval (in seconds) in which the hosts are checked, if failover hosts are configured (0 to disable the health checks).
+	 */
+	public int getHealthCheckInterval() {
+		return healthCheckInterval;
+	}
+
+	public void setHealthCheckInterval(int healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	/**
+	 * The maximum number of cached get_notes results (0 to disable the cache; see {@link NoteSelectorCache}).
+	 */
+	public int getSelectorCacheSize() {
+		return selectorCacheSize;
+	}
+
+	public void setSelectorCacheSize(int selectorCacheSize) {
+		this.selectorCacheSize = selectorCacheSize;
+	}
+
+	/**
+	 * The time (in milliseconds) a cached get_notes result is used.
+	 */
+	public int getSelectorCacheTimeToLive() {
+		return selectorCacheTimeToLive;
+	}
+
+	public void setSelectorCacheTimeToLive(int selectorCacheTimeToLive) {
+		this.selectorCacheTimeToLive = selectorCacheTimeToLive;
+	}
+
+	/**
+	 * The path (relative to the resource path) of the server-sent events that notify about the changed notes (empty to disable the
+	 * notifications; see {@link NoteChangeSubscriber}).
+	 */
+	public String getNotificationPath() {
+		return notificationPath;
+	}
+
+	public void setNotificationPath(String notificationPath) {
+		this.notificationPath = notificationPath;
+	}
+
+	/**
+	 * The interval (in seconds) in which the notes are polled if the notifications are not available (0 to disable the polling).
+	 */
+	public int getPollInterval() {
+		return pollInterval;
+	}
+
+	public void setPollInterval(int pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * The time (in seconds) after which the notifications are subscribed again, if they were not available.
+	 */
+	public int getNotificationRetryInterval() {
+		return notificationRetryInterval;
+	}
+
+	public void setNotificationRetryInterval(int notificationRetryInterval) {
+		this.notificationRetryInterval = notificationRetryInterval;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.client.WebTarget;
+
+/**
+ * One of the (failover) hosts of the {@link JsonRpcTransport}, with it's circuit breaker and the result of the last health check.
+ */
+public class HostEndpoint {
+	
+	//the weight of a new latency measurement in the (exponentially weighted) average
+	private static final double LATENCY_WEIGHT = 0.3;
+	
+	private final String url;
+	private final int priority;
+	private final WebTarget webTarget;
+	private final CircuitBreaker circuitBreaker;
+	
+	private volatile boolean healthy = true;
+	//the average latency of the health checks in nanoseconds (or -1 if it wasn't measured yet)
+	private volatile long latency = -1;
+	
+	/**
+	 * @param priority
+	 *        The position of the host in the configuration (0 is the primary host).
+	 */
+	public HostEndpoint(String url, int priority, WebTarget webTarget, CircuitBreaker circuitBreaker) {
+		this.url = url;
+		this.priority = priority;
+		this.webTarget = webTarget;
+		this.circuitBreaker = circuitBreaker;
+	}
+	
+	/**
+	 * Record the result of a successful health check.
+	 */
+	public synchronized void healthCheckSucceeded(long latencyNanos) {
+		healthy = true;
+		latency = latency < 0 ? latencyNanos : (long) (LATENCY_WEIGHT * latencyNanos + (1 - LATENCY_WEIGHT) * latency);
+	}
+	public void healthCheckFailed() {
+		healthy = false;
+	}
+	
+	/**
+	 * The endpoints in the order in which they are used for the next request: healthy endpoints first, then endpoints whose circuit breaker
+	 * doesn't reject requests and then the lowest latency. Endpoints without a measured latency keep their configured order.
+	 */
+	public static List<HostEndpoint> inSelectionOrder(List<HostEndpoint> endpoints) {
+		//the keys are taken once, because the health checks can change them while the endpoints are sorted
+		Map<HostEndpoint, long[]> keys = new HashMap<HostEndpoint, long[]>();
+		for (HostEndpoint endpoint : endpoints) {
+			long currentLatency = endpoint.latency;
+			keys.put(endpoint, new long[] {endpoint.healthy ? 0 : 1, endpoint.circuitBreaker.isRejecting() ? 1 : 0,
+					currentLatency < 0 ? endpoint.priority - Integer.MAX_VALUE : currentLatency});
+		}
+		List<HostEndpoint> ordered = new ArrayList<HostEndpoint>(endpoints);
+		ordered.sort((endpoint1, endpoint2) -> {
+			long[] keys1 = keys.get(endpoint1);
+			long[] keys2 = keys.get(endpoint2);
+			for (int i = 0; i < keys1.length; i++) {
+				int cmp = Long.compare(keys1[i], keys2[i]);
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return 0;
+		});
+		return ordered;
+	}
+	
+	public String getUrl() {
+		return url;
+	}
+	
+	public int getPriority() {
+		return priority;
+	}
+	
+	public WebTarget getWebTarget() {
+		return webTarget;
+	}
+	
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	public boolean isHealthy() {
+		return healthy;
+	}
+	
+	/**
+	 * The average latency of the health checks in milliseconds (or -1 if it wasn't measured yet).
+	 */
+	public double getLatencyMillis() {
+		long currentLatency = latency;
+		return currentLatency < 0 ? -1 : currentLatency / 1e6;
+	}
+	
+	@Override
+	public String toString() {
+		return url;
+	}
+}
\ No newline at end of file
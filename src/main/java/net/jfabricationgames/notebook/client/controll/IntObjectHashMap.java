@@ -0,0 +1,170 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A hash map with primitive int keys (open addressing with linear probing), so the keys don't have to be boxed.
+ *
+ * Null values are not supported (an empty slot is marked by a null value). The map is not thread safe.
+ */
+final class IntObjectHashMap<V> {
+	
+	@FunctionalInterface
+	interface IntObjectConsumer<V> {
+		
+		public void accept(int key, V value);
+	}
+	
+	private static final int MIN_CAPACITY = 16;
+	
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	
+	public IntObjectHashMap() {
+		this(MIN_CAPACITY / 2);
+	}
+	public IntObjectHashMap(int expectedSize) {
+		//keep the load factor below 0.5 so the probe sequences stay short
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+	
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+	
+	private int slot(int key) {
+		//spread the bits of the key (the ids are mostly sequential)
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+		}
+		return null;
+	}
+	
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+	
+	/**
+	 * Add or replace the value for the key.
+	 *
+	 * @return The previous value for the key or null if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		Objects.requireNonNull(value, "null values are not supported");
+		int i = slot(key);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V previous = (V) values[i];
+				values[i] = value;
+				return previous;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		if (size * 2 > values.length) {
+			rehash(values.length << 1);
+		}
+		return null;
+	}
+	
+	/**
+	 * Remove the value for the key.
+	 *
+	 * @return The removed value or null if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = slot(key);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V removed = (V) values[i];
+				size--;
+				closeGap(i);
+				return removed;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Move the following entries of the probe sequence into the removed slot (so no tombstones are needed).
+	 */
+	private void closeGap(int gap) {
+		for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+			int home = slot(keys[i]);
+			//the entry can be moved if its home slot is not (cyclically) between the gap and its current slot
+			boolean movable = gap < i ? (home <= gap || home > i) : (home <= gap && home > i);
+			if (movable) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = null;
+	}
+	
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = slot(oldKeys[i]);
+				while (values[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void forEachValue(Consumer<? super V> action) {
+		for (Object value : values) {
+			if (value != null) {
+				action.accept((V) value);
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void forEach(IntObjectConsumer<? super V> action) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				action.accept(keys[i], (V) values[i]);
+			}
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public void clear() {
+		allocate(MIN_CAPACITY);
+		size = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.jfabricationgames.notebook.client.error.NoteBookFormatException;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * The JSON lines format of the note files (see {@link NoteFileFormat#JSON_LINES}).
+ */
+final class JsonLinesNoteFormat {
+	
+	//the dates are written as ISO strings (readable in the files); the arrays of the service's representation are read too
+	private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule())
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	private static final ObjectReader NOTE_READER = MAPPER.readerFor(Note.class);
+	private static final ObjectWriter NOTE_WRITER = MAPPER.writerFor(Note.class);
+	
+	private JsonLinesNoteFormat() {}
+	
+	static class Input implements NoteFileFormat.NoteInput {
+		
+		private final BufferedReader reader;
+		private int lineNumber;
+		
+		Input(BufferedReader reader) {
+			this.reader = reader;
+		}
+		
+		@Override
+		public Note read() throws IOException, NoteBookFormatException {
+			String line;
+			do {
+				line = reader.readLine();
+				if (line == null) {
+					return null;
+				}
+				lineNumber++;
+			} while (line.trim().isEmpty());
+			
+			try {
+				return NOTE_READER.readValue(line);
+			}
+			catch (JsonProcessingException e) {
+				throw new NoteBookFormatException(lineNumber, "The line is no note: " + e.getOriginalMessage(), e);
+			}
+		}
+		
+		@Override
+		public int getLineNumber() {
+			return lineNumber;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+	
+	static class Output implements NoteFileFormat.NoteOutput {
+		
+		private final BufferedWriter writer;
+		
+		Output(BufferedWriter writer) {
+			this.writer = writer;
+		}
+		
+		@Override
+		public void write(Note note) throws IOException {
+			writer.write(NOTE_WRITER.writeValueAsString(note));
+			writer.write('\n');
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+	}
+}
\ No newline at end of file
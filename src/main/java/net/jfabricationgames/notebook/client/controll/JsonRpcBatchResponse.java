@@ -0,0 +1,80 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+
+/**
+ * The responses to a JSON-RPC batch request, correlated to the requests by their ids. Requests of batches that couldn't be sent (or whose
+ * responses couldn't be received) have a failure instead of a response.
+ */
+public class JsonRpcBatchResponse {
+	
+	private final Map<String, JsonRpcResponse> results = new HashMap<String, JsonRpcResponse>();
+	private final Map<String, JsonRpcErrorResponse> errors = new HashMap<String, JsonRpcErrorResponse>();
+	private final Map<String, NoteBookException> failures = new HashMap<String, NoteBookException>();
+	
+	public void addResult(JsonRpcResponse response) {
+		results.put(response.getId(), response);
+	}
+	public void addError(JsonRpcErrorResponse error) {
+		errors.put(error.getId(), error);
+	}
+	/**
+	 * Add the failure of a request that was not answered (because its batch failed or was not sent).
+	 */
+	public void addFailure(String requestId, NoteBookException failure) {
+		failures.put(requestId, failure);
+	}
+	
+	/**
+	 * Add all responses of another (partial) batch response.
+	 */
+	public void addAll(JsonRpcBatchResponse other) {
+		results.putAll(other.results);
+		errors.putAll(other.errors);
+		failures.putAll(other.failures);
+	}
+	
+	/**
+	 * Get the response to the request with the given id (or null if there is no successful response for this id).
+	 */
+	public JsonRpcResponse getResult(String requestId) {
+		return results.get(requestId);
+	}
+	/**
+	 * Get the error response to the request with the given id (or null if there is no error response for this id).
+	 */
+	public JsonRpcErrorResponse getError(String requestId) {
+		return errors.get(requestId);
+	}
+	/**
+	 * Get the failure of the request with the given id (or null if the request was answered).
+	 */
+	public NoteBookException getFailure(String requestId) {
+		return failures.get(requestId);
+	}
+	
+	public boolean isSuccessful(String requestId) {
+		return results.containsKey(requestId);
+	}
+	
+	public Map<String, JsonRpcResponse> getResults() {
+		return Collections.unmodifiableMap(results);
+	}
+	public Map<String, JsonRpcErrorResponse> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+	public Map<String, NoteBookException> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+	
+	@Override
+	public String toString() {
+		return "JsonRpcBatchResponse [results=" + results.size() + ", errors=" + errors.size() + ", failures=" + failures.size() + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,1143 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.jfabricationgames.json_rpc.JsonRpcError;
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookCommunicationException;
+import net.jfabricationgames.notebook.client.error.NoteBookConnectionException;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.client.error.NoteBookNotSentException;
+import net.jfabricationgames.notebook.client.error.NoteBookRpcException;
+import net.jfabricationgames.notebook.service.NoteBookServiceMethods;
+
+/**
+ * The HTTP transport for the JSON-RPC requests of the {@link NoteClient}.
+ *
+ * The transport keeps one (thread safe) JAX-RS client with a pool of keep-alive connections to the host and shares the (immutable) JSON readers
+ * and writers between all requests, so they don't have to be created for every request.
+ *
+ * The requests are encoded in the configured {@link WireFormat}. Compressed (gzip or deflate) responses are accepted and larger requests can be
+ * sent compressed (gzip), if the host supports it (see {@link HostConfiguration}).
+ *
+ * The requests are sent to the first available host of the configured hosts (see {@link HostEndpoint}): a host whose circuit breaker is open is
+ * skipped and a request that couldn't be sent is sent to the next host. Read requests (get_notes) are also repeated if the response couldn't
+ * be received and asynchronous read requests can be hedged (sent to the next host if the first host doesn't answer in time). If failover hosts
+ * are configured, the hosts are checked periodically and the healthy host with the lowest latency is used.
+ */
+public class JsonRpcTransport {
+	
+	private static final Logger LOGGER = LogManager.getLogger(JsonRpcTransport.class);
+	
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	public static final String IDENTITY = "identity";
+	
+	//the status code of a host that doesn't accept compressed requests
+	private static final int UNSUPPORTED_MEDIA_TYPE = Response.Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode();
+	
+	//the read requests don't change the notes, so they can be repeated (or sent twice)
+	private static final Set<String> READ_METHODS = Collections.singleton(NoteBookServiceMethods.GET_NOTES.getMethodName());
+	
+	/**
+	 * Parses the result of a JSON-RPC response directly from the response stream (see {@link JsonRpcTransport#sendStreaming(JsonRpcRequest, ResultParser)}).
+	 */
+	@FunctionalInterface
+	public interface ResultParser<T> {
+		
+		/**
+		 * Parse the result. The parser is positioned at the first token of the result and has to consume the whole result value.
+		 */
+		public T parse(JsonParser parser) throws IOException;
+	}
+	
+	/**
+	 * The result of a conditional request (see {@link JsonRpcTransport#sendStreamingIfChanged(JsonRpcRequest, String, ResultParser)}).
+	 */
+	public static class ConditionalResult<T> {
+		
+		private final T result;
+		private final String entityTag;
+		private final boolean modified;
+		
+		private ConditionalResult(T result, String entityTag, boolean modified) {
+			this.result = result;
+			this.entityTag = entityTag;
+			this.modified = modified;
+		}
+		
+		/**
+		 * The parsed result (or null if it was not modified).
+		 */
+		public T getResult() {
+			return result;
+		}
+		
+		/**
+		 * The entity tag of the result (or null if the host didn't send one), to send the next request conditionally.
+		 */
+		public String getEntityTag() {
+			return entityTag;
+		}
+		
+		public boolean isModified() {
+			return modified;
+		}
+	}
+	
+	private static JsonRpcTransport instance;
+	
+	private final HostConfiguration hostConfig;
+	private final PoolingHttpClientConnectionManager connectionManager;
+	//evicts the idle connections, checks the hosts and times the hedged requests and the request timeouts
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final ThreadPoolExecutor asyncExecutor;
+	private final Client client;
+	//the primary host first, then the failover hosts
+	private final List<HostEndpoint> endpoints;
+	private final String targetUrl;
+	private final WireFormat wireFormat;
+	private final String[] acceptEncodings;
+	private final int compressionMinSize;
+	//disabled if the host doesn't accept compressed requests
+	private volatile boolean requestCompression;
+	private final int readRetries;
+	private final int hedgeDelay;
+	private final int requestTimeout;
+	
+	//the number of bytes of all request and response bodies
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	
+	private final ClientMetrics metrics;
+	private final MetricsReporter metricsReporter;
+	
+	public JsonRpcTransport(HostConfiguration hostConfig) {
+		this.hostConfig = hostConfig;
+		
+		//a pool of keep-alive connections that is shared by all requests
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(hostConfig.getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(hostConfig.getMaxConnections());
+		
+		ClientConfig clientConfig = new ClientConfig();
+		clientConfig.connectorProvider(new ApacheConnectorProvider());
+		clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+		//targets with own properties (e.g. the notification target) create own connectors, that must not shut down the pool when they are closed
+		clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true);
+		//a stalled host doesn't block the calling thread for longer than the timeouts
+		clientConfig.property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom().setConnectTimeout(hostConfig.getConnectTimeout())
+				.setConnectionRequestTimeout(hostConfig.getConnectTimeout()).setSocketTimeout(hostConfig.getReadTimeout()).build());
+		
+		//a bounded executor for asynchronous requests (requests are rejected if the queue is full)
+		asyncExecutor = new ThreadPoolExecutor(hostConfig.getAsyncThreads(), hostConfig.getAsyncThreads(), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(hostConfig.getAsyncQueueSize()), new ThreadFactory() {
+					
+					private final AtomicInteger threadNumber = new AtomicInteger(1);
+					
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "NoteClient-Async-" + threadNumber.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		asyncExecutor.allowCoreThreadTimeOut(true);
+		
+		client = ClientBuilder.newBuilder().withConfig(clientConfig).executorService(asyncExecutor).build();
+		endpoints = new ArrayList<HostEndpoint>();
+		for (String url : hostConfig.getHostUrlsWithPort()) {
+			endpoints.add(new HostEndpoint(url, endpoints.size(), client.target(url).path(hostConfig.getHostResourcePath()),
+					new CircuitBreaker(url, hostConfig.getCircuitBreakerFailureThreshold(), hostConfig.getCircuitBreakerOpenTime())));
+		}
+		targetUrl = hostConfig.getHostUrlWithPort() + "/" + hostConfig.getHostResourcePath();
+		readRetries = hostConfig.getReadRetries();
+		hedgeDelay = hostConfig.getHedgeDelay();
+		requestTimeout = hostConfig.getRequestTimeout();
+		
+		wireFormat = hostConfig.getWireFormat();
+		//the HTTP client decompresses the responses (before they are read by the transport)
+		acceptEncodings = hostConfig.isResponseCompression() ? new String[] {GZIP, DEFLATE} : new String[] {IDENTITY};
+		requestCompression = hostConfig.isRequestCompression();
+		compressionMinSize = hostConfig.getCompressionMinSize();
+		LogPayload.setMaxLength(hostConfig.getLogPayloadMaxLength());
+		
+		scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "NoteClient-Scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		//the timers of the answered requests are cancelled
+		scheduler.setRemoveOnCancelPolicy(true);
+		
+		//close connections that were idle for too long (the pool itself doesn't do this)
+		long idleTimeout = hostConfig.getConnectionIdleTimeout();
+		scheduler.scheduleWithFixedDelay(() -> {
+			connectionManager.closeExpiredConnections();
+			connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+		}, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+		
+		//the latency of the hosts is only needed to choose one of several hosts
+		if (endpoints.size() > 1 && hostConfig.getHealthCheckInterval() > 0) {
+			scheduler.scheduleWithFixedDelay(this::checkHealth, 0, hostConfig.getHealthCheckInterval(), TimeUnit.SECONDS);
+		}
+		
+		metrics = new ClientMetrics(connectionManager);
+		if (hostConfig.isMetricsJmx()) {
+			metrics.registerMBean(targetUrl);
+		}
+		if (hostConfig.getMetricsReportInterval() > 0) {
+			metricsReporter = new MetricsReporter(metrics, targetUrl, hostConfig.getMetricsCsvFile());
+			metricsReporter.start(hostConfig.getMetricsReportInterval());
+		}
+		else {
+			metricsReporter = null;
+		}
+		
+		LOGGER.info("Created JSON-RPC transport to {} (max connections: {}, idle timeout: {}ms, wire format: {}, request compression: {}, hosts: {})",
+				targetUrl, hostConfig.getMaxConnections(), idleTimeout, wireFormat, requestCompression, endpoints);
+	}
+	
+	public static synchronized JsonRpcTransport getInstance() {
+		if (instance == null) {
+			instance = new JsonRpcTransport(HostConfiguration.getInstance());
+		}
+		return instance;
+	}
+	
+	/**
+	 * Close the shared transport instance (if it was created) and all of it's pooled connections.
+	 */
+	public static synchronized void closeInstance() {
+		if (instance != null) {
+			instance.close();
+			instance = null;
+		}
+	}
+	
+	/**
+	 * Send a JSON-RPC request to the host and receive the response.
+	 */
+	public JsonRpcResponse send(JsonRpcRequest request) throws NoteBookException {
+		long start = System.nanoTime();
+		try {
+			byte[] body;
+			try {
+				body = writeRequest(request, wireFormat);
+			}
+			catch (JsonProcessingException e) {
+				LOGGER.error("Json representation failed", e);
+				throw new NoteBookException(e);
+			}
+			
+			byte[] responseBody = post(body, isRead(request));
+			JsonRpcResponse response = parseResponse(responseBody, wireFormat);
+			metrics.recordRequest(request.getMethod(), System.nanoTime() - start, body.length, responseBody.length);
+			return response;
+		}
+		catch (NoteBookException e) {
+			metrics.recordError(request.getMethod(), System.nanoTime() - start, e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Send a JSON-RPC request to the host without blocking the calling thread. The request is executed by the bounded async executor. The
+	 * returned future is completed exceptionally with a {@link NoteBookException} if the request fails.
+	 */
+	public CompletableFuture<JsonRpcResponse> sendAsync(JsonRpcRequest request) {
+		CompletableFuture<JsonRpcResponse> result = measureErrors(request.getMethod(), new CompletableFuture<JsonRpcResponse>());
+		long start = System.nanoTime();
+		byte[] body;
+		try {
+			body = writeRequest(request, wireFormat);
+		}
+		catch (JsonProcessingException e) {
+			LOGGER.error("Json representation failed", e);
+			result.completeExceptionally(new NoteBookException(e));
+			return result;
+		}
+		
+		LOGGER.info("Sending asynchronous POST request to url: {}; request: {}", targetUrl, LogPayload.of(body, wireFormat));
+		CompletionStage<Response> responseStage;
+		try {
+			responseStage = executeAsync(body, isRead(request));
+		}
+		catch (RejectedExecutionException | ProcessingException e) {
+			LOGGER.error("The asynchronous request couldn't be started", e);
+			result.completeExceptionally(new NoteBookNotSentException("The asynchronous request couldn't be started", e));
+			return result;
+		}
+		
+		responseStage.whenComplete((response, throwable) -> {
+			if (throwable != null) {
+				//the request failed on all hosts (or timed out)
+				LOGGER.error("The asynchronous request couldn't be processed", throwable);
+				result.completeExceptionally(AsyncNoteClient.unwrap(throwable));
+				return;
+			}
+			try {
+				byte[] responseBody = readResponseBody(response);
+				JsonRpcResponse parsedResponse = parseResponse(responseBody, wireFormat);
+				metrics.recordRequest(request.getMethod(), System.nanoTime() - start, body.length, responseBody.length);
+				result.complete(parsedResponse);
+			}
+			catch (NoteBookException | ProcessingException e) {
+				result.completeExceptionally(e instanceof NoteBookException ? e : new NoteBookConnectionException(e));
+			}
+			finally {
+				response.close();
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Send a JSON-RPC request to the host and parse the result of the response while it is received, instead of reading the whole response
+	 * text and mapping it to a {@link JsonRpcResponse} first (e.g. to parse large lists of notes one by one).
+	 */
+	public <T> T sendStreaming(JsonRpcRequest request, ResultParser<T> resultParser) throws NoteBookException {
+		return sendStreamingIfChanged(request, null, resultParser).getResult();
+	}
+	
+	/**
+	 * Send a JSON-RPC request like {@link #sendStreaming(JsonRpcRequest, ResultParser)}, but only receive the result if it was changed since it
+	 * was received with the entity tag (the host answers with "304 Not Modified" otherwise). Hosts that don't support entity tags always send
+	 * the result.
+	 * 
+	 * @param entityTag
+	 *        The entity tag of the last result (or null to receive the result unconditionally).
+	 */
+	public <T> ConditionalResult<T> sendStreamingIfChanged(JsonRpcRequest request, String entityTag, ResultParser<T> resultParser)
+			throws NoteBookException {
+		long start = System.nanoTime();
+		byte[] body;
+		try {
+			body = writeRequest(request, wireFormat);
+		}
+		catch (JsonProcessingException e) {
+			LOGGER.error("Json representation failed", e);
+			metrics.recordError(request.getMethod(), System.nanoTime() - start, e);
+			throw new NoteBookException(e);
+		}
+		
+		LOGGER.info("Sending POST request to url: {}; request: {}", targetUrl, LogPayload.of(body, wireFormat));
+		Response response = null;
+		try {
+			response = execute(body, isRead(request), entityTag);
+			if (entityTag != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+				LOGGER.info("The result was not modified (entity tag: {})", entityTag);
+				metrics.recordRequest(request.getMethod(), System.nanoTime() - start, body.length, 0);
+				return new ConditionalResult<T>(null, entityTag, false);
+			}
+			EntityTag responseEntityTag = response.getEntityTag();
+			CountingInputStream responseStream = readResponseStream(response);
+			T result = parseStreamingResponse(responseStream, wireFormat, resultParser);
+			metrics.recordRequest(request.getMethod(), System.nanoTime() - start, body.length, responseStream.getCount());
+			return new ConditionalResult<T>(result, responseEntityTag == null ? null : responseEntityTag.toString(), true);
+		}
+		catch (ProcessingException pe) {
+			LOGGER.error("The request couldn't be processed", pe);
+			NoteBookConnectionException connectionException = new NoteBookConnectionException(
+					"The request couldn't be sent or the response couldn't be received", pe);
+			metrics.recordError(request.getMethod(), System.nanoTime() - start, connectionException);
+			throw connectionException;
+		}
+		catch (NoteBookException e) {
+			metrics.recordError(request.getMethod(), System.nanoTime() - start, e);
+			throw e;
+		}
+		finally {
+			if (response != null) {
+				response.close();
+			}
+		}
+	}
+	
+	/**
+	 * The non-blocking version of {@link #sendStreaming(JsonRpcRequest, ResultParser)}. The result is parsed by a thread of the async executor.
+	 */
+	public <T> CompletableFuture<T> sendStreamingAsync(JsonRpcRequest request, ResultParser<T> resultParser) {
+		CompletableFuture<T> result = measureErrors(request.getMethod(), new CompletableFuture<T>());
+		long start = System.nanoTime();
+		byte[] body;
+		try {
+			body = writeRequest(request, wireFormat);
+		}
+		catch (JsonProcessingException e) {
+			LOGGER.error("Json representation failed", e);
+			result.completeExceptionally(new NoteBookException(e));
+			return result;
+		}
+		
+		LOGGER.info("Sending asynchronous POST request to url: {}; request: {}", targetUrl, LogPayload.of(body, wireFormat));
+		CompletionStage<Response> responseStage;
+		try {
+			responseStage = executeAsync(body, isRead(request));
+		}
+		catch (RejectedExecutionException | ProcessingException e) {
+			LOGGER.error("The asynchronous request couldn't be started", e);
+			result.completeExceptionally(new NoteBookNotSentException("The asynchronous request couldn't be started", e));
+			return result;
+		}
+		
+		responseStage.whenComplete((response, throwable) -> {
+			if (throwable != null) {
+				//the request failed on all hosts (or timed out)
+				LOGGER.error("The asynchronous request couldn't be processed", throwable);
+				result.completeExceptionally(AsyncNoteClient.unwrap(throwable));
+				return;
+			}
+			try {
+				CountingInputStream responseStream = readResponseStream(response);
+				T parsedResult = parseStreamingResponse(responseStream, wireFormat, resultParser);
+				metrics.recordRequest(request.getMethod(), System.nanoTime() - start, body.length, responseStream.getCount());
+				result.complete(parsedResult);
+			}
+			catch (NoteBookException | ProcessingException e) {
+				result.completeExceptionally(e instanceof NoteBookException ? e : new NoteBookConnectionException(e));
+			}
+			finally {
+				response.close();
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Send a list of JSON-RPC requests to the host in one batch (one HTTP request) and receive the responses of all requests.
+	 */
+	public JsonRpcBatchResponse sendBatch(List<JsonRpcRequest> requests) throws NoteBookException {
+		long start = System.nanoTime();
+		try {
+			byte[] body;
+			try {
+				body = writeBatchRequest(requests, wireFormat);
+			}
+			catch (JsonProcessingException e) {
+				LOGGER.error("Json representation failed", e);
+				throw new NoteBookException(e);
+			}
+			
+			byte[] responseBody = post(body, false);
+			JsonRpcBatchResponse response = parseBatchResponse(responseBody, wireFormat);
+			metrics.recordRequest(ClientMetrics.BATCH, System.nanoTime() - start, body.length, responseBody.length);
+			return response;
+		}
+		catch (NoteBookException e) {
+			metrics.recordError(ClientMetrics.BATCH, System.nanoTime() - start, e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Record the failure of an asynchronous request in the metrics (when the future is completed exceptionally).
+	 */
+	private <T> CompletableFuture<T> measureErrors(String method, CompletableFuture<T> result) {
+		long start = System.nanoTime();
+		result.whenComplete((value, throwable) -> {
+			if (throwable != null) {
+				metrics.recordError(method, System.nanoTime() - start, throwable);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Send an encoded request to the host via POST and receive the (decompressed) response body.
+	 */
+	private byte[] post(byte[] body, boolean read) throws NoteBookException {
+		LOGGER.info("Sending POST request to url: {}; request: {}", targetUrl, LogPayload.of(body, wireFormat));
+		Response response = null;
+		try {
+			response = execute(body, read);
+			return readResponseBody(response);
+		}
+		catch (ProcessingException pe) {
+			LOGGER.error("The request couldn't be processed", pe);
+			throw new NoteBookConnectionException("The request couldn't be sent or the response couldn't be received", pe);
+		}
+		finally {
+			//always close the response to release the connection back to the pool
+			if (response != null) {
+				response.close();
+			}
+		}
+	}
+	
+	/**
+	 * Post the request body to the first available host. A request that couldn't be sent is sent to the next host; read requests are also
+	 * repeated if the response couldn't be received or the host answered with a server error.
+	 */
+	private Response execute(byte[] body, boolean read) throws NoteBookConnectionException {
+		return execute(body, read, null);
+	}
+	/**
+	 * @param entityTag
+	 *        Sent as If-None-Match header (if it's not null).
+	 */
+	private Response execute(byte[] body, boolean read, String entityTag) throws NoteBookConnectionException {
+		List<HostEndpoint> candidates = HostEndpoint.inSelectionOrder(endpoints);
+		int maxAttempts = getMaxAttempts(candidates, read);
+		ProcessingException lastFailure = null;
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			HostEndpoint endpoint = candidates.get(attempt % candidates.size());
+			if (!endpoint.getCircuitBreaker().allowRequest()) {
+				continue;
+			}
+			Response response;
+			try {
+				response = execute(endpoint, body, entityTag);
+			}
+			catch (ProcessingException pe) {
+				endpoint.getCircuitBreaker().recordFailure();
+				lastFailure = pe;
+				if (!isRetryable(pe, read)) {
+					break;
+				}
+				LOGGER.warn("The request to {} failed (attempt {} of {})", endpoint, attempt + 1, maxAttempts, pe);
+				continue;
+			}
+			if (isServerError(response)) {
+				endpoint.getCircuitBreaker().recordFailure();
+				if (read && attempt + 1 < maxAttempts) {
+					LOGGER.warn("{} answered with HTTP error code {} (attempt {} of {})", endpoint, response.getStatus(), attempt + 1, maxAttempts);
+					response.close();
+					continue;
+				}
+			}
+			else {
+				endpoint.getCircuitBreaker().recordSuccess();
+			}
+			return response;
+		}
+		LOGGER.error("The request couldn't be sent to any host", lastFailure);
+		throw toConnectionException(lastFailure);
+	}
+	/**
+	 * The non-blocking version of {@link #execute(byte[], boolean)}. The returned stage is completed exceptionally with a
+	 * {@link NoteBookConnectionException} if the request failed on all hosts (or timed out).
+	 */
+	private CompletionStage<Response> executeAsync(byte[] body, boolean read) {
+		AsyncRequest request = new AsyncRequest(body, read);
+		request.start();
+		return request.result;
+	}
+	
+	/**
+	 * Post the request body to one host (compressed if it's large enough and the host accepts compressed requests).
+	 */
+	private Response execute(HostEndpoint endpoint, byte[] body, String entityTag) {
+		boolean compress = isCompressed(body);
+		Response response = request(endpoint, entityTag).post(toEntity(body, compress));
+		if (compress && response.getStatus() == UNSUPPORTED_MEDIA_TYPE) {
+			response.close();
+			requestCompressionNotSupported();
+			response = request(endpoint, entityTag).post(toEntity(body, false));
+		}
+		return response;
+	}
+	/**
+	 * The non-blocking version of {@link #execute(HostEndpoint, byte[], String)}.
+	 */
+	private CompletionStage<Response> executeAsync(HostEndpoint endpoint, byte[] body) {
+		boolean compress = isCompressed(body);
+		CompletionStage<Response> responseStage = request(endpoint).rx().post(toEntity(body, compress));
+		if (!compress) {
+			return responseStage;
+		}
+		return responseStage.thenCompose(response -> {
+			if (response.getStatus() != UNSUPPORTED_MEDIA_TYPE) {
+				return CompletableFuture.completedFuture(response);
+			}
+			response.close();
+			requestCompressionNotSupported();
+			return request(endpoint).rx().post(toEntity(body, false));
+		});
+	}
+	
+	private Invocation.Builder request(HostEndpoint endpoint) {
+		return endpoint.getWebTarget().request().accept(wireFormat.getMediaType()).acceptEncoding(acceptEncodings);
+	}
+	private Invocation.Builder request(HostEndpoint endpoint, String entityTag) {
+		Invocation.Builder builder = request(endpoint);
+		if (entityTag != null) {
+			builder.header(HttpHeaders.IF_NONE_MATCH, entityTag);
+		}
+		return builder;
+	}
+	
+	/**
+	 * The attempts of an asynchronous request: the failover to the next host, the retries and the hedged request of read requests and the
+	 * timeout of the whole request. The result is the first successful response.
+	 */
+	private class AsyncRequest {
+		
+		private final byte[] body;
+		private final boolean read;
+		private final List<HostEndpoint> candidates = HostEndpoint.inSelectionOrder(endpoints);
+		private final int maxAttempts;
+		private final CompletableFuture<Response> result = new CompletableFuture<Response>();
+		
+		private final AtomicInteger nextAttempt = new AtomicInteger();
+		private final AtomicInteger runningAttempts = new AtomicInteger();
+		private volatile Throwable lastFailure;
+		
+		public AsyncRequest(byte[] body, boolean read) {
+			this.body = body;
+			this.read = read;
+			maxAttempts = getMaxAttempts(candidates, read);
+		}
+		
+		/**
+		 * Start the first attempt (an exception is thrown if it can't be started) and the timers of the hedged request and the timeout.
+		 */
+		public void start() {
+			if (!startNextAttempt()) {
+				result.completeExceptionally(toConnectionException(null));
+				return;
+			}
+			List<ScheduledFuture<?>> timers = new ArrayList<ScheduledFuture<?>>(2);
+			if (read && hedgeDelay > 0 && maxAttempts > 1) {
+				timers.add(scheduler.schedule(this::hedge, hedgeDelay, TimeUnit.MILLISECONDS));
+			}
+			if (requestTimeout > 0) {
+				timers.add(scheduler.schedule(this::timeout, requestTimeout, TimeUnit.MILLISECONDS));
+			}
+			result.whenComplete((response, throwable) -> timers.forEach(timer -> timer.cancel(false)));
+		}
+		
+		private boolean startNextAttempt() {
+			for (int attempt = nextAttempt.getAndIncrement(); attempt < maxAttempts; attempt = nextAttempt.getAndIncrement()) {
+				HostEndpoint endpoint = candidates.get(attempt % candidates.size());
+				if (!endpoint.getCircuitBreaker().allowRequest()) {
+					continue;
+				}
+				CompletionStage<Response> responseStage;
+				try {
+					responseStage = executeAsync(endpoint, body);
+				}
+				catch (RejectedExecutionException | ProcessingException e) {
+					endpoint.getCircuitBreaker().recordNotSent();
+					throw e;
+				}
+				runningAttempts.incrementAndGet();
+				responseStage.whenComplete((response, throwable) -> attemptCompleted(endpoint, response, throwable));
+				return true;
+			}
+			return false;
+		}
+		/**
+		 * Start the next attempt from a timer or a completed attempt (where an exception can't be thrown to the caller).
+		 */
+		private boolean startNextAttemptLater() {
+			try {
+				return !result.isDone() && startNextAttempt();
+			}
+			catch (RejectedExecutionException | ProcessingException e) {
+				LOGGER.warn("The next attempt of the asynchronous request couldn't be started", e);
+				lastFailure = e;
+				return false;
+			}
+		}
+		
+		private void attemptCompleted(HostEndpoint endpoint, Response response, Throwable throwable) {
+			if (throwable == null && !isServerError(response)) {
+				endpoint.getCircuitBreaker().recordSuccess();
+				runningAttempts.decrementAndGet();
+				if (!result.complete(response)) {
+					//the response of another (hedged) attempt was used or the request timed out
+					response.close();
+				}
+				return;
+			}
+			
+			endpoint.getCircuitBreaker().recordFailure();
+			boolean retry;
+			if (throwable != null) {
+				Throwable cause = AsyncNoteClient.unwrap(throwable);
+				lastFailure = cause;
+				retry = isRetryable(cause, read);
+				LOGGER.warn("The asynchronous request to {} failed", endpoint, cause);
+			}
+			else {
+				lastFailure = new NoteBookCommunicationException("HTTP error code: " + response.getStatus());
+				retry = read;
+				LOGGER.warn("{} answered the asynchronous request with HTTP error code {}", endpoint, response.getStatus());
+			}
+			boolean started = retry && startNextAttemptLater();
+			//the attempts that are still running (e.g. a hedged request) can still succeed
+			if (runningAttempts.decrementAndGet() == 0 && !started) {
+				if (response != null) {
+					//the server error is reported with the response
+					if (!result.complete(response)) {
+						response.close();
+					}
+				}
+				else {
+					result.completeExceptionally(toConnectionException(lastFailure));
+				}
+			}
+			else if (response != null) {
+				response.close();
+			}
+		}
+		
+		private void hedge() {
+			if (!result.isDone()) {
+				LOGGER.info("The asynchronous request was not answered within {}ms; sending a hedged request", hedgeDelay);
+				startNextAttemptLater();
+			}
+		}
+		
+		private void timeout() {
+			if (result.completeExceptionally(new NoteBookConnectionException("The request was not answered within " + requestTimeout + "ms"))) {
+				LOGGER.error("The asynchronous request was not answered within {}ms", requestTimeout);
+			}
+		}
+	}
+	
+	private boolean isRead(JsonRpcRequest request) {
+		return READ_METHODS.contains(request.getMethod());
+	}
+	
+	/**
+	 * Every host is tried once; read requests are repeated (on the next hosts) for the configured number of retries.
+	 */
+	private int getMaxAttempts(List<HostEndpoint> candidates, boolean read) {
+		return read ? Math.max(candidates.size(), readRetries + 1) : candidates.size();
+	}
+	
+	/**
+	 * Whether a request can be sent again after the failure. Only read requests are repeated if they might have reached the host, the other
+	 * requests are only sent to the next host if the connection couldn't be established.
+	 */
+	private static boolean isRetryable(Throwable failure, boolean read) {
+		return read || isConnectFailure(failure);
+	}
+	/**
+	 * Whether the request failed before it reached a host, so it was not executed and can be sent again (a timeout after the request was sent
+	 * is not a connect failure, because the host might have executed the request).
+	 */
+	static boolean isConnectFailure(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			//the connect timeout includes the timeout for waiting for a pooled connection
+			if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException || cause instanceof UnknownHostException
+					|| cause instanceof NoteBookNotSentException) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static boolean isServerError(Response response) {
+		return response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR;
+	}
+	
+	private static NoteBookConnectionException toConnectionException(Throwable lastFailure) {
+		if (lastFailure == null) {
+			return new NoteBookNotSentException("No host is available (the circuit breakers of all hosts are open)");
+		}
+		return new NoteBookConnectionException("The request couldn't be sent or the response couldn't be received", lastFailure);
+	}
+	
+	/**
+	 * Check the hosts (asynchronously) and measure their latency, to choose the host of the next requests. Every HTTP response means that the
+	 * host is reachable (the service doesn't need to support the request).
+	 */
+	private void checkHealth() {
+		for (HostEndpoint endpoint : endpoints) {
+			long start = System.nanoTime();
+			try {
+				endpoint.getWebTarget().request().rx().head().whenComplete((response, throwable) -> {
+					if (throwable == null && !isServerError(response)) {
+						endpoint.healthCheckSucceeded(System.nanoTime() - start);
+						LOGGER.debug("Health check of {}: latency {}ms", endpoint, endpoint.getLatencyMillis());
+					}
+					else {
+						LOGGER.warn("Health check of {} failed", endpoint, throwable);
+						endpoint.healthCheckFailed();
+					}
+					if (response != null) {
+						response.close();
+					}
+				});
+			}
+			catch (RejectedExecutionException | ProcessingException e) {
+				LOGGER.warn("The health check of {} couldn't be started", endpoint, e);
+			}
+		}
+	}
+	
+	private boolean isCompressed(byte[] body) {
+		return requestCompression && body.length >= compressionMinSize;
+	}
+	
+	private void requestCompressionNotSupported() {
+		if (requestCompression) {
+			LOGGER.warn("The host doesn't accept compressed requests; sending uncompressed requests");
+			requestCompression = false;
+		}
+	}
+	
+	private Entity<byte[]> toEntity(byte[] body, boolean compress) {
+		byte[] requestBytes = compress ? gzip(body) : body;
+		bytesSent.add(requestBytes.length);
+		return Entity.entity(requestBytes, new Variant(wireFormat.getMediaType(), (String) null, compress ? GZIP : null));
+	}
+	
+	static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(body);
+		}
+		catch (IOException ioe) {
+			//can't happen when writing to a byte array
+			throw new IllegalStateException("The request couldn't be compressed", ioe);
+		}
+		return compressed.toByteArray();
+	}
+	
+	private byte[] readResponseBody(Response response) throws NoteBookException {
+		checkResponse(response);
+		byte[] responseBytes = response.readEntity(byte[].class);
+		bytesReceived.add(responseBytes.length);
+		return responseBytes;
+	}
+	
+	/**
+	 * The stream of the response's body (that counts the received bytes). The stream is closed when the response is closed.
+	 */
+	private CountingInputStream readResponseStream(Response response) throws NoteBookException {
+		checkResponse(response);
+		return new CountingInputStream(response.readEntity(InputStream.class), bytesReceived);
+	}
+	
+	private void checkResponse(Response response) throws NoteBookException {
+		int responseCode = response.getStatus();
+		LOGGER.info("Server sent response code: {}", responseCode);
+		
+		//check whether the response was OK or an error code
+		if (isServerError(response)) {
+			//the host (or a proxy) is not available at the moment, so the request can be repeated later
+			throw new NoteBookConnectionException("HTTP error code: " + responseCode);
+		}
+		else if (responseCode != Response.Status.OK.getStatusCode()) {
+			throw new NoteBookException("HTTP error code: " + responseCode);
+		}
+		else if (!response.hasEntity()) {
+			throw new NoteBookException("The response was expected to contain data, but it's empty");
+		}
+	}
+	
+	/**
+	 * Close the client and all pooled connections. The transport can't be used anymore after it was closed.
+	 */
+	public void close() {
+		LOGGER.info("Closing JSON-RPC transport to {}", targetUrl);
+		if (metricsReporter != null) {
+			metricsReporter.stop();
+		}
+		metrics.unregisterMBean();
+		scheduler.shutdownNow();
+		client.close();
+		asyncExecutor.shutdown();
+		connectionManager.shutdown();
+	}
+	
+	//the serialization and parsing steps are package private (and don't depend on the connection), so they can be measured by the benchmarks
+	
+	static byte[] writeRequest(JsonRpcRequest request, WireFormat format) throws JsonProcessingException {
+		return format.getRequestWriter().writeValueAsBytes(request);
+	}
+	static byte[] writeBatchRequest(List<JsonRpcRequest> requests, WireFormat format) throws JsonProcessingException {
+		return format.getBatchRequestWriter().writeValueAsBytes(requests);
+	}
+	
+	static JsonRpcResponse parseResponse(byte[] responseBody, WireFormat format) throws NoteBookCommunicationException {
+		try {
+			//try to parse the response as JsonRpcResponse
+			JsonRpcResponse content = getJsonRpcResponse(responseBody, format);
+			
+			LOGGER.info("Response content from server: {}", LogPayload.of(content));
+			
+			return content;
+		}
+		catch (IllegalStateException ise) {
+			JsonRpcErrorResponse error;
+			try {
+				//if the response is no JsonRpcResponse try to parse it as JsonRpcErrorResponse
+				error = getJsonRpcErrorResponse(responseBody, format);
+				
+				LOGGER.error("Server responded with a JSON-RPC-Error: {}", error);
+			}
+			catch (IllegalStateException ise2) {
+				LOGGER.error("Response couldn't be parsed", ise2);
+				
+				throw new NoteBookCommunicationException("Response couldn't be parsed as JsonRpcResponse nor as JsonRpcErrorResponse", ise);
+			}
+			
+			if (error.getError() != null) {
+				throw new NoteBookRpcException("Response couldn't be parsed as JsonRpcResponse (was JsonRpcErrorResponse)", error.getError().getCode(),
+						error.getError().getMessage());
+			}
+			throw new NoteBookCommunicationException("Response couldn't be parsed as JsonRpcResponse (was JsonRpcErrorResponse)", ise);
+		}
+	}
+	
+	/**
+	 * Parse a JSON-RPC response from a stream, without creating a {@link JsonRpcResponse}: the result is handed to the result parser as soon as
+	 * it's found, an error response is reported as {@link NoteBookCommunicationException} (like in {@link #parseResponse(byte[], WireFormat)}).
+	 */
+	static <T> T parseStreamingResponse(InputStream responseStream, WireFormat format, ResultParser<T> resultParser)
+			throws NoteBookCommunicationException {
+		try (JsonParser parser = format.getMapper().getFactory().createParser(responseStream)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new NoteBookCommunicationException("Response couldn't be parsed: the response is no JSON object");
+			}
+			
+			T result = null;
+			boolean resultFound = false;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if ("result".equals(fieldName)) {
+					result = resultParser.parse(parser);
+					resultFound = true;
+				}
+				else if ("error".equals(fieldName)) {
+					JsonRpcError error = format.getErrorReader().readValue(parser);
+					LOGGER.error("Server responded with a JSON-RPC-Error: code: {}, message: {}", error.getCode(), error.getMessage());
+					throw new NoteBookRpcException("Response couldn't be parsed as JsonRpcResponse (was JsonRpcErrorResponse)", error.getCode(),
+							error.getMessage());
+				}
+				else {
+					//the version and the id are not needed (the connection is not shared by the requests)
+					parser.skipChildren();
+				}
+			}
+			
+			if (!resultFound) {
+				throw new NoteBookCommunicationException("Response couldn't be parsed: the response contains no result");
+			}
+			LOGGER.info("Response result from server: {}", LogPayload.of(result));
+			return result;
+		}
+		catch (IOException | RuntimeException e) {
+			LOGGER.error("Response couldn't be parsed", e);
+			throw new NoteBookCommunicationException("Response couldn't be parsed as JsonRpcResponse", e);
+		}
+	}
+	
+	/**
+	 * Parse the response to a batch request, which is an array of JsonRpcResponses and JsonRpcErrorResponses.
+	 */
+	static JsonRpcBatchResponse parseBatchResponse(byte[] responseBody, WireFormat format) throws NoteBookCommunicationException {
+		JsonNode responseTree;
+		try {
+			responseTree = format.getMapper().readTree(responseBody);
+		}
+		catch (IOException e) {
+			LOGGER.error("Batch response couldn't be parsed", e);
+			throw new NoteBookCommunicationException("Batch response couldn't be parsed: " + LogPayload.of(responseBody, format), e);
+		}
+		
+		if (!responseTree.isArray()) {
+			//the server answers with a single error response if the whole batch is invalid
+			LOGGER.error("Server responded to a batch request with a single response: {}", LogPayload.of(responseTree));
+			throw new NoteBookCommunicationException("Batch response was no array (the batch was not accepted): " + LogPayload.of(responseTree));
+		}
+		
+		JsonRpcBatchResponse batchResponse = new JsonRpcBatchResponse();
+		try {
+			for (JsonNode responseNode : responseTree) {
+				if (responseNode.has("error")) {
+					batchResponse.addError(format.getErrorResponseReader().readValue(responseNode));
+				}
+				else {
+					batchResponse.addResult(format.getResponseReader().readValue(responseNode));
+				}
+			}
+		}
+		catch (IOException e) {
+			LOGGER.error("Batch response couldn't be parsed", e);
+			throw new NoteBookCommunicationException("Batch response entries couldn't be parsed as JsonRpcResponse nor as JsonRpcErrorResponse", e);
+		}
+		
+		LOGGER.info("Batch response content from server: {}", batchResponse);
+		return batchResponse;
+	}
+	
+	/**
+	 * Get a JsonRpcResponse from a Response object. (Deserializes JSON)
+	 */
+	private static JsonRpcResponse getJsonRpcResponse(byte[] responseBody, WireFormat format) throws IllegalStateException {
+		try {
+			return format.getResponseReader().readValue(responseBody);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("The response could not be read or parsed: " + LogPayload.of(responseBody, format), e);
+		}
+	}
+	/**
+	 * Get a JsonRpcErrorResponse from a Response object. (Deserializes JSON)
+	 */
+	private static JsonRpcErrorResponse getJsonRpcErrorResponse(byte[] responseBody, WireFormat format) throws IllegalStateException {
+		try {
+			return format.getErrorResponseReader().readValue(responseBody);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("The response could not be read or parsed: " + LogPayload.of(responseBody, format), e);
+		}
+	}
+	
+	/**
+	 * The number of bytes of all request bodies that were sent by this transport (after they were compressed).
+	 */
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+	/**
+	 * The number of bytes of all response bodies that were received by this transport (after they were decompressed by the HTTP client).
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+	
+	/**
+	 * The primary host and the failover hosts (with their circuit breakers).
+	 */
+	public List<HostEndpoint> getEndpoints() {
+		return Collections.unmodifiableList(endpoints);
+	}
+	
+	/**
+	 * The target of the change notifications (server-sent events) on the preferred host, or null if the notifications are disabled (see
+	 * {@link NoteChangeSubscriber}). The event stream is kept open while no events are sent, so it has no read timeout.
+	 */
+	public WebTarget getNotificationTarget() {
+		String notificationPath = hostConfig.getNotificationPath();
+		if (notificationPath == null || notificationPath.isEmpty()) {
+			return null;
+		}
+		return HostEndpoint.inSelectionOrder(endpoints).get(0).getWebTarget().path(notificationPath).property(ClientProperties.READ_TIMEOUT, 0);
+	}
+	
+	public HostConfiguration getHostConfiguration() {
+		return hostConfig;
+	}
+	
+	/**
+	 * The metrics of the requests that were sent by this transport.
+	 */
+	public ClientMetrics getMetrics() {
+		return metrics;
+	}
+	
+	public WireFormat getWireFormat() {
+		return wireFormat;
+	}
+	
+	/**
+	 * Whether larger requests are sent compressed (false if it's not configured or if the host didn't accept a compressed request).
+	 */
+	public boolean isRequestCompression() {
+		return requestCompression;
+	}
+	
+	/**
+	 * Counts the bytes that are read from the response stream (for {@link JsonRpcTransport#getBytesReceived()}).
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		
+		private final LongAdder bytesRead;
+		//the bytes of this stream (the stream is read by one thread only)
+		private long count;
+		
+		public CountingInputStream(InputStream in, LongAdder bytesRead) {
+			super(in);
+			this.bytesRead = bytesRead;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if (value != -1) {
+				bytesRead.increment();
+				count++;
+			}
+			return value;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				bytesRead.add(read);
+				count += read;
+			}
+			return read;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			bytesRead.add(skipped);
+			count += skipped;
+			return skipped;
+		}
+		
+		public long getCount() {
+			return count;
+		}
+	}
+}
\ No newline at end of file
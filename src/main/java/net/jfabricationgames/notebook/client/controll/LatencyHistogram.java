@@ -0,0 +1,86 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe histogram of latencies with a fixed memory size. The latencies are counted in log-linear buckets (four buckets per power of two
+ * microseconds), so the percentiles are accurate to 25% (or 1 microsecond).
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKETS = 4;
+	//the last bucket contains all latencies above 2^40 microseconds (about 12 days)
+	private static final int BUCKETS = 40 * SUB_BUCKETS;
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+	
+	public void record(long nanos) {
+		long micros = Math.max(nanos / 1000, 0);
+		buckets.incrementAndGet(bucketIndex(micros));
+		count.increment();
+		sumMicros.add(micros);
+		maxMicros.accumulate(micros);
+	}
+	
+	static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		//the two bits after the highest bit select the sub bucket
+		int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+		return Math.min((exponent - 1) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+	}
+	
+	/**
+	 * The highest latency (in microseconds) that is counted in the bucket.
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + 1;
+		int subBucket = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1L) << (exponent - 2)) - 1;
+	}
+	
+	/**
+	 * The latency (in milliseconds) below which the given quantile (0 to 1) of all latencies is (or 0 if nothing was recorded).
+	 */
+	public double getPercentileMillis(double quantile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max((long) Math.ceil(quantile * total), 1);
+		for (int i = 0; i < BUCKETS; i++) {
+			rank -= counts[i];
+			if (rank <= 0) {
+				//the bucket's bound can be higher than the highest recorded latency
+				return Math.min(bucketUpperBound(i), maxMicros.get()) / 1000d;
+			}
+		}
+		return maxMicros.get() / 1000d;
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : sumMicros.sum() / 1000d / n;
+	}
+	public double getMaxMillis() {
+		return maxMicros.get() / 1000d;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A log parameter for request and response payloads (or objects that contain them, like parsed responses), that is only rendered if the message is
+ * actually logged and that is truncated to {@link #getMaxLength()} characters, so logging a request with a large note text doesn't copy the
+ * whole payload.
+ *
+ * Log4j2 appends the payload directly to the message's buffer (see {@link StringBuilderFormattable}); {@link #toString()} renders the
+ * (truncated) payload for exception messages.
+ */
+public class LogPayload implements StringBuilderFormattable {
+	
+	/**
+	 * The default maximum length of a logged payload (in characters).
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 1000;
+	
+	private static volatile int maxLength = DEFAULT_MAX_LENGTH;
+	
+	private final byte[] body;
+	private final WireFormat format;
+	private final Object value;
+	
+	private LogPayload(byte[] body, WireFormat format, Object value) {
+		this.body = body;
+		this.format = format;
+		this.value = value;
+	}
+	
+	/**
+	 * An encoded request or response body (the text of JSON, only the size of the binary formats).
+	 */
+	public static LogPayload of(byte[] body, WireFormat format) {
+		return new LogPayload(body, format, null);
+	}
+	/**
+	 * Any object, that is logged using it's toString method. Notes are logged without their text (only it's length), so the text is not copied.
+	 */
+	public static LogPayload of(Object value) {
+		return new LogPayload(null, null, value);
+	}
+	
+	@Override
+	public void formatTo(StringBuilder buffer) {
+		int max = maxLength;
+		if (body != null) {
+			if (format.isBinary() || max == 0) {
+				appendSize(buffer);
+			}
+			else if (max < 0 || body.length <= max) {
+				buffer.append(new String(body, StandardCharsets.UTF_8));
+			}
+			else {
+				//a multi-byte character can be cut at the end, which is acceptable for a log message
+				buffer.append(new String(body, 0, max, StandardCharsets.UTF_8)).append("... ");
+				appendSize(buffer);
+			}
+		}
+		else {
+			String text = value instanceof Note ? describe((Note) value) : String.valueOf(value);
+			if (max < 0 || text.length() <= max) {
+				buffer.append(text);
+			}
+			else {
+				buffer.append(text, 0, max).append("... <").append(text.length()).append(" chars>");
+			}
+		}
+	}
+	
+	private static String describe(Note note) {
+		return "Note [id=" + note.getId() + ", headline=" + note.getHeadline() + ", noteText=" + (note.getNoteText() == null ? null
+				: note.getNoteText().length() + " chars") + ", priority=" + note.getPriority() + ", executionDates=" + note.getExecutionDates()
+				+ ", reminderDates=" + note.getReminderDates() + "]";
+	}
+	
+	private void appendSize(StringBuilder buffer) {
+		buffer.append('<').append(body.length).append(" bytes of ").append(format.name()).append('>');
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		formatTo(buffer);
+		return buffer.toString();
+	}
+	
+	/**
+	 * The maximum number of characters (or bytes of an encoded body) of a logged payload (0 to log only the size of encoded bodies; a negative
+	 * value to log the whole payloads).
+	 */
+	public static int getMaxLength() {
+		return maxLength;
+	}
+	public static void setMaxLength(int maxLength) {
+		LogPayload.maxLength = maxLength;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A snapshot of the metrics of one JSON-RPC method (see {@link ClientMetrics}). The latencies include the encoding of the request and the
+ * parsing of the response; the payload sizes are the sizes of the encoded (uncompressed) bodies.
+ */
+public class MethodStatistics {
+	
+	private final String method;
+	private final long requests;
+	private final long errors;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+	private final long requestBytes;
+	private final long responseBytes;
+	
+	@ConstructorProperties({"method", "requests", "errors", "meanMillis", "p50Millis", "p99Millis", "maxMillis", "requestBytes", "responseBytes"})
+	public MethodStatistics(String method, long requests, long errors, double meanMillis, double p50Millis, double p99Millis, double maxMillis,
+			long requestBytes, long responseBytes) {
+		this.method = method;
+		this.requests = requests;
+		this.errors = errors;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+	}
+	
+	@Override
+	public String toString() {
+		return "MethodStatistics [method=" + method + ", requests=" + requests + ", errors=" + errors + ", meanMillis=" + meanMillis + ", p50Millis="
+				+ p50Millis + ", p99Millis=" + p99Millis + ", maxMillis=" + maxMillis + ", requestBytes=" + requestBytes + ", responseBytes="
+				+ responseBytes + "]";
+	}
+	
+	public String getMethod() {
+		return method;
+	}
+	/**
+	 * The number of requests (including the failed requests).
+	 */
+	public long getRequests() {
+		return requests;
+	}
+	public long getErrors() {
+		return errors;
+	}
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+	public double getP50Millis() {
+		return p50Millis;
+	}
+	public double getP99Millis() {
+		return p99Millis;
+	}
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+	/**
+	 * The sum of the sizes of all request bodies.
+	 */
+	public long getRequestBytes() {
+		return requestBytes;
+	}
+	/**
+	 * The sum of the sizes of all response bodies.
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+}
\ No newline at end of file
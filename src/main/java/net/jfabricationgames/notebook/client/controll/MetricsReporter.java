@@ -0,0 +1,134 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reports the {@link ClientMetrics} periodically to the log and (optionally) appends them to a CSV file. The reported values are the totals
+ * since the metrics were created (or reset).
+ */
+public class MetricsReporter {
+	
+	private static final Logger LOGGER = LogManager.getLogger(MetricsReporter.class);
+	
+	public static final String CSV_HEADER = "time,name,method,requests,errors,mean_ms,p50_ms,p99_ms,max_ms,request_bytes,response_bytes,"
+			+ "leased_connections,available_connections,pending_connections";
+	
+	private final ClientMetrics metrics;
+	private final String name;
+	private final Path csvFile;
+	
+	private ScheduledExecutorService timer;
+	
+	/**
+	 * @param name
+	 *        Identifies the reported metrics (e.g. the host).
+	 *
+	 * @param csvFile
+	 *        The file that the metrics are appended to (or null to report them to the log only).
+	 */
+	public MetricsReporter(ClientMetrics metrics, String name, Path csvFile) {
+		this.metrics = metrics;
+		this.name = name;
+		this.csvFile = csvFile;
+	}
+	
+	/**
+	 * Report the metrics in the given interval (until the reporter is stopped).
+	 */
+	public synchronized void start(long intervalSeconds) {
+		if (timer != null) {
+			return;
+		}
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "MetricsReporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Stop reporting (the metrics are reported a last time).
+	 */
+	public synchronized void stop() {
+		if (timer != null) {
+			timer.shutdownNow();
+			timer = null;
+			report();
+		}
+	}
+	
+	/**
+	 * Report the current metrics.
+	 */
+	public void report() {
+		try {
+			List<MethodStatistics> statistics = metrics.getMethodStatistics();
+			PoolStats poolStats = metrics.getPoolStats();
+			for (MethodStatistics method : statistics) {
+				LOGGER.info("{} - {}: {} requests, {} errors, mean {} ms, p50 {} ms, p99 {} ms, max {} ms, {} request bytes, {} response bytes", name,
+						method.getMethod(), method.getRequests(), method.getErrors(), format(method.getMeanMillis()), format(method.getP50Millis()),
+						format(method.getP99Millis()), format(method.getMaxMillis()), method.getRequestBytes(), method.getResponseBytes());
+			}
+			LOGGER.info("{} - errors by type: {}; connections: {} leased, {} available, {} pending", name, metrics.getErrorsByType(),
+					poolStats.getLeased(), poolStats.getAvailable(), poolStats.getPending());
+			
+			if (csvFile != null) {
+				writeCsv(statistics, poolStats);
+			}
+		}
+		catch (RuntimeException e) {
+			//an exception would stop the timer
+			LOGGER.error("The client metrics couldn't be reported", e);
+		}
+	}
+	
+	private void writeCsv(List<MethodStatistics> statistics, PoolStats poolStats) {
+		String time = LocalDateTime.now().toString();
+		List<String> lines = new ArrayList<String>(statistics.size() + 1);
+		for (MethodStatistics method : statistics) {
+			lines.add(String.join(",", time, csvValue(name), csvValue(method.getMethod()), Long.toString(method.getRequests()),
+					Long.toString(method.getErrors()), format(method.getMeanMillis()), format(method.getP50Millis()), format(method.getP99Millis()),
+					format(method.getMaxMillis()), Long.toString(method.getRequestBytes()), Long.toString(method.getResponseBytes()),
+					Integer.toString(poolStats.getLeased()), Integer.toString(poolStats.getAvailable()), Integer.toString(poolStats.getPending())));
+		}
+		//the reporters of several transports can write to the same file
+		synchronized (MetricsReporter.class) {
+			try {
+				if (!Files.exists(csvFile) || Files.size(csvFile) == 0) {
+					lines.add(0, CSV_HEADER);
+				}
+				Files.write(csvFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+			catch (IOException ioe) {
+				LOGGER.error("The client metrics couldn't be written to the file: {}", csvFile, ioe);
+			}
+		}
+	}
+	
+	private static String format(double millis) {
+		return String.format(Locale.ROOT, "%.3f", millis);
+	}
+	
+	private static String csvValue(String value) {
+		if (value.contains(",") || value.contains("\"")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+}
\ No newline at end of file
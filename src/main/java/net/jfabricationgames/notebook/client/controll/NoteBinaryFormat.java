@@ -0,0 +1,179 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A compact binary representation of notes for the local files of the client (much smaller and faster to read than JSON).
+ */
+final class NoteBinaryFormat {
+	
+	/**
+	 * Writes the content of a file (after the header).
+	 */
+	@FunctionalInterface
+	interface DataWriter {
+		
+		public void write(DataOutputStream out) throws IOException;
+	}
+	
+	/**
+	 * Reads the content of a file (after the header).
+	 */
+	@FunctionalInterface
+	interface DataReader<T> {
+		
+		public T read(DataInputStream in) throws IOException;
+	}
+	
+	private NoteBinaryFormat() {}
+	
+	/**
+	 * Write a file with a header (magic number and schema version), the content and a CRC32 checksum. The file is written to a temporary file
+	 * first, that is moved to the target file afterwards, so a crash while writing never leaves a broken file.
+	 */
+	public static void writeFileAtomically(Path file, int magic, int version, DataWriter writer) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileOutputStream fileOutput = new FileOutputStream(tempFile.toFile())) {
+			CheckedOutputStream checkedOutput = new CheckedOutputStream(new BufferedOutputStream(fileOutput), new CRC32());
+			DataOutputStream out = new DataOutputStream(checkedOutput);
+			
+			out.writeInt(magic);
+			out.writeInt(version);
+			writer.write(out);
+			out.writeLong(checkedOutput.getChecksum().getValue());
+			out.flush();
+			
+			//make sure the data is on the disk before the old file is replaced
+			fileOutput.getFD().sync();
+		}
+		
+		try {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException amnse) {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Read a file that was written by {@link #writeFileAtomically(Path, int, int, DataWriter)}.
+	 * 
+	 * @throws IOException
+	 *         If the file can't be read, has another magic number or schema version or the checksum is invalid.
+	 */
+	public static <T> T readFile(Path file, int magic, int version, DataReader<T> reader) throws IOException {
+		try (InputStream fileInput = Files.newInputStream(file)) {
+			CheckedInputStream checkedInput = new CheckedInputStream(new BufferedInputStream(fileInput), new CRC32());
+			DataInputStream in = new DataInputStream(checkedInput);
+			
+			int fileMagic = in.readInt();
+			int fileVersion = in.readInt();
+			if (fileMagic != magic || fileVersion != version) {
+				throw new IOException("unknown file format or schema version: " + fileVersion + " (expected: " + version + ")");
+			}
+			
+			T content = reader.read(in);
+			
+			long checksum = checkedInput.getChecksum().getValue();
+			if (in.readLong() != checksum) {
+				throw new IOException("invalid checksum");
+			}
+			return content;
+		}
+	}
+	
+	public static void writeNote(DataOutputStream out, Note note) throws IOException {
+		out.writeInt(note.getId());
+		writeString(out, note.getHeadline());
+		writeString(out, note.getNoteText());
+		out.writeInt(note.getPriority());
+		writeDates(out, note.getExecutionDates());
+		writeDates(out, note.getReminderDates());
+	}
+	
+	public static Note readNote(DataInputStream in) throws IOException {
+		Note note = new Note();
+		note.setId(in.readInt());
+		note.setHeadline(readString(in));
+		note.setNoteText(readString(in));
+		note.setPriority(in.readInt());
+		note.setExecutionDates(readDates(in));
+		note.setReminderDates(readDates(in));
+		return note;
+	}
+	
+	/**
+	 * Write a string as length prefixed UTF-8 bytes (a length of -1 means null). Unlike {@link DataOutputStream#writeUTF(String)} this is not
+	 * limited to 64KB.
+	 */
+	public static void writeString(DataOutputStream out, String text) throws IOException {
+		if (text == null) {
+			out.writeInt(-1);
+		}
+		else {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	
+	public static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void writeDates(DataOutputStream out, List<LocalDateTime> dates) throws IOException {
+		if (dates == null) {
+			out.writeInt(-1);
+			return;
+		}
+		//null dates are not stored (they are removed in the UI anyway)
+		int size = (int) dates.stream().filter(date -> date != null).count();
+		out.writeInt(size);
+		for (LocalDateTime date : dates) {
+			if (date != null) {
+				out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+				out.writeInt(date.getNano());
+			}
+		}
+	}
+	
+	private static List<LocalDateTime> readDates(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		List<LocalDateTime> dates = new ArrayList<LocalDateTime>(size);
+		for (int i = 0; i < size; i++) {
+			long epochSecond = in.readLong();
+			int nano = in.readInt();
+			dates.add(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+		}
+		return dates;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A local (disk-backed) copy of the notes, that is loaded on startup, so the notes can be shown before they were loaded from the server.
+ * 
+ * The file starts with a header (magic number and schema version) followed by the notes in the {@link NoteBinaryFormat} and a CRC32
+ * checksum. The file is written to a temporary file first, that is moved to the cache file afterwards, so a crash while writing never
+ * leaves a broken cache. Cache files with another schema version or an invalid checksum are ignored.
+ */
+public class NoteCache {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteCache.class);
+	
+	public static final String DEFAULT_CACHE_FILE = "./notebookclient.notes.cache";
+	
+	public static final int MAGIC = 0x4E424E43;//"NBNC"
+	public static final int SCHEMA_VERSION = 1;
+	
+	public static final long DEFAULT_SAVE_DELAY = 2000;
+	
+	private final Path cacheFile;
+	private final long saveDelay;
+	
+	private final ScheduledExecutorService writer;
+	private Supplier<List<Note>> pendingSave;
+	private boolean saveScheduled;
+	
+	public NoteCache() {
+		this(Paths.get(DEFAULT_CACHE_FILE), DEFAULT_SAVE_DELAY);
+	}
+	
+	public NoteCache(Path cacheFile, long saveDelay) {
+		this.cacheFile = cacheFile;
+		this.saveDelay = saveDelay;
+		writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "NoteCache-Writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Load the cached notes. If there is no (valid) cache file an empty list is returned.
+	 */
+	public List<Note> load() {
+		if (!Files.exists(cacheFile)) {
+			LOGGER.info("no note cache found ({})", cacheFile);
+			return new ArrayList<Note>();
+		}
+		
+		long startTime = System.currentTimeMillis();
+		try {
+			List<Note> notes = NoteBinaryFormat.readFile(cacheFile, MAGIC, SCHEMA_VERSION, in -> {
+				int size = in.readInt();
+				List<Note> cachedNotes = new ArrayList<Note>(size);
+				for (int i = 0; i < size; i++) {
+					cachedNotes.add(NoteBinaryFormat.readNote(in));
+				}
+				return cachedNotes;
+			});
+			
+			LOGGER.info("loaded {} notes from the note cache in {}ms", notes.size(), System.currentTimeMillis() - startTime);
+			return notes;
+		}
+		catch (IOException | RuntimeException e) {
+			LOGGER.warn("note cache {} couldn't be loaded; ignoring it", cacheFile, e);
+			return new ArrayList<Note>();
+		}
+	}
+	
+	/**
+	 * Write the notes to the cache file (atomically replacing the old cache file).
+	 */
+	public synchronized void save(List<Note> notes) throws IOException {
+		long startTime = System.currentTimeMillis();
+		NoteBinaryFormat.writeFileAtomically(cacheFile, MAGIC, SCHEMA_VERSION, out -> {
+			out.writeInt(notes.size());
+			for (Note note : notes) {
+				NoteBinaryFormat.writeNote(out, note);
+			}
+		});
+		LOGGER.debug("saved {} notes to the note cache in {}ms", notes.size(), System.currentTimeMillis() - startTime);
+	}
+	
+	/**
+	 * Save the notes in the background. Saves that are scheduled within the save delay are combined into one write (using the latest notes).
+	 */
+	public void scheduleSave(Supplier<List<Note>> notes) {
+		synchronized (writer) {
+			pendingSave = notes;
+			if (!saveScheduled) {
+				saveScheduled = true;
+				writer.schedule(this::savePending, saveDelay, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+	
+	/**
+	 * Save the pending notes (if there are any) on the calling thread.
+	 */
+	public void flush() {
+		savePending();
+	}
+	
+	/**
+	 * Save the pending notes and stop the background writer.
+	 */
+	public void close() {
+		flush();
+		writer.shutdown();
+	}
+	
+	private void savePending() {
+		Supplier<List<Note>> notes;
+		synchronized (writer) {
+			notes = pendingSave;
+			pendingSave = null;
+			saveScheduled = false;
+		}
+		if (notes != null) {
+			try {
+				save(notes.get());
+			}
+			catch (IOException ioe) {
+				LOGGER.error("note cache couldn't be saved", ioe);
+			}
+		}
+	}
+	
+	/**
+	 * Delete the cache file.
+	 */
+	public synchronized void clear() throws IOException {
+		Files.deleteIfExists(cacheFile);
+		synchronized (writer) {
+			pendingSave = null;
+		}
+	}
+}
\ No newline at end of file
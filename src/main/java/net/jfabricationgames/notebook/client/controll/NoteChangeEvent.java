@@ -0,0 +1,91 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A note that was created, updated or deleted on the server (by any client), as it's sent by the change notifications (see
+ * {@link NoteChangeSubscriber}).
+ */
+public class NoteChangeEvent {
+	
+	public enum Type {
+		
+		CREATED("note_created"), UPDATED("note_updated"), DELETED("note_deleted");
+		
+		private final String eventName;
+		
+		private Type(String eventName) {
+			this.eventName = eventName;
+		}
+		
+		/**
+		 * The type of the event name (or null if the name is no note change).
+		 */
+		public static Type forEventName(String eventName) {
+			for (Type type : values()) {
+				if (type.eventName.equals(eventName)) {
+					return type;
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * The name of the server-sent event.
+		 */
+		public String getEventName() {
+			return eventName;
+		}
+	}
+	
+	private final Type type;
+	private final int noteId;
+	private final Note note;
+	
+	public NoteChangeEvent(Type type, int noteId, Note note) {
+		this.type = type;
+		this.noteId = noteId;
+		this.note = note;
+	}
+	
+	/**
+	 * Parse the data of a server-sent event: the created or updated note (in JSON) or the id of the deleted note.
+	 */
+	public static NoteChangeEvent parse(Type type, String data) throws IOException {
+		if (data == null) {
+			throw new IOException("The event " + type.getEventName() + " contains no data");
+		}
+		if (type == Type.DELETED) {
+			try {
+				return new NoteChangeEvent(type, Integer.parseInt(data.trim()), null);
+			}
+			catch (NumberFormatException nfe) {
+				throw new IOException("The data of the event " + type.getEventName() + " is no note id: " + data, nfe);
+			}
+		}
+		Note note = NoteClient.readNote(data);
+		return new NoteChangeEvent(type, note.getId(), note);
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public int getNoteId() {
+		return noteId;
+	}
+	
+	/**
+	 * The created or updated note (or null if the note was deleted).
+	 */
+	public Note getNote() {
+		return note;
+	}
+	
+	@Override
+	public String toString() {
+		return "NoteChangeEvent [type=" + type + ", noteId=" + noteId + "]";
+	}
+}
\ No newline at end of file
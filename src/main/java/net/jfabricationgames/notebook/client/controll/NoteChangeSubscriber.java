@@ -0,0 +1,264 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.sse.InboundSseEvent;
+import javax.ws.rs.sse.SseEventSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+
+/**
+ * Keeps the local notes of a {@link NoteManager} up to date with the changes of other clients, without loading all notes again.
+ *
+ * The changes are pushed by the server as server-sent events (see {@link NoteChangeEvent}) and applied to the local notes one by one. If the
+ * server doesn't send the events (or the stream is ended), the notes are polled with conditional requests instead (see
+ * {@link NoteManager#loadNotesIfChanged()}), that only transfer the notes if they were changed (or only the new notes, if the server doesn't
+ * support conditional requests), and the events are subscribed again later.
+ *
+ * The subscription is confirmed by the first event. The server should send a {@value #SUBSCRIBED_EVENT} event whenever the stream is
+ * (re-)opened: the notes are polled once then, to load the changes that were made while no events were received.
+ */
+public class NoteChangeSubscriber {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteChangeSubscriber.class);
+	
+	/**
+	 * The event that confirms the subscription (without a note change).
+	 */
+	public static final String SUBSCRIBED_EVENT = "subscribed";
+	
+	private final NoteManager noteManager;
+	//the target is requested for every subscription, so the currently preferred host is used
+	private final Supplier<WebTarget> notificationTarget;
+	private final int pollInterval;
+	private final int retryInterval;
+	//polls the notes and subscribes the events again (the events are received by the threads of the event source)
+	private final ScheduledThreadPoolExecutor scheduler;
+	
+	private SseEventSource eventSource;
+	//whether an event was received from the current event source
+	private boolean subscribed;
+	private ScheduledFuture<?> pollTask;
+	private ScheduledFuture<?> retryTask;
+	private boolean closed;
+	
+	private volatile Listener listener;
+	
+	/**
+	 * Is informed when the local notes were changed by the changes of other clients (on a thread of the subscriber).
+	 */
+	public interface Listener {
+		
+		public void notesChanged();
+	}
+	
+	/**
+	 * Create a subscriber that uses the shared transport and it's configuration (see {@link HostConfiguration#getNotificationPath()}).
+	 */
+	public NoteChangeSubscriber(NoteManager noteManager) {
+		this(noteManager, JsonRpcTransport.getInstance());
+	}
+	
+	public NoteChangeSubscriber(NoteManager noteManager, JsonRpcTransport transport) {
+		this(noteManager, transport::getNotificationTarget, transport.getHostConfiguration().getPollInterval(),
+				transport.getHostConfiguration().getNotificationRetryInterval());
+	}
+	
+	/**
+	 * @param notificationTarget
+	 *        Supplies the target of the server-sent events (or null if the notes are only polled).
+	 *
+	 * @param pollInterval
+	 *        The interval (in seconds) in which the notes are polled while no events are received (0 to disable the polling).
+	 *
+	 * @param retryInterval
+	 *        The time (in seconds) after which the events are subscribed again, if the subscription failed (0 to not subscribe them again).
+	 */
+	public NoteChangeSubscriber(NoteManager noteManager, Supplier<WebTarget> notificationTarget, int pollInterval, int retryInterval) {
+		this.noteManager = noteManager;
+		this.notificationTarget = notificationTarget;
+		this.pollInterval = pollInterval;
+		this.retryInterval = retryInterval;
+		scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "NoteChangeSubscriber");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+	
+	/**
+	 * Subscribe the change events. The notes are polled until the subscription is confirmed.
+	 */
+	public synchronized void start() {
+		startPolling();
+		subscribe();
+	}
+	
+	private synchronized void subscribe() {
+		retryTask = null;
+		if (closed) {
+			return;
+		}
+		WebTarget target = notificationTarget.get();
+		if (target == null) {
+			LOGGER.info("The change notifications are disabled; polling the notes every {}s", pollInterval);
+			return;
+		}
+		
+		LOGGER.info("Subscribing to the note changes at {}", target.getUri());
+		SseEventSource source = SseEventSource.target(target).build();
+		source.register(event -> eventReceived(source, event), throwable -> subscriptionEnded(source, throwable),
+				() -> subscriptionEnded(source, null));
+		eventSource = source;
+		subscribed = false;
+		try {
+			source.open();
+		}
+		catch (IllegalStateException | ProcessingException e) {
+			subscriptionEnded(source, e);
+		}
+	}
+	
+	private void eventReceived(SseEventSource source, InboundSseEvent event) {
+		boolean confirmed;
+		synchronized (this) {
+			if (source != eventSource) {
+				return;
+			}
+			confirmed = !subscribed;
+			if (confirmed) {
+				LOGGER.info("The note changes are subscribed; stopped polling the notes");
+				subscribed = true;
+				stopPolling();
+			}
+		}
+		
+		if (confirmed || SUBSCRIBED_EVENT.equals(event.getName())) {
+			//the changes that were made before the stream was opened are not sent
+			pollLater();
+		}
+		NoteChangeEvent.Type type = NoteChangeEvent.Type.forEventName(event.getName());
+		if (type == null) {
+			LOGGER.debug("Ignoring the event: {}", event.getName());
+			return;
+		}
+		
+		NoteChangeEvent change;
+		try {
+			change = NoteChangeEvent.parse(type, event.readData());
+		}
+		catch (IOException | ProcessingException e) {
+			LOGGER.error("The change event {} couldn't be read", event.getName(), e);
+			return;
+		}
+		LOGGER.debug("Received change event: {}", change);
+		if (noteManager.applyRemoteChange(change)) {
+			notesChanged();
+		}
+	}
+	
+	private synchronized void subscriptionEnded(SseEventSource source, Throwable cause) {
+		if (source != eventSource) {
+			return;
+		}
+		eventSource = null;
+		subscribed = false;
+		//the source is closed by the scheduler, because it waits for the thread of the source, that might call this method
+		scheduler.execute(source::close);
+		if (closed) {
+			return;
+		}
+		
+		LOGGER.warn("The subscription of the note changes was ended; polling the notes every {}s (subscribing again in {}s)", pollInterval,
+				retryInterval, cause);
+		startPolling();
+		if (retryInterval > 0) {
+			retryTask = scheduler.schedule(this::subscribe, retryInterval, TimeUnit.SECONDS);
+		}
+	}
+	
+	private synchronized void startPolling() {
+		if (closed || pollInterval <= 0 || pollTask != null) {
+			return;
+		}
+		pollTask = scheduler.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.SECONDS);
+	}
+	private synchronized void stopPolling() {
+		if (pollTask != null) {
+			pollTask.cancel(false);
+			pollTask = null;
+		}
+	}
+	private synchronized void pollLater() {
+		if (!closed) {
+			scheduler.execute(this::poll);
+		}
+	}
+	
+	private void poll() {
+		try {
+			if (noteManager.loadNotesIfChanged()) {
+				notesChanged();
+			}
+		}
+		catch (NoteBookException e) {
+			LOGGER.warn("The notes couldn't be polled", e);
+		}
+		catch (RuntimeException e) {
+			//an exception would stop the polling
+			LOGGER.error("The polled notes couldn't be applied", e);
+		}
+	}
+	
+	private void notesChanged() {
+		Listener currentListener = listener;
+		if (currentListener != null) {
+			try {
+				currentListener.notesChanged();
+			}
+			catch (RuntimeException e) {
+				LOGGER.error("The listener couldn't be informed about the changed notes", e);
+			}
+		}
+	}
+	
+	/**
+	 * Whether the change events are received at the moment (false if the notes are polled).
+	 */
+	public synchronized boolean isSubscribed() {
+		return subscribed;
+	}
+	
+	public Listener getListener() {
+		return listener;
+	}
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Close the subscription and stop the polling.
+	 */
+	public synchronized void close() {
+		closed = true;
+		stopPolling();
+		if (retryTask != null) {
+			retryTask.cancel(false);
+		}
+		if (eventSource != null) {
+			eventSource.close(1, TimeUnit.SECONDS);
+			eventSource = null;
+		}
+		scheduler.shutdownNow();
+	}
+}
\ No newline at end of file
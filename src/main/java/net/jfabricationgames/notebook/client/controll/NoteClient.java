@@ -1,30 +1,29 @@
 package net.jfabricationgames.notebook.client.controll;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
-import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
 import net.jfabricationgames.json_rpc.JsonRpcRequest;
 import net.jfabricationgames.json_rpc.JsonRpcResponse;
 import net.jfabricationgames.notebook.client.error.NoteBookCommunicationException;
+import net.jfabricationgames.notebook.client.error.NoteBookConflictException;
 import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.client.error.NoteBookNotSentException;
+import net.jfabricationgames.notebook.client.error.NoteBookRpcException;
 import net.jfabricationgames.notebook.note.Note;
 import net.jfabricationgames.notebook.note.NoteSelector;
 import net.jfabricationgames.notebook.service.NoteBookServiceMethods;
@@ -34,46 +33,155 @@ public class NoteClient {
 	private static final Logger LOGGER = LogManager.getLogger(NoteClient.class);
 	
 	public static final String JSON_RPC = "2.0";
+	/**
+	 * The method that updates only the changed fields of a note (see {@link NotePatch}). Not all service versions support it.
+	 */
+	public static final String PATCH_NOTE = "patch_note";
+	
+	//maps the notes of the responses (the notes are serialized by the service like the client serializes the request parameters); the streamed
+	//and the parsed get_notes results are mapped by the same configuration
+	private static final ObjectMapper NOTE_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule())
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	//reads the notes of a get_notes response directly
+	private static final ObjectReader NOTE_READER = NOTE_MAPPER.readerFor(Note.class);
+	
+	//the request ids are unique for all clients (the clients can be used by several threads)
+	private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+	
+	private final JsonRpcTransport transport;
+	//caches the results of get_notes requests (null if the cache is disabled)
+	private final NoteSelectorCache selectorCache;
 	
-	private static int id = 1;
+	//set to false when the server answers that it doesn't know the patch method (all updates are sent as full updates then)
+	private volatile boolean patchSupported = true;
+	
+	/**
+	 * Create a client that uses the shared (pooled) transport to the configured host.
+	 */
+	public NoteClient() {
+		this(JsonRpcTransport.getInstance());
+	}
+	
+	public NoteClient(JsonRpcTransport transport) {
+		this.transport = transport;
+		HostConfiguration hostConfig = transport.getHostConfiguration();
+		if (hostConfig.getSelectorCacheSize() > 0) {
+			selectorCache = new NoteSelectorCache(hostConfig.getSelectorCacheSize(), hostConfig.getSelectorCacheTimeToLive());
+		}
+		else {
+			selectorCache = null;
+		}
+	}
 	
 	public int createNote(Note note) throws NoteBookException {
-		LOGGER.info("creating note: {}", note);
-		
-		//create a request for adding a new note
-		JsonRpcRequest request = createGenericRequest();
-		request.setMethod(NoteBookServiceMethods.CREATE_NOTE.getMethodName());
-		request.setParams(note);
+		LOGGER.info("creating note: {}", LogPayload.of(note));
 		
-		JsonRpcResponse response = sendRequestAndReceiveResponse(request);
-		
-		//parse the response
-		if (response.getResult() instanceof Integer) {
-			Integer responseInt = (Integer) response.getResult();
-			LOGGER.info("Received note's id: {}", responseInt);
-			return responseInt.intValue();
+		Integer noteId = null;
+		try {
+			JsonRpcResponse response = sendRequestAndReceiveResponse(createNoteRequest(note));
+			
+			//parse the response
+			noteId = parseIntResult(response, "Create");
+			LOGGER.info("Received note's id: {}", noteId);
+			return noteId;
 		}
-		else {
-			LOGGER.error("Create: Response's result is not integer: {}", response.getResult());
-			throw new NoteBookCommunicationException("The response's result could not be interpreted as Integer");
+		finally {
+			noteCreated(note, noteId);
 		}
 	}
 	
 	public List<Note> getNotes(NoteSelector selector) throws NoteBookException {
+		List<Note> notes = new ArrayList<Note>();
+		getNotes(selector, notes::add);
+		return notes;
+	}
+	
+	/**
+	 * Request the notes and pass them to the consumer one by one, while the response is received and parsed (so the response is never held in
+	 * memory as a whole and the first notes can be used before the last ones are received).
+	 * 
+	 * @return The number of notes that were passed to the consumer.
+	 */
+	public int getNotes(NoteSelector selector, Consumer<Note> consumer) throws NoteBookException {
+		List<Note> cachedNotes = getCachedNotes(selector);
+		if (cachedNotes != null) {
+			cachedNotes.forEach(consumer);
+			return cachedNotes.size();
+		}
 		LOGGER.info("reqeusting notes with selector: {}", selector);
 		
-		//create a request for adding a new note
-		JsonRpcRequest request = createGenericRequest();
-		request.setMethod(NoteBookServiceMethods.GET_NOTES.getMethodName());
-		request.setParams(selector);
-		
-		JsonRpcResponse response = sendRequestAndReceiveResponse(request);
-		
+		Consumer<Note> noteConsumer = consumer;
+		NoteSelectorCache.Load load = null;
+		if (selectorCache != null) {
+			load = selectorCache.startLoad(selector, consumer);
+			noteConsumer = load;
+		}
+		Consumer<Note> resultConsumer = noteConsumer;
+		int notes = transport.sendStreaming(getNotesRequest(selector), parser -> readNotes(parser, resultConsumer));
+		LOGGER.info("Received {} notes", notes);
+		if (load != null) {
+			load.completed();
+		}
+		return notes;
+	}
+	
+	/**
+	 * Request the notes only if they were changed on the server since they were received with the entity tag (see
+	 * {@link JsonRpcTransport#sendStreamingIfChanged(JsonRpcRequest, String, JsonRpcTransport.ResultParser)}). The selector cache is not
+	 * used, because the result has to show the changes of other clients.
+	 * 
+	 * @param entityTag
+	 *        The entity tag of the last result (or null to request the notes unconditionally).
+	 */
+	public JsonRpcTransport.ConditionalResult<List<Note>> getNotesIfChanged(NoteSelector selector, String entityTag) throws NoteBookException {
+		LOGGER.info("requesting notes with selector: {} (if changed since: {})", selector, entityTag);
+		List<Note> notes = new ArrayList<Note>();
+		JsonRpcTransport.ConditionalResult<List<Note>> result = transport.sendStreamingIfChanged(getNotesRequest(selector), entityTag, parser -> {
+			readNotes(parser, notes::add);
+			return notes;
+		});
+		if (result.isModified()) {
+			LOGGER.info("Received {} notes", notes.size());
+		}
+		return result;
+	}
+	
+	/**
+	 * Read a single note from it's JSON representation (e.g. the data of a change notification).
+	 */
+	static Note readNote(String json) throws IOException {
+		return NOTE_READER.readValue(json);
+	}
+	
+	/**
+	 * Read the notes of a get_notes result (a JSON array of notes) from the parser, that is positioned at the start of the array.
+	 * 
+	 * @return The number of notes that were passed to the consumer.
+	 */
+	static int readNotes(JsonParser parser, Consumer<Note> consumer) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new IOException("The response's result is not a list");
+		}
+		int notes = 0;
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			consumer.accept(NOTE_READER.readValue(parser));
+			notes++;
+		}
+		if (parser.currentToken() != JsonToken.END_ARRAY) {
+			throw new IOException("The response's result could not be parsed to a list of notes (unexpected token: " + parser.currentToken() + ")");
+		}
+		return notes;
+	}
+	
+	/**
+	 * Parse the result of a get_notes response (a list of notes).
+	 */
+	public List<Note> parseNotesResult(JsonRpcResponse response) throws NoteBookCommunicationException {
 		if (response.getResult() instanceof List) {
 			try {
 				@SuppressWarnings("unchecked")
 				List<Object> responseList = (List<Object>) response.getResult();
-				List<Note> notes = responseList.stream().map(Note::fromJsonRpcParametersSave).collect(Collectors.toList());
+				List<Note> notes = responseList.stream().map(note -> NOTE_MAPPER.convertValue(note, Note.class)).collect(Collectors.toList());
 				return notes;
 			}
 			catch (Exception e) {
@@ -86,50 +194,166 @@ public class NoteClient {
 	}
 	
 	public int updateNote(Note note) throws NoteBookException {
-		LOGGER.info("updating note: {}", note);
-		
-		//create a request for adding a new note
-		JsonRpcRequest request = createGenericRequest();
-		request.setMethod(NoteBookServiceMethods.UPDATE_NOTE.getMethodName());
-		request.setParams(note);
+		LOGGER.info("updating note: {}", LogPayload.of(note));
 		
-		JsonRpcResponse response = sendRequestAndReceiveResponse(request);
-		
-		//parse the response
-		if (response.getResult() instanceof Integer) {
-			Integer responseInt = (Integer) response.getResult();
-			LOGGER.info("Update affected rows: {}", responseInt);
+		try {
+			JsonRpcResponse response = sendRequestAndReceiveResponse(updateNoteRequest(note));
 			
-			if (responseInt.intValue() <= 0) {
-				LOGGER.error("Update affected no rows");
-				throw new NoteBookCommunicationException("The update affected no rows");
-			}
-			return responseInt.intValue();
+			//parse the response
+			return parseUpdateResult(response);
 		}
-		else {
-			LOGGER.error("Update: Response's result is not integer: {}", response.getResult());
-			throw new NoteBookCommunicationException("The response's result could not be interpreted as Integer");
+		finally {
+			noteChanged(note);
+		}
+	}
+	
+	/**
+	 * Update only the changed fields of a note. If the server doesn't support patches, the whole note is sent (by an update_note request).
+	 * 
+	 * @throws NoteBookConflictException
+	 *         If the server rejects the patch, because it's not based on the server's version of the note (the note is not overwritten).
+	 */
+	public int patchNote(Note note, NotePatch patch) throws NoteBookException {
+		if (patchSupported) {
+			LOGGER.info("patching note: {}", patch);
+			try {
+				return parseUpdateResult(sendRequestAndReceiveResponse(patchNoteRequest(patch)));
+			}
+			catch (NoteBookRpcException nbre) {
+				if (nbre.isMethodNotFound()) {
+					patchNotSupported();
+				}
+				else if (nbre.isPatchConflict()) {
+					LOGGER.warn("The patch of note {} was rejected ({})", patch.getId(), nbre.getErrorMessage());
+					throw new NoteBookConflictException(patch.getId(), nbre);
+				}
+				else {
+					throw nbre;
+				}
+			}
+			finally {
+				noteChanged(note);
+			}
 		}
+		return updateNote(note);
 	}
 	
 	public int deleteNotes(NoteSelector selector) throws NoteBookException {
 		LOGGER.info("deleting notes: selector: {}", selector);
 		
-		//create a request for adding a new note
+		try {
+			JsonRpcResponse response = sendRequestAndReceiveResponse(deleteNotesRequest(selector));
+			
+			//parse the response
+			int affectedRows = parseIntResult(response, "Delete");
+			LOGGER.info("Deleted selected; affected rows: {}", affectedRows);
+			return affectedRows;
+		}
+		finally {
+			notesDeleted(selector);
+		}
+	}
+	
+	/**
+	 * Send many requests (e.g. created by {@link #createNoteRequest(Note)}, {@link #updateNoteRequest(Note)} or
+	 * {@link #deleteNotesRequest(NoteSelector)}) as JSON-RPC batches. The requests are split into batches of the maximum batch size (see
+	 * {@link HostConfiguration#getMaxBatchSize()}). The responses are correlated to the requests by their ids.<br>
+	 * If a batch fails, the responses of the earlier batches are still returned. The requests of the failed batch and the following (unsent)
+	 * batches are reported as failures (see {@link JsonRpcBatchResponse#getFailure(String)}); the unsent requests fail with a
+	 * {@link NoteBookNotSentException}.
+	 */
+	public JsonRpcBatchResponse executeBatch(List<JsonRpcRequest> requests) throws NoteBookException {
+		int maxBatchSize = Math.max(1, transport.getHostConfiguration().getMaxBatchSize());
+		LOGGER.info("executing {} requests in batches of up to {} requests", requests.size(), maxBatchSize);
+		
+		JsonRpcBatchResponse batchResponse = new JsonRpcBatchResponse();
+		try {
+			NoteBookException failure = null;
+			for (int i = 0; i < requests.size(); i += maxBatchSize) {
+				List<JsonRpcRequest> batch = requests.subList(i, Math.min(i + maxBatchSize, requests.size()));
+				if (failure != null) {
+					NoteBookException notSent = new NoteBookNotSentException("The request was not sent, because an earlier batch failed",
+							failure);
+					batch.forEach(request -> batchResponse.addFailure(request.getId(), notSent));
+					continue;
+				}
+				try {
+					batchResponse.addAll(transport.sendBatch(batch));
+				}
+				catch (NoteBookException nbe) {
+					LOGGER.error("batch of {} requests failed; {} following requests are not sent", batch.size(),
+							requests.size() - i - batch.size(), nbe);
+					failure = nbe;
+					batch.forEach(request -> batchResponse.addFailure(request.getId(), nbe));
+				}
+			}
+		}
+		finally {
+			for (JsonRpcRequest request : requests) {
+				requestExecuted(request);
+			}
+		}
+		return batchResponse;
+	}
+	
+	public JsonRpcRequest createNoteRequest(Note note) {
+		JsonRpcRequest request = createGenericRequest();
+		request.setMethod(NoteBookServiceMethods.CREATE_NOTE.getMethodName());
+		request.setParams(note);
+		return request;
+	}
+	
+	public JsonRpcRequest getNotesRequest(NoteSelector selector) {
+		JsonRpcRequest request = createGenericRequest();
+		request.setMethod(NoteBookServiceMethods.GET_NOTES.getMethodName());
+		request.setParams(selector);
+		return request;
+	}
+	
+	public JsonRpcRequest updateNoteRequest(Note note) {
+		JsonRpcRequest request = createGenericRequest();
+		request.setMethod(NoteBookServiceMethods.UPDATE_NOTE.getMethodName());
+		request.setParams(note);
+		return request;
+	}
+	
+	public JsonRpcRequest patchNoteRequest(NotePatch patch) {
+		JsonRpcRequest request = createGenericRequest();
+		request.setMethod(PATCH_NOTE);
+		request.setParams(patch);
+		return request;
+	}
+	
+	public JsonRpcRequest deleteNotesRequest(NoteSelector selector) {
 		JsonRpcRequest request = createGenericRequest();
 		request.setMethod(NoteBookServiceMethods.DELETE_NOTES.getMethodName());
 		request.setParams(selector);
+		return request;
+	}
+	
+	/**
+	 * Parse the result of an update_note response (the number of affected rows, that has to be positive).
+	 */
+	public int parseUpdateResult(JsonRpcResponse response) throws NoteBookCommunicationException {
+		int affectedRows = parseIntResult(response, "Update");
+		LOGGER.info("Update affected rows: {}", affectedRows);
 		
-		JsonRpcResponse response = sendRequestAndReceiveResponse(request);
-		
-		//parse the response
+		if (affectedRows <= 0) {
+			LOGGER.error("Update affected no rows");
+			throw new NoteBookCommunicationException("The update affected no rows");
+		}
+		return affectedRows;
+	}
+	
+	/**
+	 * Parse the integer result of a create_note (new id), update_note or delete_notes (affected rows) response.
+	 */
+	public int parseIntResult(JsonRpcResponse response, String operation) throws NoteBookCommunicationException {
 		if (response.getResult() instanceof Integer) {
-			Integer responseInt = (Integer) response.getResult();
-			LOGGER.info("Deleted selected; affected rows: {}", responseInt);
-			return responseInt.intValue();
+			return ((Integer) response.getResult()).intValue();
 		}
 		else {
-			LOGGER.error("Delete: Response's result is not integer: {}", response.getResult());
+			LOGGER.error("{}: Response's result is not integer: {}", operation, response.getResult());
 			throw new NoteBookCommunicationException("The response's result could not be interpreted as Integer");
 		}
 	}
@@ -142,107 +366,93 @@ public class NoteClient {
 	}
 	
 	private String getNextId() {
-		String currentId = Integer.toString(id);
-		id++;
-		return currentId;
+		return Integer.toString(NEXT_ID.getAndIncrement());
 	}
 	
 	private JsonRpcResponse sendRequestAndReceiveResponse(JsonRpcRequest request) throws NoteBookException {
-		//convert to JSON (added JavaTimeModule to correctly serialize LocalDateTime objects)
-		ObjectWriter ow = new ObjectMapper().registerModule(new JavaTimeModule()).writer().withDefaultPrettyPrinter();
-		String json;
-		try {
-			json = ow.writeValueAsString(request);
+		return transport.send(request);
+	}
+	
+	/**
+	 * The cached result of the selector (see {@link NoteSelectorCache}), or null if it's not cached.
+	 */
+	List<Note> getCachedNotes(NoteSelector selector) {
+		if (selectorCache == null) {
+			return null;
 		}
-		catch (JsonProcessingException e) {
-			LOGGER.error("Json representation failed", e);
-			throw new NoteBookException(e);
+		List<Note> cachedNotes = selectorCache.get(selector);
+		if (cachedNotes != null) {
+			LOGGER.info("Using {} cached notes for selector: {}", cachedNotes.size(), selector);
 		}
-		
-		//send the request to the server via POST
-		HostConfiguration hostConfig = HostConfiguration.getInstance();
-		Client client = ClientBuilder.newClient();
-		WebTarget webTarget = client.target(hostConfig.getHostUrlWithPort()).path(hostConfig.getHostResourcePath());
-		
-		LOGGER.info("Sending POST request to url: {}; request: {}", hostConfig.getHostUrlWithPort() + "/" + hostConfig.getHostResourcePath(),
-				toOneLineJson(json));
-		Response response = webTarget.request().accept(MediaType.APPLICATION_JSON).post(Entity.entity(json, MediaType.APPLICATION_JSON));
-		int responseCode = response.getStatus();
-		LOGGER.info("Server sent response code: " + responseCode);
-		
-		//check whether the response was OK or an error code
-		if (responseCode != Response.Status.OK.getStatusCode()) {
-			throw new NoteBookException("HTTP error code: " + responseCode);
+		return cachedNotes;
+	}
+	
+	//the changes invalidate the cached results they affect (also if the request failed, because the server might have executed it)
+	
+	/**
+	 * @param noteId
+	 *        The id of the created note (or null if the request failed).
+	 */
+	void noteCreated(Note note, Integer noteId) {
+		if (selectorCache == null) {
+			return;
 		}
-		else if (response.hasEntity()) {
-			//parse the response as integer
-			return parseResponse(response);
+		if (noteId == null) {
+			//the id of the note (if it was created) is not known, so every result could contain it
+			selectorCache.invalidateAll();
 		}
 		else {
-			throw new NoteBookException("The response was expected to contain data, but it's empty");
+			Note created = PendingOperation.copyOf(note);
+			created.setId(noteId);
+			selectorCache.noteChanged(created);
 		}
 	}
-	
-	/**
-	 * Create a one lined json text from a pretty formatted text (for the logs)
-	 */
-	private String toOneLineJson(String json) {
-		return Arrays.asList(json.split("\n")).stream().map(s -> s.trim()).collect(Collectors.joining(" "));
+	void noteChanged(Note note) {
+		if (selectorCache != null) {
+			selectorCache.noteChanged(note);
+		}
 	}
-	
-	private JsonRpcResponse parseResponse(Response response) throws NoteBookCommunicationException {
-		String responseText = response.readEntity(String.class);
-		try {
-			//try to parse the response as JsonRpcResponse
-			JsonRpcResponse content = getJsonRpcResponse(responseText);
-			
-			LOGGER.info("Response content from server: {}", content);
-			
-			return content;
+	void notesDeleted(NoteSelector selector) {
+		if (selectorCache != null) {
+			selectorCache.notesDeleted(selector);
 		}
-		catch (IllegalStateException ise) {
-			try {
-				//if the response is no JsonRpcResponse try to parse it as JsonRpcErrorResponse
-				JsonRpcErrorResponse error = getJsonRpcErrorResponse(responseText);
-				
-				LOGGER.error("Server responded with a JSON-RPC-Error: {}", error);
-			}
-			catch (IllegalStateException ise2) {
-				LOGGER.error("Response couldn't be parsed", ise2);
-				
-				throw new NoteBookCommunicationException("Response couldn't be parsed as JsonRpcResponse nor as JsonRpcErrorResponse", ise);
-			}
-			
-			throw new NoteBookCommunicationException("Response couldn't be parsed as JsonRpcResponse (was JsonRpcErrorResponse)", ise);
+	}
+	private void requestExecuted(JsonRpcRequest request) {
+		String method = request.getMethod();
+		Object params = request.getParams();
+		if (NoteBookServiceMethods.UPDATE_NOTE.getMethodName().equals(method) && params instanceof Note) {
+			noteChanged((Note) params);
+		}
+		else if (NoteBookServiceMethods.DELETE_NOTES.getMethodName().equals(method) && params instanceof NoteSelector) {
+			notesDeleted((NoteSelector) params);
+		}
+		else if (selectorCache != null && !NoteBookServiceMethods.GET_NOTES.getMethodName().equals(method)) {
+			//the ids of the created notes (or the notes changed by other requests) are not known here
+			selectorCache.invalidateAll();
 		}
 	}
 	
 	/**
-	 * Get a JsonRpcResponse from a Response object. (Deserializes JSON)
+	 * The cache of the get_notes results (or null if it's disabled).
 	 */
-	private JsonRpcResponse getJsonRpcResponse(String responseText) throws IllegalStateException {
-		ObjectMapper mapper = new ObjectMapper();
-		try {
-			//"manually" parse JSON to Object
-			JsonRpcResponse resp = mapper.readValue(responseText, JsonRpcResponse.class);
-			return resp;
-		}
-		catch (IOException e) {
-			throw new IllegalStateException("The response could not be read or parsed: " + responseText, e);
-		}
+	public NoteSelectorCache getSelectorCache() {
+		return selectorCache;
 	}
+	
 	/**
-	 * Get a JsonRpcErrorResponse from a Response object. (Deserializes JSON)
+	 * Whether the server might support patch_note requests (false after it answered a patch with "method not found").
 	 */
-	private JsonRpcErrorResponse getJsonRpcErrorResponse(String responseText) throws IllegalStateException {
-		ObjectMapper mapper = new ObjectMapper();
-		try {
-			//"manually" parse JSON to Object
-			JsonRpcErrorResponse resp = mapper.readValue(responseText, JsonRpcErrorResponse.class);
-			return resp;
-		}
-		catch (IOException e) {
-			throw new IllegalStateException("The response could not be read or parsed: " + responseText, e);
+	public boolean isPatchSupported() {
+		return patchSupported;
+	}
+	void patchNotSupported() {
+		if (patchSupported) {
+			LOGGER.warn("The server doesn't support {} requests; sending full updates", PATCH_NOTE);
+			patchSupported = false;
 		}
 	}
+	
+	public JsonRpcTransport getTransport() {
+		return transport;
+	}
 }
\ No newline at end of file
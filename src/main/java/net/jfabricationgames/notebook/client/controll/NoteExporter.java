@@ -0,0 +1,99 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.note.NoteSelector;
+
+/**
+ * Exports the notes of the server to a file (see {@link NoteFileFormat}). The notes are written while the response is received (see
+ * {@link NoteClient#getNotes(NoteSelector, Consumer)}), so they are never held in memory as a whole.
+ */
+public class NoteExporter {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteExporter.class);
+	
+	private final NoteClient client;
+	
+	private Consumer<TransferStatistics> progressListener;
+	
+	public NoteExporter(NoteClient client) {
+		this.client = client;
+	}
+	
+	public TransferStatistics exportNotes(NoteSelector selector, Path file) throws IOException, NoteBookException {
+		return exportNotes(selector, file, NoteFileFormat.forFile(file));
+	}
+	public TransferStatistics exportNotes(NoteSelector selector, Path file, NoteFileFormat format) throws IOException, NoteBookException {
+		LOGGER.info("exporting notes to file {} (format: {})", file, format);
+		try (NoteFileFormat.NoteOutput output = format.openOutput(file)) {
+			return exportNotes(selector, output);
+		}
+	}
+	
+	/**
+	 * Write all notes that match the selector to the output.
+	 */
+	public TransferStatistics exportNotes(NoteSelector selector, NoteFileFormat.NoteOutput output) throws IOException, NoteBookException {
+		long startTime = System.currentTimeMillis();
+		long[] notesWritten = new long[1];
+		long[] lastProgress = {startTime};
+		IOException[] writeFailure = new IOException[1];
+		try {
+			client.getNotes(selector, note -> {
+				try {
+					output.write(note);
+				}
+				catch (IOException ioe) {
+					//stops the parsing of the response (the exception is wrapped by the transport)
+					writeFailure[0] = ioe;
+					throw new UncheckedIOException(ioe);
+				}
+				notesWritten[0]++;
+				long now = System.currentTimeMillis();
+				if (now - lastProgress[0] >= NoteImporter.PROGRESS_INTERVAL) {
+					lastProgress[0] = now;
+					reportProgress(new TransferStatistics(notesWritten[0], notesWritten[0], 0, 0, 1, now - startTime));
+				}
+			});
+		}
+		catch (NoteBookException e) {
+			LOGGER.error("export failed after {} notes", notesWritten[0], e);
+			if (writeFailure[0] != null) {
+				throw writeFailure[0];
+			}
+			throw e;
+		}
+		catch (UncheckedIOException uioe) {
+			//thrown directly if the notes were taken from the selector cache
+			LOGGER.error("export failed after {} notes", notesWritten[0], uioe.getCause());
+			throw uioe.getCause();
+		}
+		output.flush();
+		
+		TransferStatistics statistics = new TransferStatistics(notesWritten[0], notesWritten[0], 0, 0, 1, System.currentTimeMillis() - startTime);
+		reportProgress(statistics);
+		LOGGER.info("export finished: {}", statistics);
+		return statistics;
+	}
+	
+	private void reportProgress(TransferStatistics statistics) {
+		if (progressListener != null) {
+			progressListener.accept(statistics);
+		}
+	}
+	
+	/**
+	 * Set a listener that receives the progress of the exports (about every {@link NoteImporter#PROGRESS_INTERVAL} milliseconds and when an
+	 * export is finished).
+	 */
+	public void setProgressListener(Consumer<TransferStatistics> progressListener) {
+		this.progressListener = progressListener;
+	}
+}
\ No newline at end of file
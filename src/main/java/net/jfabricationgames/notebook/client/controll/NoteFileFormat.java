@@ -0,0 +1,133 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.jfabricationgames.notebook.client.error.NoteBookFormatException;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * The file formats of the note import and export (see {@link NoteImporter} and {@link NoteExporter}). The notes are read and written one by
+ * one, so the files are never held in memory as a whole. The files are encoded in UTF-8.
+ */
+public enum NoteFileFormat {
+	
+	/**
+	 * One note per line, in the JSON representation of the service (the dates are written as ISO strings).
+	 */
+	JSON_LINES("jsonl"),
+	/**
+	 * A header line and one record per note (RFC 4180 quoting; the dates of a note are separated by semicolons).
+	 */
+	CSV("csv");
+	
+	/**
+	 * Reads the notes of a file one by one.
+	 */
+	public interface NoteInput extends Closeable {
+		
+		/**
+		 * Read the next note (or null at the end of the file).
+		 *
+		 * @throws NoteBookFormatException
+		 *         If the note couldn't be read. The next call reads the following note.
+		 */
+		public Note read() throws IOException, NoteBookFormatException;
+		
+		/**
+		 * The number of the last line that was read.
+		 */
+		public int getLineNumber();
+	}
+	
+	/**
+	 * Writes the notes to a file one by one.
+	 */
+	public interface NoteOutput extends Closeable, Flushable {
+		
+		public void write(Note note) throws IOException;
+	}
+	
+	private final String extension;
+	
+	private NoteFileFormat(String extension) {
+		this.extension = extension;
+	}
+	
+	/**
+	 * Find the format by it's name or file extension (ignoring the case).
+	 *
+	 * @throws IllegalArgumentException
+	 *         If there is no format with this name.
+	 */
+	public static NoteFileFormat forName(String name) throws IllegalArgumentException {
+		for (NoteFileFormat format : values()) {
+			if (format.extension.equalsIgnoreCase(name.trim())) {
+				return format;
+			}
+		}
+		return valueOf(name.trim().toUpperCase());
+	}
+	
+	/**
+	 * Find the format by the extension of the file (JSON lines if the extension is unknown).
+	 */
+	public static NoteFileFormat forFile(Path file) {
+		String fileName = file.getFileName().toString();
+		int extensionStart = fileName.lastIndexOf('.');
+		if (extensionStart >= 0) {
+			String fileExtension = fileName.substring(extensionStart + 1);
+			for (NoteFileFormat format : values()) {
+				if (format.extension.equalsIgnoreCase(fileExtension)) {
+					return format;
+				}
+			}
+		}
+		return JSON_LINES;
+	}
+	
+	public NoteInput openInput(Path file) throws IOException {
+		return createInput(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+	}
+	public NoteInput createInput(Reader reader) throws IOException {
+		BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		switch (this) {
+			case JSON_LINES:
+				return new JsonLinesNoteFormat.Input(bufferedReader);
+			case CSV:
+				return new CsvNoteFormat.Input(bufferedReader);
+			default:
+				throw new IllegalStateException("Unknown format: " + this);
+		}
+	}
+	
+	public NoteOutput openOutput(Path file) throws IOException {
+		return createOutput(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+	}
+	public NoteOutput createOutput(Writer writer) throws IOException {
+		BufferedWriter bufferedWriter = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+		switch (this) {
+			case JSON_LINES:
+				return new JsonLinesNoteFormat.Output(bufferedWriter);
+			case CSV:
+				return new CsvNoteFormat.Output(bufferedWriter);
+			default:
+				throw new IllegalStateException("Unknown format: " + this);
+		}
+	}
+	
+	/**
+	 * The file extension (without the dot).
+	 */
+	public String getExtension() {
+		return extension;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.client.error.NoteBookFormatException;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Imports the notes of a file (see {@link NoteFileFormat}) by creating them on the server. The notes are read one by one and sent in batches
+ * of create_note requests, of which a limited number is sent in parallel. So only these batches are held in memory (not the whole file).
+ *
+ * The notes are created with new ids (the ids in the file are ignored) and, if more than one batch is sent in parallel, not necessarily in the
+ * order of the file. Notes that can't be read or are not valid are skipped (and logged).
+ */
+public class NoteImporter {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteImporter.class);
+	
+	public static final int DEFAULT_BATCH_SIZE = HostConfiguration.DEFAULT_MAX_BATCH_SIZE;
+	public static final int DEFAULT_PARALLELISM = 4;
+	/**
+	 * The interval in which the progress is reported (in milliseconds).
+	 */
+	public static final long PROGRESS_INTERVAL = 1000;
+	
+	public static final int MIN_PRIORITY = 5;
+	public static final int MAX_PRIORITY = 1;
+	
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+	
+	private final NoteClient client;
+	private final int batchSize;
+	private final int parallelism;
+	
+	private Consumer<TransferStatistics> progressListener;
+	
+	public NoteImporter(NoteClient client) {
+		this(client, DEFAULT_BATCH_SIZE, DEFAULT_PARALLELISM);
+	}
+	/**
+	 * @param batchSize
+	 *        The number of notes that are sent in one batch request (the batches are split if the maximum batch size of the host configuration
+	 *        is smaller).
+	 *
+	 * @param parallelism
+	 *        The maximum number of batch requests that are sent at the same time (should not be larger than the connection pool).
+	 */
+	public NoteImporter(NoteClient client, int batchSize, int parallelism) {
+		if (batchSize < 1 || parallelism < 1) {
+			throw new IllegalArgumentException("The batch size and the parallelism must be positive");
+		}
+		this.client = client;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+	}
+	
+	public TransferStatistics importNotes(Path file) throws IOException, NoteBookException {
+		return importNotes(file, NoteFileFormat.forFile(file));
+	}
+	public TransferStatistics importNotes(Path file, NoteFileFormat format) throws IOException, NoteBookException {
+		LOGGER.info("importing notes from file {} (format: {})", file, format);
+		try (NoteFileFormat.NoteInput input = format.openInput(file)) {
+			return importNotes(input);
+		}
+	}
+	
+	/**
+	 * Create all notes of the input on the server.
+	 *
+	 * @throws NoteBookException
+	 *         If a batch request failed (e.g. because the host is not reachable). The import is stopped then, but the notes of the former
+	 *         batches are already created.
+	 */
+	public TransferStatistics importNotes(NoteFileFormat.NoteInput input) throws IOException, NoteBookException {
+		Import currentImport = new Import();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "NoteImporter-" + THREAD_NUMBER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Note> batch = new ArrayList<Note>(batchSize);
+			while (currentImport.failure.get() == null) {
+				Note note;
+				try {
+					note = input.read();
+				}
+				catch (NoteBookFormatException e) {
+					LOGGER.warn("skipping note that couldn't be read: {}", e.getMessage());
+					currentImport.notesRead.incrementAndGet();
+					currentImport.notesInvalid.incrementAndGet();
+					currentImport.reportProgress(false);
+					continue;
+				}
+				if (note == null) {
+					break;
+				}
+				currentImport.notesRead.incrementAndGet();
+				
+				String problem = validate(note);
+				if (problem != null) {
+					LOGGER.warn("skipping invalid note (line {}): {}", input.getLineNumber(), problem);
+					currentImport.notesInvalid.incrementAndGet();
+				}
+				else {
+					batch.add(note);
+					if (batch.size() >= batchSize) {
+						currentImport.send(batch, executor);
+						batch = new ArrayList<Note>(batchSize);
+					}
+				}
+				currentImport.reportProgress(false);
+			}
+			if (!batch.isEmpty() && currentImport.failure.get() == null) {
+				currentImport.send(batch, executor);
+			}
+			
+			//wait for the batches that are still sent
+			currentImport.inFlight.acquireUninterruptibly(parallelism);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		TransferStatistics statistics = currentImport.reportProgress(true);
+		if (currentImport.failure.get() != null) {
+			LOGGER.error("import failed: {}", statistics);
+			throw currentImport.failure.get();
+		}
+		LOGGER.info("import finished: {}", statistics);
+		return statistics;
+	}
+	
+	/**
+	 * Check whether the note can be created (returns the problem or null if the note is valid).
+	 */
+	public static String validate(Note note) {
+		if (note.getHeadline() == null || note.getHeadline().trim().isEmpty()) {
+			return "The note has no headline";
+		}
+		if (note.getPriority() < MAX_PRIORITY || note.getPriority() > MIN_PRIORITY) {
+			return "The priority must be between " + MAX_PRIORITY + " and " + MIN_PRIORITY + ": " + note.getPriority();
+		}
+		if ((note.getExecutionDates() != null && note.getExecutionDates().contains(null))
+				|| (note.getReminderDates() != null && note.getReminderDates().contains(null))) {
+			return "The dates must not be null";
+		}
+		return null;
+	}
+	
+	/**
+	 * The state of one import (the importer can be used for more than one import).
+	 */
+	private class Import {
+		
+		private final long startTime = System.currentTimeMillis();
+		private long lastProgress = startTime;
+		
+		private final AtomicLong notesRead = new AtomicLong();
+		private final AtomicLong notesCreated = new AtomicLong();
+		private final AtomicLong notesInvalid = new AtomicLong();
+		private final AtomicLong notesFailed = new AtomicLong();
+		private final AtomicLong requests = new AtomicLong();
+		
+		//limits the batches in memory to the ones that are sent (and the one that is read)
+		private final Semaphore inFlight = new Semaphore(parallelism);
+		private final AtomicReference<NoteBookException> failure = new AtomicReference<NoteBookException>();
+		
+		private void send(List<Note> batch, ExecutorService executor) {
+			inFlight.acquireUninterruptibly();
+			if (failure.get() != null) {
+				inFlight.release();
+				return;
+			}
+			executor.execute(() -> {
+				try {
+					execute(batch);
+				}
+				finally {
+					inFlight.release();
+				}
+			});
+		}
+		
+		private void execute(List<Note> batch) {
+			List<JsonRpcRequest> batchRequests = new ArrayList<JsonRpcRequest>(batch.size());
+			for (Note note : batch) {
+				batchRequests.add(client.createNoteRequest(note));
+			}
+			try {
+				JsonRpcBatchResponse response = client.executeBatch(batchRequests);
+				requests.incrementAndGet();
+				notesCreated.addAndGet(response.getResults().size());
+				for (int i = 0; i < batchRequests.size(); i++) {
+					String requestId = batchRequests.get(i).getId();
+					if (!response.isSuccessful(requestId)) {
+						JsonRpcErrorResponse error = response.getError(requestId);
+						NoteBookException requestFailure = response.getFailure(requestId);
+						LOGGER.warn("note couldn't be created: {}; error: {}", batch.get(i).getHeadline(),
+								error != null && error.getError() != null ? error.getError().getMessage()
+										: requestFailure != null ? requestFailure.getMessage() : "no response");
+						notesFailed.incrementAndGet();
+						if (requestFailure != null) {
+							//the batch (or a part of it) couldn't be sent, so the import is stopped
+							failure.compareAndSet(null, requestFailure);
+						}
+					}
+				}
+			}
+			catch (NoteBookException e) {
+				//no results were received for the batch, so none of its notes are counted as created
+				LOGGER.error("batch of {} notes couldn't be sent", batch.size(), e);
+				notesFailed.addAndGet(batch.size());
+				failure.compareAndSet(null, e);
+			}
+		}
+		
+		/**
+		 * Report the progress to the listener (if the interval has passed since the last report or the import is finished).
+		 */
+		private TransferStatistics reportProgress(boolean finished) {
+			long now = System.currentTimeMillis();
+			if (!finished && now - lastProgress < PROGRESS_INTERVAL) {
+				return null;
+			}
+			lastProgress = now;
+			TransferStatistics statistics = new TransferStatistics(notesRead.get(), notesCreated.get(), notesInvalid.get(), notesFailed.get(),
+					requests.get(), now - startTime);
+			if (progressListener != null) {
+				progressListener.accept(statistics);
+			}
+			return statistics;
+		}
+	}
+	
+	/**
+	 * Set a listener that receives the progress of the imports (about every {@link #PROGRESS_INTERVAL} milliseconds and when an import is
+	 * finished). The listener is called in the thread of the import.
+	 */
+	public void setProgressListener(Consumer<TransferStatistics> progressListener) {
+		this.progressListener = progressListener;
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	public int getParallelism() {
+		return parallelism;
+	}
+}
\ No newline at end of file
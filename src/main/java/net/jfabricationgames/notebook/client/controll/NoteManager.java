@@ -1,12 +1,30 @@
 package net.jfabricationgames.notebook.client.controll;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+import net.jfabricationgames.notebook.client.error.NoteBookBatchException;
+import net.jfabricationgames.notebook.client.error.NoteBookCommunicationException;
+import net.jfabricationgames.notebook.client.error.NoteBookConflictException;
+import net.jfabricationgames.notebook.client.error.NoteBookConnectionException;
 import net.jfabricationgames.notebook.client.error.NoteBookException;
 import net.jfabricationgames.notebook.note.Note;
 import net.jfabricationgames.notebook.note.NoteSelector;
@@ -17,55 +35,788 @@ public class NoteManager {
 	
 	private static final Logger LOGGER = LogManager.getLogger(NoteManager.class);
 	
-	private List<Note> notes;
+	private NoteStore notes;
 	private NoteClient client;
+	private AsyncNoteClient asyncClient;
+	private NoteSynchronizer synchronizer = new NoteSynchronizer();
+	private NoteCache cache;
+	private PendingOperationQueue pendingOperations;
+	private ReminderScheduler reminders;
+	//the entity tag of the last (full) result that was polled (see loadNotesIfChanged)
+	private volatile String notesEntityTag;
+	//the server didn't send an entity tag for the last full poll, so the polls are delta synchronizations (see loadNotesIfChanged)
+	private volatile boolean entityTagsUnsupported;
 	
-	public NoteManager() throws NoteBookException {
-		client = new NoteClient();
-		loadNotes();
+	//the local notes are read by the UI and changed by the async requests and the synchronization (several threads can read them at the same time)
+	private final ReentrantReadWriteLock notesLock = new ReentrantReadWriteLock();
+	//the notes that were changed by remote change events while a synchronization was running (the loaded notes can be older than the events)
+	private final Set<Integer> remotelyChangedNotes = new HashSet<Integer>();
+	private int runningSyncs;
+	
+	/**
+	 * The expected version that skips the version check (the note is changed, even if it was changed concurrently).
+	 */
+	public static final long ANY_VERSION = -1;
+	
+	/**
+	 * Create a note manager that starts with the notes from the local cache (without loading anything from the server). The notes have to be
+	 * synchronized with the server using {@link #loadNotes()} or {@link #loadNotesAsync()}.
+	 */
+	public NoteManager() {
+		this(new NoteClient(), new NoteCache());
 	}
 	
+	public NoteManager(NoteClient client, NoteCache cache) {
+		this(client, cache, new PendingOperationQueue(client));
+	}
+	
+	public NoteManager(NoteClient client, NoteCache cache, PendingOperationQueue pendingOperations) {
+		this.client = client;
+		this.cache = cache;
+		this.pendingOperations = pendingOperations;
+		asyncClient = new AsyncNoteClient(client);
+		notes = new NoteStore(cache.load());
+		
+		//the reminders are updated with every change of the local notes
+		reminders = new ReminderScheduler(this::getNote);
+		notes.setListener(reminders);
+		
+		pendingOperations.setListener(new PendingOperationQueue.Listener() {
+			
+			@Override
+			public void noteCreated(int temporaryId, int noteId) {
+				replaceTemporaryId(temporaryId, noteId);
+			}
+			
+			@Override
+			public void operationFailed(PendingOperation operation, NoteBookException cause) {
+				LOGGER.error("Pending operation couldn't be executed: {}", operation, cause);
+				//the local notes might differ from the ones on the server now
+				synchronizer.requestFullSync();
+			}
+		});
+	}
+	
+	/**
+	 * Synchronize the local notes with the server. Usually only the new notes are loaded (see {@link NoteSynchronizer}).
+	 */
 	public void loadNotes() throws NoteBookException {
-		LOGGER.info("Loading notes from server");
-		notes = client.getNotes(NoteSelector.empty());
+		boolean fullSync = synchronizer.isFullSyncDue();
+		LOGGER.info("Loading notes from server (full synchronization: {})", fullSync);
+		long startTime = System.currentTimeMillis();
+		long bytesReceived = client.getTransport().getBytesReceived();
+		syncStarted();
+		try {
+			List<Note> loadedNotes = client.getNotes(synchronizer.createSelector(fullSync));
+			mergeLoadedNotes(loadedNotes, fullSync, client.getTransport().getBytesReceived() - bytesReceived, startTime);
+		}
+		finally {
+			syncFinished();
+		}
+	}
+	
+	/**
+	 * Synchronize the local notes with the server without blocking the calling thread.
+	 */
+	public CompletableFuture<Void> loadNotesAsync() {
+		boolean fullSync = synchronizer.isFullSyncDue();
+		LOGGER.info("Loading notes from server (async; full synchronization: {})", fullSync);
+		long startTime = System.currentTimeMillis();
+		long bytesReceived = client.getTransport().getBytesReceived();
+		syncStarted();
+		return asyncClient.getNotes(synchronizer.createSelector(fullSync)).thenAccept(
+				loadedNotes -> mergeLoadedNotes(loadedNotes, fullSync, client.getTransport().getBytesReceived() - bytesReceived, startTime))
+				.whenComplete((v, throwable) -> syncFinished());
+	}
+	
+	/**
+	 * Load all notes from the server, if they were changed since they were polled the last time (the server only answers "not modified"
+	 * otherwise). Used to poll the changes of other clients, if they are not pushed (see {@link NoteChangeSubscriber}).<br>
+	 * If the server doesn't send entity tags, the notes would be transferred by every poll, so the polls are synchronized like
+	 * {@link #loadNotes()} instead (only the new notes are loaded, except for the periodic full synchronizations).
+	 * 
+	 * @return True if the local notes were changed.
+	 */
+	public boolean loadNotesIfChanged() throws NoteBookException {
+		long startTime = System.currentTimeMillis();
+		long bytesReceived = client.getTransport().getBytesReceived();
+		boolean fullSync = !entityTagsUnsupported || synchronizer.isFullSyncDue();
+		syncStarted();
+		try {
+			JsonRpcTransport.ConditionalResult<List<Note>> result = client.getNotesIfChanged(synchronizer.createSelector(fullSync),
+					fullSync ? notesEntityTag : null);
+			if (!result.isModified()) {
+				LOGGER.debug("The notes were not changed on the server");
+				return false;
+			}
+			if (fullSync) {
+				notesEntityTag = result.getEntityTag();
+				if (notesEntityTag == null && !entityTagsUnsupported) {
+					LOGGER.info("The server doesn't send entity tags; polling the changes with delta synchronizations");
+				}
+				entityTagsUnsupported = notesEntityTag == null;
+				if (client.getSelectorCache() != null) {
+					client.getSelectorCache().invalidateAll();
+				}
+			}
+			SyncStatistics statistics = mergeLoadedNotes(result.getResult(), fullSync,
+					client.getTransport().getBytesReceived() - bytesReceived, startTime);
+			return statistics.getNotesAdded() + statistics.getNotesUpdated() + statistics.getNotesRemoved() > 0;
+		}
+		finally {
+			syncFinished();
+		}
 	}
 	
+	/**
+	 * Apply a change of a note, that was made on the server (by another client), to the local notes. Notes with local changes that were not
+	 * yet sent are not overwritten and the changes of this client (that are notified too) are ignored, because the note is not changed by
+	 * them.
+	 * 
+	 * @return True if the local notes were changed.
+	 */
+	public boolean applyRemoteChange(NoteChangeEvent event) {
+		int noteId = event.getNoteId();
+		if (pendingOperations.hasPendingOperations(noteId)) {
+			LOGGER.debug("Note {} has pending changes; ignoring the remote change: {}", noteId, event);
+			return false;
+		}
+		boolean changed = write(() -> {
+			if (runningSyncs > 0) {
+				//the running synchronization must not revert the change
+				remotelyChangedNotes.add(noteId);
+			}
+			if (event.getType() == NoteChangeEvent.Type.DELETED) {
+				return notes.remove(noteId) != null;
+			}
+			Note local = notes.get(noteId);
+			if (local != null && NoteSynchronizer.isSameContent(local, event.getNote())) {
+				return false;
+			}
+			notes.put(event.getNote());
+			return true;
+		});
+		if (!changed) {
+			return false;
+		}
+		LOGGER.info("Applied remote change: {}", event);
+		scheduleCacheSave();
+		
+		NoteSelectorCache selectorCache = client.getSelectorCache();
+		if (selectorCache != null) {
+			if (event.getType() == NoteChangeEvent.Type.DELETED) {
+				selectorCache.notesDeleted(new NoteSelectorBuilder().addId(noteId).setIdRelation(NoteRelation.EQUALS).build());
+			}
+			else {
+				selectorCache.noteChanged(event.getNote());
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Load all notes from the server (to find the notes that were updated or deleted by other clients).
+	 */
+	public void reloadNotes() throws NoteBookException {
+		synchronizer.requestFullSync();
+		//the cached results don't contain the changes of other clients
+		if (client.getSelectorCache() != null) {
+			client.getSelectorCache().invalidateAll();
+		}
+		loadNotes();
+	}
+	
+	/**
+	 * Add a note. If the server can't be reached, the note is added locally (with a temporary id) and created on the server later.
+	 */
 	public void addNote(Note note) throws NoteBookException {
-		LOGGER.info("Adding new note: " + note);
-		int id = client.createNote(note);
-		note.setId(id);
-		LOGGER.info("Adding new note; notes id is: " + id);
-		notes.add(0, note);
+		LOGGER.info("Adding new note: {}", LogPayload.of(note));
+		if (!pendingOperations.isEmpty()) {
+			//send the change after the pending changes to keep the order
+			addNoteOffline(note);
+			return;
+		}
+		try {
+			int id = client.createNote(note);
+			note.setId(id);
+			LOGGER.info("Adding new note; notes id is: {}", id);
+			addNoteLocally(note);
+		}
+		catch (NoteBookConnectionException nbce) {
+			if (!JsonRpcTransport.isConnectFailure(nbce)) {
+				//the note might have been created (e.g. if the response timed out), so it's not queued to not create it twice
+				throw nbce;
+			}
+			LOGGER.warn("Adding new note: server not reachable; queueing the note", nbce);
+			addNoteOffline(note);
+		}
 	}
 	
+	/**
+	 * Add a note without blocking the calling thread. The returned future is completed with the added note (that has it's new id set).
+	 */
+	public CompletableFuture<Note> addNoteAsync(Note note) {
+		LOGGER.info("Adding new note (async): {}", LogPayload.of(note));
+		if (!pendingOperations.isEmpty()) {
+			addNoteOffline(note);
+			return CompletableFuture.completedFuture(note);
+		}
+		return asyncClient.createNote(note).handle((id, throwable) -> {
+			if (throwable != null) {
+				Throwable cause = AsyncNoteClient.unwrap(throwable);
+				if (!JsonRpcTransport.isConnectFailure(cause)) {
+					throw new CompletionException(cause);
+				}
+				LOGGER.warn("Adding new note: server not reachable; queueing the note", cause);
+				addNoteOffline(note);
+				return note;
+			}
+			note.setId(id);
+			LOGGER.info("Adding new note; notes id is: {}", id);
+			addNoteLocally(note);
+			return note;
+		});
+	}
+	
+	private void addNoteOffline(Note note) {
+		pendingOperations.enqueueCreate(note);
+		addNoteLocally(note);
+	}
+	
+	/**
+	 * Add many notes using JSON-RPC batch requests. All notes that were created are added (even if some of the notes couldn't be created). The
+	 * notes whose requests were not sent (because the server couldn't be reached) are queued.
+	 * 
+	 * @throws NoteBookBatchException
+	 *         If some of the notes couldn't be created.
+	 */
+	public void addNotes(List<Note> newNotes) throws NoteBookException {
+		LOGGER.info("Adding {} new notes", newNotes.size());
+		Map<String, Note> notesByRequestId = new LinkedHashMap<String, Note>();
+		List<JsonRpcRequest> requests = new ArrayList<JsonRpcRequest>(newNotes.size());
+		for (Note note : newNotes) {
+			JsonRpcRequest request = client.createNoteRequest(note);
+			notesByRequestId.put(request.getId(), note);
+			requests.add(request);
+		}
+		
+		if (!pendingOperations.isEmpty()) {
+			//send the changes after the pending changes to keep the order
+			newNotes.forEach(this::addNoteOffline);
+			return;
+		}
+		JsonRpcBatchResponse batchResponse = client.executeBatch(requests);
+		
+		Map<String, String> errors = new LinkedHashMap<String, String>();
+		int queued = 0;
+		for (Entry<String, Note> entry : notesByRequestId.entrySet()) {
+			JsonRpcResponse response = batchResponse.getResult(entry.getKey());
+			if (response != null) {
+				try {
+					Note note = entry.getValue();
+					note.setId(client.parseIntResult(response, "Create"));
+					addNoteLocally(note);
+				}
+				catch (NoteBookCommunicationException nbce) {
+					errors.put(entry.getKey(), nbce.getMessage());
+				}
+			}
+			else if (isNotSent(batchResponse, entry.getKey())) {
+				addNoteOffline(entry.getValue());
+				queued++;
+			}
+			else {
+				errors.put(entry.getKey(), getBatchError(batchResponse, entry.getKey()));
+			}
+		}
+		
+		if (queued > 0) {
+			LOGGER.warn("Adding notes: server not reachable; queued {} of {} notes", queued, newNotes.size());
+		}
+		if (!errors.isEmpty()) {
+			LOGGER.error("Adding notes: {} of {} notes couldn't be created: {}", errors.size(), newNotes.size(), errors);
+			throw new NoteBookBatchException(errors.size() + " of " + newNotes.size() + " notes couldn't be created:", errors);
+		}
+	}
+	
+	/**
+	 * Update a note. If the server can't be reached, the update is sent later.
+	 */
 	public void updateNote(Note note) throws NoteBookException {
-		LOGGER.info("Updating note: " + note);
-		client.updateNote(note);
+		updateNote(note, ANY_VERSION);
+	}
+	/**
+	 * Update a note, if it was not changed or deleted since the expected version was read (see {@link #getNoteVersion(int)}).
+	 * 
+	 * @return The new version of the note.
+	 * 
+	 * @throws NoteBookConflictException
+	 *         If the note was changed or deleted (e.g. by a synchronization with the server) since the expected version.
+	 */
+	public long updateNote(Note note, long expectedVersion) throws NoteBookException {
+		LOGGER.info("Updating note: {}", LogPayload.of(note));
+		checkVersion(note.getId(), expectedVersion);
+		if (!pendingOperations.isEmpty()) {
+			return updateNoteOffline(note, expectedVersion);
+		}
+		try {
+			client.updateNote(note);
+		}
+		catch (NoteBookConnectionException nbce) {
+			if (!JsonRpcTransport.isConnectFailure(nbce)) {
+				//the update might have been executed, so it's not queued (to not overwrite later changes when it's sent again)
+				throw nbce;
+			}
+			LOGGER.warn("Updating note: server not reachable; queueing the update", nbce);
+			return updateNoteOffline(note, expectedVersion);
+		}
+		return updateNoteLocally(note, expectedVersion);
+	}
+	
+	/**
+	 * Update a note without blocking the calling thread.
+	 */
+	public CompletableFuture<Void> updateNoteAsync(Note note) {
+		return updateNoteAsync(note, null);
+	}
+	/**
+	 * Update a note without blocking the calling thread. If a patch is given only the changed fields are sent to the server (the whole note is
+	 * sent if the server doesn't support patches, or if the update has to be queued because the server is not reachable).
+	 */
+	public CompletableFuture<Void> updateNoteAsync(Note note, NotePatch patch) {
+		return updateNoteAsync(note, patch, ANY_VERSION).thenApply(version -> null);
+	}
+	/**
+	 * Update a note without blocking the calling thread, if it was not changed or deleted since the expected version was read (see
+	 * {@link #updateNote(Note, long)}).
+	 * 
+	 * @return A future for the new version of the note, that is completed exceptionally with a {@link NoteBookConflictException} if the note was
+	 *         changed concurrently.
+	 */
+	public CompletableFuture<Long> updateNoteAsync(Note note, NotePatch patch, long expectedVersion) {
+		LOGGER.info("Updating note (async): {}", LogPayload.of(note));
+		try {
+			checkVersion(note.getId(), expectedVersion);
+		}
+		catch (NoteBookConflictException nbce) {
+			CompletableFuture<Long> conflict = new CompletableFuture<Long>();
+			conflict.completeExceptionally(nbce);
+			return conflict;
+		}
+		if (!pendingOperations.isEmpty()) {
+			try {
+				return CompletableFuture.completedFuture(updateNoteOffline(note, expectedVersion));
+			}
+			catch (NoteBookConflictException nbce) {
+				CompletableFuture<Long> conflict = new CompletableFuture<Long>();
+				conflict.completeExceptionally(nbce);
+				return conflict;
+			}
+		}
+		CompletableFuture<Integer> update = patch != null ? asyncClient.patchNote(note, patch) : asyncClient.updateNote(note);
+		return update.handle((affectedRows, throwable) -> {
+			try {
+				if (throwable != null) {
+					Throwable cause = AsyncNoteClient.unwrap(throwable);
+					if (!JsonRpcTransport.isConnectFailure(cause)) {
+						throw new CompletionException(cause);
+					}
+					LOGGER.warn("Updating note: server not reachable; queueing the update", cause);
+					return updateNoteOffline(note, expectedVersion);
+				}
+				return updateNoteLocally(note, expectedVersion);
+			}
+			catch (NoteBookConflictException nbce) {
+				throw new CompletionException(nbce);
+			}
+		});
+	}
+	
+	private long updateNoteOffline(Note note) {
+		pendingOperations.enqueueUpdate(note);
+		return updateNoteLocally(note);
+	}
+	/**
+	 * Queue the update and replace the local note, if it still has the expected version (see {@link #updateNoteLocally(Note, long)}).
+	 */
+	private long updateNoteOffline(Note note, long expectedVersion) throws NoteBookConflictException {
+		return replaceNote(note, expectedVersion, true);
+	}
+	
+	/**
+	 * Update many notes using JSON-RPC batch requests. The updates whose requests were not sent (because the server couldn't be reached) are
+	 * queued.
+	 * 
+	 * @throws NoteBookBatchException
+	 *         If some of the notes couldn't be updated.
+	 */
+	public void updateNotes(List<Note> notesToUpdate) throws NoteBookException {
+		LOGGER.info("Updating {} notes", notesToUpdate.size());
+		List<JsonRpcRequest> requests = notesToUpdate.stream().map(client::updateNoteRequest).collect(Collectors.toList());
+		
+		if (!pendingOperations.isEmpty()) {
+			//send the changes after the pending changes to keep the order
+			notesToUpdate.forEach(this::updateNoteOffline);
+			return;
+		}
+		JsonRpcBatchResponse batchResponse = client.executeBatch(requests);
+		
+		Map<String, String> errors = new LinkedHashMap<String, String>();
+		int queued = 0;
+		for (int i = 0; i < requests.size(); i++) {
+			String requestId = requests.get(i).getId();
+			JsonRpcResponse response = batchResponse.getResult(requestId);
+			if (response != null) {
+				try {
+					client.parseUpdateResult(response);
+				}
+				catch (NoteBookCommunicationException nbce) {
+					errors.put(requestId, nbce.getMessage());
+				}
+			}
+			else if (isNotSent(batchResponse, requestId)) {
+				updateNoteOffline(notesToUpdate.get(i));
+				queued++;
+				continue;
+			}
+			else {
+				errors.put(requestId, getBatchError(batchResponse, requestId));
+			}
+			updateNoteLocally(notesToUpdate.get(i));
+		}
+		
+		if (queued > 0) {
+			LOGGER.warn("Updating notes: server not reachable; queued {} of {} updates", queued, notesToUpdate.size());
+		}
+		if (!errors.isEmpty()) {
+			LOGGER.error("Updating notes: {} of {} notes couldn't be updated: {}", errors.size(), notesToUpdate.size(), errors);
+			throw new NoteBookBatchException(errors.size() + " of " + notesToUpdate.size() + " notes couldn't be updated:", errors);
+		}
+	}
+	
+	/**
+	 * Whether the request of a batch failed before it reached the server, so it can be queued (see
+	 * {@link JsonRpcTransport#isConnectFailure(Throwable)}).
+	 */
+	private boolean isNotSent(JsonRpcBatchResponse batchResponse, String requestId) {
+		return JsonRpcTransport.isConnectFailure(batchResponse.getFailure(requestId));
+	}
+	
+	private String getBatchError(JsonRpcBatchResponse batchResponse, String requestId) {
+		JsonRpcErrorResponse error = batchResponse.getError(requestId);
+		if (error != null) {
+			return String.valueOf(error);
+		}
+		NoteBookException failure = batchResponse.getFailure(requestId);
+		if (failure != null) {
+			return failure.getMessage();
+		}
+		return "No response received for the request";
 	}
 	
+	/**
+	 * Delete a note. If the server can't be reached, the note is removed locally and deleted on the server later.
+	 */
 	public void deleteNote(Note note) throws NoteBookException {
-		LOGGER.info("Deleting note: " + note);
+		deleteNote(note, ANY_VERSION);
+	}
+	/**
+	 * Delete a note, if it was not changed since the expected version was read (see {@link #updateNote(Note, long)}).
+	 */
+	public void deleteNote(Note note, long expectedVersion) throws NoteBookException {
+		LOGGER.info("Deleting note: {}", LogPayload.of(note));
+		checkVersion(note.getId(), expectedVersion);
+		if (!pendingOperations.isEmpty()) {
+			deleteNotesOffline(Collections.singletonList(note));
+			return;
+		}
+		try {
+			NoteSelector selector = new NoteSelectorBuilder().addId(note.getId()).setIdRelation(NoteRelation.EQUALS).build();
+			client.deleteNotes(selector);
+			removeNotesLocally(Collections.singletonList(note));
+		}
+		catch (NoteBookConnectionException nbce) {
+			LOGGER.warn("Deleting note: server not reachable; queueing the deletion", nbce);
+			deleteNotesOffline(Collections.singletonList(note));
+		}
+	}
+	
+	/**
+	 * Delete a note without blocking the calling thread. The note is removed from the local notes right away (and added again if the server
+	 * rejects the deletion).
+	 */
+	public CompletableFuture<Void> deleteNoteAsync(Note note) {
+		return deleteNoteAsync(note, ANY_VERSION);
+	}
+	/**
+	 * Delete a note without blocking the calling thread, if it was not changed since the expected version was read (see
+	 * {@link #updateNote(Note, long)}).
+	 */
+	public CompletableFuture<Void> deleteNoteAsync(Note note, long expectedVersion) {
+		LOGGER.info("Deleting note (async): {}", LogPayload.of(note));
+		try {
+			checkVersion(note.getId(), expectedVersion);
+		}
+		catch (NoteBookConflictException nbce) {
+			CompletableFuture<Void> conflict = new CompletableFuture<Void>();
+			conflict.completeExceptionally(nbce);
+			return conflict;
+		}
+		if (!pendingOperations.isEmpty()) {
+			deleteNotesOffline(Collections.singletonList(note));
+			return CompletableFuture.completedFuture(null);
+		}
+		removeNotesLocally(Collections.singletonList(note));
 		NoteSelector selector = new NoteSelectorBuilder().addId(note.getId()).setIdRelation(NoteRelation.EQUALS).build();
-		client.deleteNotes(selector);
-		notes.remove(note);
+		return asyncClient.deleteNotes(selector).handle((affectedRows, throwable) -> {
+			if (throwable != null) {
+				Throwable cause = AsyncNoteClient.unwrap(throwable);
+				if (!(cause instanceof NoteBookConnectionException)) {
+					addNoteLocally(note);
+					throw new CompletionException(cause);
+				}
+				LOGGER.warn("Deleting note: server not reachable; queueing the deletion", cause);
+				deleteNotesOffline(Collections.singletonList(note));
+			}
+			return null;
+		});
 	}
 	
 	public void deleteNotes(List<Note> notes) throws NoteBookException {
 		List<Integer> noteIds = notes.stream().map(n -> n.getId()).collect(Collectors.toList());
-		LOGGER.info("Deleting notes; ids: " + noteIds);
-		NoteSelector selector = new NoteSelectorBuilder().addIds(noteIds).setIdRelation(NoteRelation.IN).build();
-		client.deleteNotes(selector);
-		notes.removeAll(notes);
+		LOGGER.info("Deleting notes; ids: {}", noteIds);
+		if (!pendingOperations.isEmpty()) {
+			deleteNotesOffline(notes);
+			return;
+		}
+		try {
+			NoteSelector selector = new NoteSelectorBuilder().addIds(noteIds).setIdRelation(NoteRelation.IN).build();
+			client.deleteNotes(selector);
+			removeNotesLocally(notes);
+		}
+		catch (NoteBookConnectionException nbce) {
+			LOGGER.warn("Deleting notes: server not reachable; queueing the deletion", nbce);
+			deleteNotesOffline(notes);
+		}
+	}
+	
+	private void deleteNotesOffline(List<Note> deleted) {
+		for (Note note : deleted) {
+			pendingOperations.enqueueDelete(note.getId());
+		}
+		removeNotesLocally(deleted);
 	}
 	
 	public List<Note> getUpdatedNotes() throws NoteBookException {
 		loadNotes();
 		return getNotes();
 	}
+	/**
+	 * An immutable snapshot of the local notes (see {@link NoteStore#snapshot()}).
+	 */
 	public List<Note> getNotes() {
-		return new ArrayList<Note>(notes);
+		return read(() -> notes.snapshot());
+	}
+	public Note getNote(int id) {
+		return read(() -> notes.get(id));
+	}
+	/**
+	 * The version of the local note, that changes with every local change of the note (or {@link NoteStore#NO_VERSION} if there is no such
+	 * note). The version can be used to detect concurrent changes (see {@link #updateNote(Note, long)}).
+	 */
+	public long getNoteVersion(int id) {
+		return read(() -> notes.getVersion(id));
+	}
+	/**
+	 * The version of the local note, if it's this instance (or {@link NoteStore#NO_VERSION} if the note was replaced by a newer instance, e.g.
+	 * by a save or a synchronization), so the content of an outdated instance can't be saved as the current version.
+	 */
+	public long getNoteVersion(Note note) {
+		return read(() -> notes.get(note.getId()) == note ? notes.getVersion(note.getId()) : NoteStore.NO_VERSION);
+	}
+	/**
+	 * Check whether the note is one of the local notes (by its id, because the local instance is replaced when the note is changed).
+	 */
+	public boolean containsNote(Note note) {
+		return read(() -> notes.get(note.getId()) != null);
+	}
+	public List<Note> getNotesByPriority(int minPriority, int maxPriority) {
+		return read(() -> notes.getByPriority(minPriority, maxPriority));
+	}
+	public List<Note> getNotesByExecutionDate(LocalDateTime from, LocalDateTime to) {
+		return read(() -> notes.getByExecutionDate(from, to));
+	}
+	public List<Note> getNotesByReminderDate(LocalDateTime from, LocalDateTime to) {
+		return read(() -> notes.getByReminderDate(from, to));
 	}
 	public List<Note> getSelectedNotes(NoteViewSelector selector) {
-		return selector.getMatching(getNotes());
+		return read(() -> selector.getMatching(notes));
+	}
+	/**
+	 * Get a page of the selected notes (see {@link NoteViewSelector#getPage(NoteStore, Note, int, int)}).
+	 */
+	public List<Note> getSelectedNotesPage(NoteViewSelector selector, Note after, int offset, int pageSize) {
+		return read(() -> selector.getPage(notes, after, offset, pageSize));
+	}
+	public int countSelectedNotes(NoteViewSelector selector) {
+		return read(() -> selector.count(notes));
+	}
+	public int indexOfSelectedNote(NoteViewSelector selector, Note note) {
+		return read(() -> selector.indexOf(notes, note));
+	}
+	/**
+	 * Find the notes that contain all words of the query (or words starting with them) in their headline or text, ranked by relevance.
+	 */
+	public List<Note> searchNotes(String query) {
+		return read(() -> notes.search(query, NoteTextIndex.Field.ALL));
+	}
+	
+	public NoteSynchronizer getSynchronizer() {
+		return synchronizer;
+	}
+	
+	/**
+	 * The scheduler that fires the reminder dates of the local notes (a listener has to be set to show them).
+	 */
+	public ReminderScheduler getReminderScheduler() {
+		return reminders;
+	}
+	
+	/**
+	 * Write all pending changes to the local note cache.
+	 */
+	public void close() {
+		reminders.close();
+		cache.close();
+		pendingOperations.close();
+	}
+	
+	/**
+	 * The number of local changes that were not yet sent to the server (because it was not reachable).
+	 */
+	public int getPendingOperationCount() {
+		return pendingOperations.size();
+	}
+	
+	private void scheduleCacheSave() {
+		cache.scheduleSave(this::getNotes);
+	}
+	
+	//the local notes are changed by the async requests and read by the UI, so the access is locked (the reads share the lock)
+	
+	private <T> T read(Supplier<T> reader) {
+		notesLock.readLock().lock();
+		try {
+			return reader.get();
+		}
+		finally {
+			notesLock.readLock().unlock();
+		}
+	}
+	private <T> T write(Supplier<T> writer) {
+		notesLock.writeLock().lock();
+		try {
+			return writer.get();
+		}
+		finally {
+			notesLock.writeLock().unlock();
+		}
+	}
+	
+	private void checkVersion(int noteId, long expectedVersion) throws NoteBookConflictException {
+		if (expectedVersion != ANY_VERSION) {
+			long version = getNoteVersion(noteId);
+			if (version != expectedVersion) {
+				LOGGER.warn("Note {} was changed concurrently (expected version: {}, current version: {})", noteId, expectedVersion, version);
+				throw new NoteBookConflictException(noteId, expectedVersion, version);
+			}
+		}
+	}
+	
+	private SyncStatistics mergeLoadedNotes(List<Note> loadedNotes, boolean fullSync, long bytesTransferred, long startTime) {
+		SyncStatistics statistics = write(() -> {
+			//notes with pending changes or remote changes since the synchronization was started are not overwritten by the (outdated) notes
+			return synchronizer.merge(notes, loadedNotes, fullSync, bytesTransferred, startTime,
+					noteId -> remotelyChangedNotes.contains(noteId) || pendingOperations.hasPendingOperations(noteId));
+		});
+		scheduleCacheSave();
+		
+		//the server is reachable again, so the pending changes can be sent
+		pendingOperations.replayNow();
+		return statistics;
+	}
+	
+	/**
+	 * Start recording the remote changes, that are applied while the notes of the synchronization are loaded (see
+	 * {@link #applyRemoteChange(NoteChangeEvent)}).
+	 */
+	private void syncStarted() {
+		write(() -> runningSyncs++);
+	}
+	private void syncFinished() {
+		write(() -> {
+			if (--runningSyncs == 0) {
+				remotelyChangedNotes.clear();
+			}
+			return null;
+		});
+	}
+	
+	private void addNoteLocally(Note note) {
+		write(() -> notes.put(note));
+		scheduleCacheSave();
+	}
+	/**
+	 * @return The new version of the note.
+	 */
+	private long updateNoteLocally(Note note) {
+		long version = write(() -> {
+			//the note might have been changed, so it's indices are updated
+			notes.put(note);
+			return notes.getVersion(note.getId());
+		});
+		scheduleCacheSave();
+		return version;
+	}
+	/**
+	 * Replace the local note, if it still has the expected version. The version is compared while the notes are locked, so a note that was
+	 * changed after the version was checked (e.g. by a synchronization while the update was sent) is not overwritten.
+	 * 
+	 * @return The new version of the note.
+	 */
+	private long updateNoteLocally(Note note, long expectedVersion) throws NoteBookConflictException {
+		return replaceNote(note, expectedVersion, false);
+	}
+	private long replaceNote(Note note, long expectedVersion, boolean enqueue) throws NoteBookConflictException {
+		long version;
+		notesLock.writeLock().lock();
+		try {
+			checkVersion(note.getId(), expectedVersion);
+			if (enqueue) {
+				//queued while the notes are locked, so a synchronization can't overwrite the note before the update is pending
+				pendingOperations.enqueueUpdate(note);
+			}
+			notes.put(note);
+			version = notes.getVersion(note.getId());
+		}
+		finally {
+			notesLock.writeLock().unlock();
+		}
+		scheduleCacheSave();
+		return version;
+	}
+	private void removeNotesLocally(List<Note> removed) {
+		write(() -> {
+			for (Note note : removed) {
+				notes.remove(note.getId());
+			}
+			return null;
+		});
+		scheduleCacheSave();
+	}
+	private void replaceTemporaryId(int temporaryId, int noteId) {
+		LOGGER.info("Note with temporary id {} was created; notes id is: {}", temporaryId, noteId);
+		write(() -> notes.changeId(temporaryId, noteId));
+		scheduleCacheSave();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * The changed fields of a note (the parameters of a patch_note request). Fields that are null were not changed.
+ *
+ * Changes of long note texts are sent as a {@link TextEdit} (the replaced part of the text), instead of the whole text.
+ */
+@JsonInclude(Include.NON_NULL)
+public class NotePatch {
+	
+	/**
+	 * The minimum length of a note text, that is changed by a {@link TextEdit} instead of sending the whole text.
+	 */
+	public static final int TEXT_EDIT_MIN_LENGTH = 1024;
+	
+	private int id;
+	private String headline;
+	private String noteText;
+	private TextEdit noteTextEdit;
+	private Integer priority;
+	private List<LocalDateTime> executionDates;
+	private List<LocalDateTime> reminderDates;
+	
+	/**
+	 * The replacement of a part of a text: the characters from the offset to offset + length are replaced by the text.
+	 *
+	 * The edit contains the hash of the text it is based on (see {@link #textHash(String)}), so the server can reject the edit if it's version
+	 * of the text is different (the whole text has to be sent then).
+	 */
+	public static class TextEdit {
+		
+		private int offset;
+		private int length;
+		private String text;
+		private long baseHash;
+		
+		public TextEdit() {}
+		public TextEdit(int offset, int length, String text, long baseHash) {
+			this.offset = offset;
+			this.length = length;
+			this.text = text;
+			this.baseHash = baseHash;
+		}
+		
+		/**
+		 * The edit that changes the old text to the new text (the part between the common prefix and the common suffix is replaced).
+		 */
+		public static TextEdit diff(String oldText, String newText) {
+			int maxPrefix = Math.min(oldText.length(), newText.length());
+			int prefix = 0;
+			while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) {
+				prefix++;
+			}
+			int maxSuffix = maxPrefix - prefix;
+			int suffix = 0;
+			while (suffix < maxSuffix && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+				suffix++;
+			}
+			//don't split surrogate pairs
+			if (prefix > 0 && Character.isHighSurrogate(newText.charAt(prefix - 1))) {
+				prefix--;
+			}
+			if (suffix > 0 && Character.isLowSurrogate(newText.charAt(newText.length() - suffix))) {
+				suffix--;
+			}
+			return new TextEdit(prefix, oldText.length() - prefix - suffix, newText.substring(prefix, newText.length() - suffix), textHash(oldText));
+		}
+		
+		/**
+		 * The hash of the text that an edit is based on: the CRC-32 of the UTF-8 encoded text.
+		 */
+		public static long textHash(String text) {
+			CRC32 crc = new CRC32();
+			crc.update(text.getBytes(StandardCharsets.UTF_8));
+			return crc.getValue();
+		}
+		
+		/**
+		 * Whether the edit can be applied to the text (the edit was created from the same text).
+		 */
+		public boolean isBasedOn(String oldText) {
+			return offset + length <= oldText.length() && baseHash == textHash(oldText);
+		}
+		
+		public String apply(String oldText) {
+			return oldText.substring(0, offset) + text + oldText.substring(offset + length);
+		}
+		
+		@Override
+		public String toString() {
+			return "TextEdit [offset=" + offset + ", length=" + length + ", text length=" + text.length() + ", baseHash=" + baseHash + "]";
+		}
+		
+		public int getOffset() {
+			return offset;
+		}
+		public void setOffset(int offset) {
+			this.offset = offset;
+		}
+		
+		public int getLength() {
+			return length;
+		}
+		public void setLength(int length) {
+			this.length = length;
+		}
+		
+		public String getText() {
+			return text;
+		}
+		public void setText(String text) {
+			this.text = text;
+		}
+		
+		public long getBaseHash() {
+			return baseHash;
+		}
+		public void setBaseHash(long baseHash) {
+			this.baseHash = baseHash;
+		}
+	}
+	
+	public NotePatch() {}
+	public NotePatch(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * The changes from the saved version of a note to the current version.
+	 */
+	public static NotePatch diff(Note saved, Note current) {
+		NotePatch patch = new NotePatch(current.getId());
+		if (!Objects.equals(saved.getHeadline(), current.getHeadline())) {
+			patch.headline = current.getHeadline();
+		}
+		String savedText = saved.getNoteText();
+		String currentText = current.getNoteText();
+		if (!Objects.equals(savedText, currentText)) {
+			if (savedText != null && currentText != null && currentText.length() >= TEXT_EDIT_MIN_LENGTH) {
+				TextEdit edit = TextEdit.diff(savedText, currentText);
+				//if most of the text was changed, the text is sent (the edit is not smaller)
+				if (edit.getText().length() < currentText.length() / 2) {
+					patch.noteTextEdit = edit;
+				}
+				else {
+					patch.noteText = currentText;
+				}
+			}
+			else {
+				patch.noteText = currentText;
+			}
+		}
+		if (saved.getPriority() != current.getPriority()) {
+			patch.priority = current.getPriority();
+		}
+		if (!Objects.equals(saved.getExecutionDates(), current.getExecutionDates())) {
+			patch.executionDates = copy(current.getExecutionDates());
+		}
+		if (!Objects.equals(saved.getReminderDates(), current.getReminderDates())) {
+			patch.reminderDates = copy(current.getReminderDates());
+		}
+		return patch;
+	}
+	
+	private static List<LocalDateTime> copy(List<LocalDateTime> dates) {
+		//a removed list is sent as empty list (null means unchanged)
+		return dates == null ? new ArrayList<LocalDateTime>() : new ArrayList<LocalDateTime>(dates);
+	}
+	
+	/**
+	 * Apply the changes to a note (e.g. the server's version of the note).
+	 */
+	public void applyTo(Note note) {
+		if (headline != null) {
+			note.setHeadline(headline);
+		}
+		if (noteText != null) {
+			note.setNoteText(noteText);
+		}
+		if (noteTextEdit != null) {
+			note.setNoteText(noteTextEdit.apply(note.getNoteText() == null ? "" : note.getNoteText()));
+		}
+		if (priority != null) {
+			note.setPriority(priority);
+		}
+		if (executionDates != null) {
+			note.setExecutionDates(new ArrayList<LocalDateTime>(executionDates));
+		}
+		if (reminderDates != null) {
+			note.setReminderDates(new ArrayList<LocalDateTime>(reminderDates));
+		}
+	}
+	
+	/**
+	 * Whether no field was changed.
+	 */
+	@JsonIgnore
+	public boolean isEmpty() {
+		return headline == null && noteText == null && noteTextEdit == null && priority == null && executionDates == null && reminderDates == null;
+	}
+	
+	@Override
+	public String toString() {
+		return "NotePatch [id=" + id + ", headline=" + headline + ", noteText=" + (noteText == null ? null : noteText.length() + " chars")
+				+ ", noteTextEdit=" + noteTextEdit + ", priority=" + priority + ", executionDates=" + executionDates + ", reminderDates="
+				+ reminderDates + "]";
+	}
+	
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	
+	public String getHeadline() {
+		return headline;
+	}
+	public void setHeadline(String headline) {
+		this.headline = headline;
+	}
+	
+	public String getNoteText() {
+		return noteText;
+	}
+	public void setNoteText(String noteText) {
+		this.noteText = noteText;
+	}
+	
+	public TextEdit getNoteTextEdit() {
+		return noteTextEdit;
+	}
+	public void setNoteTextEdit(TextEdit noteTextEdit) {
+		this.noteTextEdit = noteTextEdit;
+	}
+	
+	public Integer getPriority() {
+		return priority;
+	}
+	public void setPriority(Integer priority) {
+		this.priority = priority;
+	}
+	
+	public List<LocalDateTime> getExecutionDates() {
+		return executionDates;
+	}
+	public void setExecutionDates(List<LocalDateTime> executionDates) {
+		this.executionDates = executionDates;
+	}
+	
+	public List<LocalDateTime> getReminderDates() {
+		return reminderDates;
+	}
+	public void setReminderDates(List<LocalDateTime> reminderDates) {
+		this.reminderDates = reminderDates;
+	}
+}
\ No newline at end of file
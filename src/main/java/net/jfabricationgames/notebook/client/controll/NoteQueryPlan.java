@@ -0,0 +1,186 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A compiled {@link NoteViewSelector}: all conditions fused into one predicate and the sort order, that are evaluated in a single pass over
+ * the notes.
+ *
+ * If only the first notes are needed (a limit is set), the notes are collected in a bounded heap (top-k), so the matching notes don't have to
+ * be sorted completely (notes that are equal by the comparator may be in a different order than after a full sort). Large note collections
+ * are processed by a parallel stream.
+ *
+ * The notes can also be selected page by page (see {@link #executePage(Collection, Note, int)}). The pages are sorted by the sort order and
+ * the id of the notes, so every note has a unique position, even if it's equal to other notes by the sort order.
+ */
+public class NoteQueryPlan {
+	
+	private static final Comparator<Note> BY_ID = Comparator.comparingInt(Note::getId);
+	
+	private final Predicate<Note> predicate;
+	private final Comparator<Note> comparator;
+	private final Comparator<Note> pageComparator;
+	private final int limit;
+	private final int parallelThreshold;
+	
+	/**
+	 * @param predicate
+	 *        The fused conditions of the selector (or null if all notes match).
+	 *
+	 * @param comparator
+	 *        The sort order (or null to keep the order of the notes).
+	 *
+	 * @param limit
+	 *        The maximum number of notes in the result (or a value smaller than 1 for all notes).
+	 *
+	 * @param parallelThreshold
+	 *        The number of notes from which on a parallel stream is used (or a value smaller than 1 to never use a parallel stream).
+	 */
+	public NoteQueryPlan(Predicate<Note> predicate, Comparator<Note> comparator, int limit, int parallelThreshold) {
+		this.predicate = predicate;
+		this.comparator = comparator;
+		this.pageComparator = comparator == null ? BY_ID : comparator.thenComparing(BY_ID);
+		this.limit = limit;
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * Get the matching notes in the order of the plan.
+	 */
+	public List<Note> execute(Collection<Note> notes) {
+		if (predicate == null && limit <= 0) {
+			//nothing to filter, so a copy of the notes is sorted (a stream would only add allocations)
+			List<Note> matching = new ArrayList<Note>(notes);
+			if (comparator != null) {
+				matching.sort(comparator);
+			}
+			return matching;
+		}
+		
+		boolean parallel = isParallel(notes.size());
+		Stream<Note> stream = parallel ? notes.parallelStream() : notes.stream();
+		if (predicate != null) {
+			stream = stream.filter(predicate);
+		}
+		
+		if (limit > 0) {
+			if (comparator == null) {
+				//keep the order of the notes, so the first matches are the result
+				return stream.limit(limit).collect(Collectors.toList());
+			}
+			return stream.collect(topK(limit, comparator));
+		}
+		
+		List<Note> matching = stream.collect(Collectors.toCollection(ArrayList::new));
+		if (comparator != null) {
+			matching.sort(comparator);
+		}
+		return matching;
+	}
+	
+	/**
+	 * The number of matching notes (the limit is ignored).
+	 */
+	public int count(Collection<Note> notes) {
+		if (predicate == null) {
+			return notes.size();
+		}
+		return (int) filter(notes).count();
+	}
+	
+	/**
+	 * Get the next page of matching notes after a note of the previous page (keyset pagination): only the notes after the given note are
+	 * collected, so every page is selected in one pass with a heap of the page size (the limit of the plan is ignored).
+	 * 
+	 * @param after
+	 *        The last note of the previous page (or null for the first page).
+	 */
+	public List<Note> executePage(Collection<Note> notes, Note after, int pageSize) {
+		Stream<Note> stream = filter(notes);
+		if (after != null) {
+			stream = stream.filter(note -> pageComparator.compare(note, after) > 0);
+		}
+		return stream.collect(topK(pageSize, pageComparator));
+	}
+	
+	/**
+	 * Get a page of matching notes by it's offset (if the previous page is not known). All notes up to the end of the page are collected, so
+	 * {@link #executePage(Collection, Note, int)} should be preferred.
+	 */
+	public List<Note> executePage(Collection<Note> notes, int offset, int pageSize) {
+		List<Note> first = filter(notes).collect(topK(offset + pageSize, pageComparator));
+		if (offset >= first.size()) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Note>(first.subList(offset, first.size()));
+	}
+	
+	/**
+	 * The position of a note in the pages (or -1 if the note doesn't match). The position is computed without sorting the notes.
+	 */
+	public int indexOf(Collection<Note> notes, Note note) {
+		if (predicate != null && !predicate.test(note)) {
+			return -1;
+		}
+		return (int) filter(notes).filter(other -> pageComparator.compare(other, note) < 0).count();
+	}
+	
+	private Stream<Note> filter(Collection<Note> notes) {
+		Stream<Note> stream = isParallel(notes.size()) ? notes.parallelStream() : notes.stream();
+		if (predicate != null) {
+			stream = stream.filter(predicate);
+		}
+		return stream;
+	}
+	
+	/**
+	 * A collector that keeps only the first k notes (by the comparator) in a bounded heap, whose head is the last of the current first k notes.
+	 */
+	private static Collector<Note, ?, List<Note>> topK(int k, Comparator<Note> comparator) {
+		Comparator<Note> reversed = comparator.reversed();
+		return Collector.of(() -> new PriorityQueue<Note>(k + 1, reversed), (heap, note) -> offer(heap, note, k, comparator), (heap, other) -> {
+			for (Note note : other) {
+				offer(heap, note, k, comparator);
+			}
+			return heap;
+		}, heap -> {
+			List<Note> first = new ArrayList<Note>(heap);
+			first.sort(comparator);
+			return first;
+		});
+	}
+	
+	private static void offer(PriorityQueue<Note> heap, Note note, int k, Comparator<Note> comparator) {
+		if (heap.size() < k) {
+			heap.add(note);
+		}
+		else if (comparator.compare(note, heap.peek()) < 0) {
+			heap.poll();
+			heap.add(note);
+		}
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	public boolean isParallel(int notes) {
+		return parallelThreshold > 0 && notes >= parallelThreshold;
+	}
+	
+	@Override
+	public String toString() {
+		return "NoteQueryPlan [filtered=" + (predicate != null) + ", sorted=" + (comparator != null) + ", limit=" + limit + ", parallelThreshold="
+				+ parallelThreshold + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,357 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
+import net.jfabricationgames.notebook.note.NoteSelector;
+
+/**
+ * Caches the results of get_notes requests by their selectors (see {@link NoteClient#getNotes(NoteSelector)}), so the same query is not sent
+ * to the server again while the result is valid.
+ *
+ * The results are evicted when they are older than the time to live (the changes of other clients are not seen before) or when the cache is
+ * full (the least recently used result). The changes of this client invalidate only the results they affect: the results whose selector
+ * matches the created or changed note, the results that contain the changed note and the results that contain notes matching the selector of a
+ * delete request.
+ *
+ * The cached notes are copies, so the notes that are returned by the cache can be changed.
+ */
+public class NoteSelectorCache {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteSelectorCache.class);
+	
+	/**
+	 * The maximum number of notes of a cached result. Larger results (e.g. an export of all notes) are not cached, so they don't have to be
+	 * held in memory.
+	 */
+	public static final int MAX_RESULT_SIZE = 10000;
+	
+	private final int maxEntries;
+	private final long timeToLive;
+	//the time in milliseconds (can be replaced to test the expiration)
+	private final LongSupplier clock;
+	
+	//the results in access order (the first one is the least recently used one)
+	private final LinkedHashMap<SelectorKey, CachedResult> entries;
+	//incremented by every invalidation, so results that were loaded while the notes were changed are not cached
+	private long generation;
+	
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+	
+	/**
+	 * The relevant fields of a selector in a canonical form (e.g. the ids of an IN relation are sorted), so equal queries have equal keys.
+	 */
+	private static final class SelectorKey {
+		
+		private final NoteRelation idRelation;
+		private final List<Integer> ids;
+		private final NoteRelation dateRelation;
+		private final LocalDateTime date;
+		private final NoteRelation priorityRelation;
+		private final int priority;
+		private final int hash;
+		
+		private SelectorKey(NoteSelector selector) {
+			idRelation = relationOrNone(selector.getIdRelation());
+			ids = canonicalIds(idRelation, selector.getIds());
+			dateRelation = relationOrNone(selector.getDateRelation());
+			date = dateRelation == NoteRelation.NONE ? null : selector.getDate();
+			priorityRelation = relationOrNone(selector.getPriorityRelation());
+			priority = priorityRelation == NoteRelation.NONE ? 0 : selector.getPriority();
+			hash = Objects.hash(idRelation, ids, dateRelation, date, priorityRelation, priority);
+		}
+		
+		private static NoteRelation relationOrNone(NoteRelation relation) {
+			return relation == null ? NoteRelation.NONE : relation;
+		}
+		
+		private static List<Integer> canonicalIds(NoteRelation relation, List<Integer> ids) {
+			if (relation == NoteRelation.NONE || ids == null || ids.isEmpty()) {
+				return Collections.emptyList();
+			}
+			switch (relation) {
+				case EQUALS:
+				case IN:
+					//the order and duplicates of the ids don't change the selection
+					return new ArrayList<Integer>(new TreeSet<Integer>(ids));
+				case GREATER:
+				case GREATER_EQUALS:
+				case LESS:
+				case LESS_EQUALS:
+					//only the first id is compared
+					return Collections.singletonList(ids.get(0));
+				default:
+					return new ArrayList<Integer>(ids);
+			}
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SelectorKey)) {
+				return false;
+			}
+			SelectorKey other = (SelectorKey) obj;
+			return hash == other.hash && priority == other.priority && idRelation == other.idRelation && dateRelation == other.dateRelation
+					&& priorityRelation == other.priorityRelation && ids.equals(other.ids) && Objects.equals(date, other.date);
+		}
+		
+		@Override
+		public String toString() {
+			return "SelectorKey [idRelation=" + idRelation + ", ids=" + ids + ", dateRelation=" + dateRelation + ", date=" + date
+					+ ", priorityRelation=" + priorityRelation + ", priority=" + priority + "]";
+		}
+	}
+	
+	private static final class CachedResult {
+		
+		//a copy of the selector (the caller's selector can be changed), to check whether a changed note matches
+		private final NoteSelector selector;
+		private final List<Note> notes;
+		private final IntObjectHashMap<Note> notesById;
+		private final long loadTime;
+		
+		private CachedResult(NoteSelector selector, List<Note> notes, long loadTime) {
+			this.selector = selector;
+			this.notes = notes;
+			this.loadTime = loadTime;
+			notesById = new IntObjectHashMap<Note>(notes.size());
+			for (Note note : notes) {
+				notesById.put(note.getId(), note);
+			}
+		}
+		
+		private boolean matches(Note note) {
+			return !selector.getMatching(Collections.singletonList(note)).isEmpty();
+		}
+	}
+	
+	/**
+	 * Records the notes of a get_notes request while they are passed to the consumer, to cache them when the request is completed (see
+	 * {@link NoteSelectorCache#startLoad(NoteSelector, Consumer)}).
+	 */
+	public class Load implements Consumer<Note> {
+		
+		private final NoteSelector selector;
+		private final Consumer<Note> consumer;
+		private final long loadGeneration;
+		//null if the result is too large to be cached
+		private List<Note> notes = new ArrayList<Note>();
+		
+		private Load(NoteSelector selector, Consumer<Note> consumer, long loadGeneration) {
+			this.selector = selector;
+			this.consumer = consumer;
+			this.loadGeneration = loadGeneration;
+		}
+		
+		@Override
+		public void accept(Note note) {
+			if (notes != null) {
+				if (notes.size() < MAX_RESULT_SIZE) {
+					//the note is copied before the consumer can change it
+					notes.add(PendingOperation.copyOf(note));
+				}
+				else {
+					notes = null;
+				}
+			}
+			consumer.accept(note);
+		}
+		
+		/**
+		 * Cache the loaded notes (if no notes were changed by this client since the request was started and the result is not too large).
+		 */
+		public void completed() {
+			if (notes != null) {
+				put(selector, notes, loadGeneration);
+			}
+		}
+	}
+	
+	/**
+	 * @param maxEntries
+	 *        The maximum number of cached results (the least recently used result is evicted).
+	 *
+	 * @param timeToLive
+	 *        The time (in milliseconds) a result is valid after it was loaded.
+	 */
+	public NoteSelectorCache(int maxEntries, long timeToLive) {
+		this(maxEntries, timeToLive, System::currentTimeMillis);
+	}
+	
+	public NoteSelectorCache(int maxEntries, long timeToLive, LongSupplier clock) {
+		this.maxEntries = maxEntries;
+		this.timeToLive = timeToLive;
+		this.clock = clock;
+		entries = new LinkedHashMap<SelectorKey, CachedResult>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SelectorKey, CachedResult> eldest) {
+				if (size() > NoteSelectorCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Get (copies of) the cached notes of the selector, or null if the result is not cached (or expired).
+	 */
+	public synchronized List<Note> get(NoteSelector selector) {
+		SelectorKey key = new SelectorKey(selector);
+		CachedResult entry = entries.get(key);
+		if (entry != null && clock.getAsLong() - entry.loadTime >= timeToLive) {
+			entries.remove(key);
+			expirations++;
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		List<Note> notes = new ArrayList<Note>(entry.notes.size());
+		for (Note note : entry.notes) {
+			notes.add(PendingOperation.copyOf(note));
+		}
+		return notes;
+	}
+	
+	/**
+	 * Start to load the notes of the selector. The returned load has to be passed the loaded notes and has to be completed when all notes were
+	 * loaded.
+	 *
+	 * @param consumer
+	 *        Receives the loaded notes.
+	 */
+	public synchronized Load startLoad(NoteSelector selector, Consumer<Note> consumer) {
+		return new Load(copyOf(selector), consumer, generation);
+	}
+	
+	private synchronized void put(NoteSelector selector, List<Note> notes, long loadGeneration) {
+		if (loadGeneration != generation) {
+			LOGGER.debug("The notes were changed while they were loaded; not caching the result of selector: {}", selector);
+			return;
+		}
+		entries.put(new SelectorKey(selector), new CachedResult(selector, notes, clock.getAsLong()));
+	}
+	
+	/**
+	 * A note was created or changed (or the request failed, but might have been executed): the results that might contain the note are
+	 * invalidated.
+	 */
+	public synchronized void noteChanged(Note note) {
+		invalidate(entry -> entry.notesById.containsKey(note.getId()) || entry.matches(note));
+	}
+	
+	/**
+	 * Notes were deleted by the selector: the results that contain one of the deleted notes are invalidated.
+	 */
+	public synchronized void notesDeleted(NoteSelector selector) {
+		invalidate(entry -> !selector.getMatching(entry.notes).isEmpty());
+	}
+	
+	/**
+	 * Drop all cached results (e.g. because the changes of other clients have to be loaded).
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		invalidations += entries.size();
+		entries.clear();
+	}
+	
+	private void invalidate(Predicate<CachedResult> affected) {
+		generation++;
+		for (Iterator<CachedResult> iter = entries.values().iterator(); iter.hasNext();) {
+			if (affected.test(iter.next())) {
+				iter.remove();
+				invalidations++;
+			}
+		}
+	}
+	
+	private static NoteSelector copyOf(NoteSelector selector) {
+		NoteSelector copy = new NoteSelector();
+		copy.setIds(selector.getIds() == null ? null : new ArrayList<Integer>(selector.getIds()));
+		copy.setIdRelation(selector.getIdRelation());
+		copy.setDate(selector.getDate());
+		copy.setDateRelation(selector.getDateRelation());
+		copy.setPriority(selector.getPriority());
+		copy.setPriorityRelation(selector.getPriorityRelation());
+		return copy;
+	}
+	
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * The number of requests that were answered by the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	/**
+	 * The number of requests that were not cached (or expired) and had to be sent.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+	/**
+	 * The number of results that were evicted because the cache was full.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	/**
+	 * The number of results that were dropped because they were older than the time to live.
+	 */
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+	/**
+	 * The number of results that were dropped because they were affected by a change.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "NoteSelectorCache [entries=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+				+ ", expirations=" + expirations + ", invalidations=" + invalidations + "]";
+	}
+}
\ No newline at end of file
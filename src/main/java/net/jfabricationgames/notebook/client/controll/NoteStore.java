@@ -0,0 +1,333 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * The local notes, indexed by their ids (a primitive hash map), by priority, execution dates and reminder dates (sorted indices) and by the
+ * words of their headlines and texts (see {@link NoteTextIndex}).
+ *
+ * The notes are mutable, so a note that was changed has to be put into the store again to update the indices. Every put gives the note a new
+ * version (see {@link #getVersion(int)}), so concurrent changes of a note can be detected.
+ *
+ * The store is not thread safe: it has to be locked for changes, but it can be read by several threads at the same time (see
+ * {@link NoteManager}).
+ */
+public class NoteStore {
+	
+	/**
+	 * Is informed about every change of the store (e.g. to keep indices outside of the store up to date). The listener is called by the thread
+	 * that changes the store.
+	 */
+	public interface Listener {
+		
+		/**
+		 * A note was added or replaced (or it was changed and put again).
+		 */
+		public void notePut(Note note);
+		
+		public void noteRemoved(int id);
+	}
+	
+	/**
+	 * An entry of a sorted index: the indexed key and the id of the note (to distinguish notes with equal keys).
+	 */
+	private static final class IndexEntry<K extends Comparable<? super K>> implements Comparable<IndexEntry<K>> {
+		
+		private final K key;
+		private final int noteId;
+		
+		private IndexEntry(K key, int noteId) {
+			this.key = key;
+			this.noteId = noteId;
+		}
+		
+		@Override
+		public int compareTo(IndexEntry<K> other) {
+			int comparison = key.compareTo(other.key);
+			if (comparison != 0) {
+				return comparison;
+			}
+			return Integer.compare(noteId, other.noteId);
+		}
+	}
+	
+	/**
+	 * The version of a note that is not stored.
+	 */
+	public static final long NO_VERSION = 0;
+	
+	/**
+	 * The keys a note was indexed with (the note itself may have been changed since, so the old keys are needed to remove the index entries) and
+	 * the version of the note.
+	 */
+	private static final class IndexedKeys {
+		
+		private final int priority;
+		private final List<LocalDateTime> executionDates;
+		private final List<LocalDateTime> reminderDates;
+		private final long version;
+		
+		private IndexedKeys(Note note, long version) {
+			this.version = version;
+			priority = note.getPriority();
+			executionDates = copyDates(note.getExecutionDates());
+			reminderDates = copyDates(note.getReminderDates());
+		}
+		
+		private static List<LocalDateTime> copyDates(List<LocalDateTime> dates) {
+			if (dates == null || dates.isEmpty()) {
+				return Collections.emptyList();
+			}
+			List<LocalDateTime> copy = new ArrayList<LocalDateTime>(dates.size());
+			for (LocalDateTime date : dates) {
+				//the notes of the server or the cache can contain null dates, that can't be indexed
+				if (date != null) {
+					copy.add(date);
+				}
+			}
+			return copy;
+		}
+	}
+	
+	private final IntObjectHashMap<Note> notesById;
+	private final IntObjectHashMap<IndexedKeys> indexedKeysById;
+	
+	private final NavigableSet<IndexEntry<Integer>> priorityIndex = new TreeSet<IndexEntry<Integer>>();
+	private final NavigableSet<IndexEntry<LocalDateTime>> executionDateIndex = new TreeSet<IndexEntry<LocalDateTime>>();
+	private final NavigableSet<IndexEntry<LocalDateTime>> reminderDateIndex = new TreeSet<IndexEntry<LocalDateTime>>();
+	private final NoteTextIndex textIndex = new NoteTextIndex();
+	
+	private long idChecksum;
+	//the versions of the notes are unique (a note that was removed and added again doesn't get a version it had before)
+	private long lastVersion = NO_VERSION;
+	
+	//the snapshot is shared by all callers until the store is changed (it's created by the readers, that can be several threads)
+	private volatile List<Note> snapshot;
+	
+	private Listener listener;
+	
+	public NoteStore() {
+		this(Collections.emptyList());
+	}
+	public NoteStore(Collection<Note> notes) {
+		notesById = new IntObjectHashMap<Note>(notes.size());
+		indexedKeysById = new IntObjectHashMap<IndexedKeys>(notes.size());
+		for (Note note : notes) {
+			put(note);
+		}
+	}
+	
+	/**
+	 * Add a note or replace the note with the same id. A note that was changed has to be put again to update the indices.
+	 *
+	 * @return The note that was replaced or null if the note was added.
+	 */
+	public Note put(Note note) {
+		int id = note.getId();
+		Note previous = notesById.put(id, note);
+		if (previous == null) {
+			idChecksum += idHash(id);
+		}
+		else {
+			removeIndexEntries(id, indexedKeysById.get(id));
+		}
+		IndexedKeys keys = new IndexedKeys(note, ++lastVersion);
+		indexedKeysById.put(id, keys);
+		addIndexEntries(id, keys);
+		snapshot = null;
+		if (listener != null) {
+			listener.notePut(note);
+		}
+		return previous;
+	}
+	
+	/**
+	 * Remove the note with the given id.
+	 *
+	 * @return The removed note or null if there was no note with this id.
+	 */
+	public Note remove(int id) {
+		Note removed = notesById.remove(id);
+		if (removed != null) {
+			idChecksum -= idHash(id);
+			removeIndexEntries(id, indexedKeysById.remove(id));
+			snapshot = null;
+			if (listener != null) {
+				listener.noteRemoved(id);
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * Change the id of a note (e.g. when a note that was created offline got it's id from the server).
+	 *
+	 * @return The note or null if there was no note with the old id.
+	 */
+	public Note changeId(int oldId, int newId) {
+		Note note = remove(oldId);
+		if (note != null) {
+			note.setId(newId);
+			put(note);
+		}
+		return note;
+	}
+	
+	private void addIndexEntries(int id, IndexedKeys keys) {
+		priorityIndex.add(new IndexEntry<Integer>(keys.priority, id));
+		for (LocalDateTime date : keys.executionDates) {
+			executionDateIndex.add(new IndexEntry<LocalDateTime>(date, id));
+		}
+		for (LocalDateTime date : keys.reminderDates) {
+			reminderDateIndex.add(new IndexEntry<LocalDateTime>(date, id));
+		}
+		textIndex.put(notesById.get(id));
+	}
+	private void removeIndexEntries(int id, IndexedKeys keys) {
+		priorityIndex.remove(new IndexEntry<Integer>(keys.priority, id));
+		for (LocalDateTime date : keys.executionDates) {
+			executionDateIndex.remove(new IndexEntry<LocalDateTime>(date, id));
+		}
+		for (LocalDateTime date : keys.reminderDates) {
+			reminderDateIndex.remove(new IndexEntry<LocalDateTime>(date, id));
+		}
+		textIndex.remove(id);
+	}
+	
+	public Note get(int id) {
+		return notesById.get(id);
+	}
+	public boolean contains(int id) {
+		return notesById.containsKey(id);
+	}
+	
+	/**
+	 * The version of the note with the given id, that changes every time the note is put (or {@link #NO_VERSION} if there is no such note).
+	 */
+	public long getVersion(int id) {
+		IndexedKeys keys = indexedKeysById.get(id);
+		return keys != null ? keys.version : NO_VERSION;
+	}
+	
+	public int size() {
+		return notesById.size();
+	}
+	public boolean isEmpty() {
+		return notesById.isEmpty();
+	}
+	
+	/**
+	 * Set the listener, that is informed about the changes of the store. The listener is informed about all notes that are already stored
+	 * (by {@link Listener#notePut(Note)}).
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+		if (listener != null) {
+			notesById.forEachValue(listener::notePut);
+		}
+	}
+	
+	/**
+	 * An immutable list of all notes (in no particular order). The list is only created again after the store was changed, so repeated calls
+	 * don't copy the notes.
+	 */
+	public List<Note> snapshot() {
+		List<Note> current = snapshot;
+		if (current == null) {
+			Note[] notes = new Note[notesById.size()];
+			int[] index = new int[1];
+			notesById.forEachValue(note -> notes[index[0]++] = note);
+			//readers that create the snapshot at the same time create equal snapshots
+			current = Collections.unmodifiableList(Arrays.asList(notes));
+			snapshot = current;
+		}
+		return current;
+	}
+	
+	/**
+	 * Get the notes with a priority between min and max (both inclusive), ordered by priority.
+	 */
+	public List<Note> getByPriority(int minPriority, int maxPriority) {
+		if (minPriority > maxPriority) {
+			return Collections.emptyList();
+		}
+		return resolve(priorityIndex.subSet(new IndexEntry<Integer>(minPriority, Integer.MIN_VALUE), true,
+				new IndexEntry<Integer>(maxPriority, Integer.MAX_VALUE), true));
+	}
+	
+	/**
+	 * Get the notes with an execution date between from and to (both inclusive), ordered by the first matching date.
+	 */
+	public List<Note> getByExecutionDate(LocalDateTime from, LocalDateTime to) {
+		return resolveDates(executionDateIndex, from, to);
+	}
+	
+	/**
+	 * Get the notes with a reminder date between from and to (both inclusive), ordered by the first matching date.
+	 */
+	public List<Note> getByReminderDate(LocalDateTime from, LocalDateTime to) {
+		return resolveDates(reminderDateIndex, from, to);
+	}
+	
+	/**
+	 * Find the notes that contain all words of the query (or words starting with them; case insensitive) in the given field, ranked by
+	 * relevance (see {@link NoteTextIndex}).
+	 */
+	public List<Note> search(String query, NoteTextIndex.Field field) {
+		List<Integer> noteIds = textIndex.search(query, field);
+		List<Note> notes = new ArrayList<Note>(noteIds.size());
+		for (int id : noteIds) {
+			notes.add(notesById.get(id));
+		}
+		return notes;
+	}
+	
+	private List<Note> resolveDates(NavigableSet<IndexEntry<LocalDateTime>> index, LocalDateTime from, LocalDateTime to) {
+		if (from.isAfter(to)) {
+			return Collections.emptyList();
+		}
+		return resolve(index.subSet(new IndexEntry<LocalDateTime>(from, Integer.MIN_VALUE), true, new IndexEntry<LocalDateTime>(to, Integer.MAX_VALUE),
+				true));
+	}
+	
+	private List<Note> resolve(Collection<? extends IndexEntry<?>> entries) {
+		List<Note> notes = new ArrayList<Note>(entries.size());
+		//a note can have multiple dates in the range, but is only added once
+		IntObjectHashMap<Note> added = new IntObjectHashMap<Note>(entries.size());
+		for (IndexEntry<?> entry : entries) {
+			Note note = notesById.get(entry.noteId);
+			if (added.put(entry.noteId, note) == null) {
+				notes.add(note);
+			}
+		}
+		return notes;
+	}
+	
+	/**
+	 * An order independent checksum of the ids of all notes (kept up to date on every change), that is used to compare the id sets of the notes
+	 * with the notes from the server cheaply.
+	 */
+	public long getIdChecksum() {
+		return idChecksum;
+	}
+	
+	/**
+	 * The hash of an id for the id checksum: the bits of the id are mixed (murmur3 finalizer), so the sums of different id sets rarely collide.
+	 */
+	public static long idHash(int id) {
+		long hash = id;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
\ No newline at end of file
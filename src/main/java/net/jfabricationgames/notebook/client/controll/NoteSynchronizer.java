@@ -0,0 +1,191 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.client.controll.SyncStatistics.SyncType;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
+import net.jfabricationgames.notebook.note.NoteSelector;
+import net.jfabricationgames.notebook.note.NoteSelectorBuilder;
+
+/**
+ * Synchronizes the local notes with the server incrementally.
+ * 
+ * The service doesn't store modification timestamps, so the watermark of a synchronization is the highest note id that was received. A delta
+ * synchronization only loads the notes with a higher id (the notes that were created since the last synchronization). Every few
+ * synchronizations (see {@link #setFullSyncInterval(int)}) a full synchronization loads all notes to find the notes that were updated or deleted
+ * by other clients. The notes are merged into the local {@link NoteStore} by their ids, so unchanged notes keep their local instances.
+ *
+ * The updates and deletions of other clients are not found by the delta synchronizations (they don't change the highest id), so they are only
+ * visible after the next full synchronization, unless they are received as change events (see {@link NoteChangeSubscriber}).
+ */
+public class NoteSynchronizer {
+	
+	private static final Logger LOGGER = LogManager.getLogger(NoteSynchronizer.class);
+	
+	/**
+	 * Every third synchronization is a full one, so the updates and deletions of other clients are not missed for long.
+	 */
+	public static final int DEFAULT_FULL_SYNC_INTERVAL = 3;
+	
+	private int watermark;
+	private boolean synchronizedOnce;
+	private boolean fullSyncRequested;
+	private int syncsSinceFullSync;
+	private int fullSyncInterval = DEFAULT_FULL_SYNC_INTERVAL;
+	
+	private SyncStatistics lastStatistics;
+	private long totalNotesTransferred;
+	private long totalBytesTransferred;
+	
+	/**
+	 * Check whether the next synchronization has to be a full synchronization (the first one or every n-th one).
+	 */
+	public synchronized boolean isFullSyncDue() {
+		return !synchronizedOnce || fullSyncRequested || (fullSyncInterval > 0 && syncsSinceFullSync + 1 >= fullSyncInterval);
+	}
+	
+	/**
+	 * Create the selector for the notes that have to be loaded by the next synchronization.
+	 */
+	public synchronized NoteSelector createSelector(boolean fullSync) {
+		if (fullSync) {
+			return NoteSelector.empty();
+		}
+		return new NoteSelectorBuilder().addId(watermark).setIdRelation(NoteRelation.GREATER).build();
+	}
+	
+	/**
+	 * Merge the loaded notes into the local notes (the local store is changed).
+	 * 
+	 * @param localNotes
+	 *        The local notes, that are updated.
+	 * 
+	 * @param loadedNotes
+	 *        The notes that were loaded from the server using the selector from {@link #createSelector(boolean)}.
+	 * 
+	 * @param fullSync
+	 *        Whether all notes were loaded (so local notes that were not loaded were deleted on the server).
+	 * 
+	 * @param bytesTransferred
+	 *        The number of bytes that were received for the synchronization.
+	 * 
+	 * @param startTime
+	 *        The time (in milliseconds) when the synchronization was started.
+	 * 
+	 * @param locallyChanged
+	 *        Tests whether the local version of a note (by id) is newer than the loaded one (e.g. it has local changes that were not yet sent to
+	 *        the server or it was changed by a remote change event since the synchronization was started). These notes are neither updated nor
+	 *        removed.
+	 */
+	public synchronized SyncStatistics merge(NoteStore localNotes, List<Note> loadedNotes, boolean fullSync, long bytesTransferred, long startTime,
+			IntPredicate locallyChanged) {
+		int removed = 0;
+		if (fullSync && !isSameIdSet(localNotes, loadedNotes)) {
+			IntObjectHashMap<Note> loadedById = new IntObjectHashMap<Note>(loadedNotes.size());
+			for (Note note : loadedNotes) {
+				loadedById.put(note.getId(), note);
+			}
+			for (Note note : localNotes.snapshot()) {
+				if (!loadedById.containsKey(note.getId()) && !locallyChanged.test(note.getId())) {
+					localNotes.remove(note.getId());
+					removed++;
+				}
+			}
+		}
+		
+		int updated = 0;
+		int added = 0;
+		for (Note loaded : loadedNotes) {
+			Note local = localNotes.get(loaded.getId());
+			if (locallyChanged.test(loaded.getId())) {
+				//keep the local version
+			}
+			else if (local == null) {
+				localNotes.put(loaded);
+				added++;
+			}
+			else if (!isSameContent(local, loaded)) {
+				localNotes.put(loaded);
+				updated++;
+			}
+			watermark = Math.max(watermark, loaded.getId());
+		}
+		
+		if (fullSync) {
+			syncsSinceFullSync = 0;
+			fullSyncRequested = false;
+		}
+		else {
+			syncsSinceFullSync++;
+		}
+		synchronizedOnce = true;
+		
+		lastStatistics = new SyncStatistics(fullSync ? SyncType.FULL : SyncType.DELTA, loadedNotes.size(), bytesTransferred, added, updated,
+				removed, System.currentTimeMillis() - startTime);
+		totalNotesTransferred += loadedNotes.size();
+		totalBytesTransferred += bytesTransferred;
+		LOGGER.info("Synchronized notes: {} (watermark: {}; total notes transferred: {}; total bytes transferred: {})", lastStatistics, watermark,
+				totalNotesTransferred, totalBytesTransferred);
+		
+		return lastStatistics;
+	}
+	
+	/**
+	 * Compare the id sets of the notes using the size and an order independent checksum, so the deleted notes only have to be searched if
+	 * the sets differ.
+	 */
+	private boolean isSameIdSet(NoteStore localNotes, List<Note> loadedNotes) {
+		if (localNotes.size() != loadedNotes.size()) {
+			return false;
+		}
+		long loadedChecksum = 0;
+		for (Note note : loadedNotes) {
+			loadedChecksum += NoteStore.idHash(note.getId());
+		}
+		return localNotes.getIdChecksum() == loadedChecksum;
+	}
+	
+	static boolean isSameContent(Note local, Note loaded) {
+		return Objects.equals(local.getHeadline(), loaded.getHeadline()) && Objects.equals(local.getNoteText(), loaded.getNoteText())
+				&& local.getPriority() == loaded.getPriority() && Objects.equals(local.getExecutionDates(), loaded.getExecutionDates())
+				&& Objects.equals(local.getReminderDates(), loaded.getReminderDates());
+	}
+	
+	/**
+	 * The number of synchronizations after which a full synchronization is done (to find updated or deleted notes). A value of 1 means that
+	 * every synchronization is a full synchronization; values smaller than 1 mean that only the first synchronization is a full one.
+	 */
+	public synchronized int getFullSyncInterval() {
+		return fullSyncInterval;
+	}
+	public synchronized void setFullSyncInterval(int fullSyncInterval) {
+		this.fullSyncInterval = fullSyncInterval;
+	}
+	
+	/**
+	 * Force the next synchronization to be a full synchronization.
+	 */
+	public synchronized void requestFullSync() {
+		fullSyncRequested = true;
+	}
+	
+	public synchronized int getWatermark() {
+		return watermark;
+	}
+	
+	public synchronized SyncStatistics getLastStatistics() {
+		return lastStatistics;
+	}
+	public synchronized long getTotalNotesTransferred() {
+		return totalNotesTransferred;
+	}
+	public synchronized long getTotalBytesTransferred() {
+		return totalBytesTransferred;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,231 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * An inverted index over the headlines and texts of the notes, that finds notes by words (or prefixes of words) without scanning all notes.
+ *
+ * The texts are split into lower case terms (sequences of letters and digits). A query matches a note if every term of the query is a prefix of
+ * a term of the note (case insensitive). The results are ranked by the number of matches (matches in the headline are weighted higher, exact
+ * matches are weighted higher than prefix matches and rare terms are weighted higher than common ones). The index is not thread safe.
+ */
+public class NoteTextIndex {
+	
+	/**
+	 * The texts of a note that are searched.
+	 */
+	public enum Field {
+		HEADLINE, TEXT, ALL;
+	}
+	
+	private static final double HEADLINE_WEIGHT = 3;
+	private static final double PREFIX_MATCH_WEIGHT = 0.5;
+	
+	/**
+	 * The occurrences of a term in one note.
+	 */
+	private static final class Occurrences {
+		
+		private int headline;
+		private int text;
+		
+		private double count(Field field) {
+			switch (field) {
+				case HEADLINE:
+					return headline;
+				case TEXT:
+					return text;
+				default:
+					return headline * HEADLINE_WEIGHT + text;
+			}
+		}
+	}
+	
+	/**
+	 * A note that matches a query and it's score.
+	 */
+	private static final class Match {
+		
+		private final int noteId;
+		private double score;
+		
+		private Match(int noteId) {
+			this.noteId = noteId;
+		}
+	}
+	
+	//the terms are sorted, so all terms with a prefix can be found by a range query
+	private final NavigableMap<String, IntObjectHashMap<Occurrences>> postings = new TreeMap<String, IntObjectHashMap<Occurrences>>();
+	//the terms of every indexed note (to remove the note from the postings when it's changed or removed)
+	private final IntObjectHashMap<String[]> termsByNoteId = new IntObjectHashMap<String[]>();
+	
+	/**
+	 * Add a note to the index or replace the indexed texts of the note.
+	 */
+	public void put(Note note) {
+		remove(note.getId());
+		
+		Map<String, Occurrences> occurrences = new HashMap<String, Occurrences>();
+		for (String term : tokenize(note.getHeadline())) {
+			occurrences.computeIfAbsent(term, t -> new Occurrences()).headline++;
+		}
+		for (String term : tokenize(note.getNoteText())) {
+			occurrences.computeIfAbsent(term, t -> new Occurrences()).text++;
+		}
+		
+		for (Map.Entry<String, Occurrences> entry : occurrences.entrySet()) {
+			postings.computeIfAbsent(entry.getKey(), t -> new IntObjectHashMap<Occurrences>()).put(note.getId(), entry.getValue());
+		}
+		termsByNoteId.put(note.getId(), occurrences.keySet().toArray(new String[occurrences.size()]));
+	}
+	
+	/**
+	 * Remove a note from the index.
+	 */
+	public void remove(int noteId) {
+		String[] terms = termsByNoteId.remove(noteId);
+		if (terms != null) {
+			for (String term : terms) {
+				IntObjectHashMap<Occurrences> notes = postings.get(term);
+				notes.remove(noteId);
+				if (notes.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Find the ids of the notes that match all terms of the query in the given field, ranked by relevance (most relevant first).
+	 */
+	public List<Integer> search(String query, Field field) {
+		List<String> queryTerms = tokenize(query);
+		if (queryTerms.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		//start with the most selective term, so the intermediate results stay small
+		List<IntObjectHashMap<Match>> termMatches = new ArrayList<IntObjectHashMap<Match>>(queryTerms.size());
+		for (String term : queryTerms) {
+			IntObjectHashMap<Match> matches = matchTerm(term, field);
+			if (matches.isEmpty()) {
+				return Collections.emptyList();
+			}
+			termMatches.add(matches);
+		}
+		termMatches.sort((m1, m2) -> Integer.compare(m1.size(), m2.size()));
+		
+		IntObjectHashMap<Match> result = termMatches.get(0);
+		for (int i = 1; i < termMatches.size(); i++) {
+			IntObjectHashMap<Match> other = termMatches.get(i);
+			IntObjectHashMap<Match> intersection = new IntObjectHashMap<Match>(result.size());
+			result.forEachValue(match -> {
+				Match otherMatch = other.get(match.noteId);
+				if (otherMatch != null) {
+					match.score += otherMatch.score;
+					intersection.put(match.noteId, match);
+				}
+			});
+			result = intersection;
+		}
+		
+		List<Match> ranked = new ArrayList<Match>(result.size());
+		result.forEachValue(ranked::add);
+		//highest score first; newest note first for equal scores
+		ranked.sort((m1, m2) -> {
+			int comparison = Double.compare(m2.score, m1.score);
+			return comparison != 0 ? comparison : Integer.compare(m2.noteId, m1.noteId);
+		});
+		
+		List<Integer> noteIds = new ArrayList<Integer>(ranked.size());
+		for (Match match : ranked) {
+			noteIds.add(match.noteId);
+		}
+		return noteIds;
+	}
+	
+	/**
+	 * Score all notes that contain a term starting with the query term.
+	 */
+	private IntObjectHashMap<Match> matchTerm(String queryTerm, Field field) {
+		IntObjectHashMap<Match> matches = new IntObjectHashMap<Match>();
+		int indexedNotes = Math.max(1, termsByNoteId.size());
+		for (Map.Entry<String, IntObjectHashMap<Occurrences>> entry : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false)
+				.entrySet()) {
+			IntObjectHashMap<Occurrences> notes = entry.getValue();
+			double weight = Math.log(1 + (double) indexedNotes / notes.size());
+			if (!entry.getKey().equals(queryTerm)) {
+				weight *= PREFIX_MATCH_WEIGHT;
+			}
+			double termWeight = weight;
+			notes.forEach((noteId, occurrences) -> {
+				double count = occurrences.count(field);
+				if (count > 0) {
+					Match match = matches.get(noteId);
+					if (match == null) {
+						match = new Match(noteId);
+						matches.put(noteId, match);
+					}
+					match.score += count * termWeight;
+				}
+			});
+		}
+		return matches;
+	}
+	
+	public int size() {
+		return termsByNoteId.size();
+	}
+	
+	/**
+	 * Create a test of a single text, that matches like {@link #search(String, Field)} (every term of the query is a prefix of a term of the
+	 * text), but without an index. Returns null if the query has no terms (so it doesn't filter anything).
+	 */
+	static Predicate<String> createMatcher(String query) {
+		List<String> queryTerms = tokenize(query);
+		if (queryTerms.isEmpty()) {
+			return null;
+		}
+		return text -> {
+			List<String> terms = tokenize(text);
+			for (String queryTerm : queryTerms) {
+				if (terms.stream().noneMatch(term -> term.startsWith(queryTerm))) {
+					return false;
+				}
+			}
+			return true;
+		};
+	}
+	
+	/**
+	 * Split a text into lower case terms (sequences of letters and digits).
+	 */
+	static List<String> tokenize(String text) {
+		if (text == null || text.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> terms = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (termChar && start < 0) {
+				start = i;
+			}
+			else if (!termChar && start >= 0) {
+				terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+}
\ No newline at end of file
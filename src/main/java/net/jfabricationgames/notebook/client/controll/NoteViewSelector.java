@@ -1,12 +1,19 @@
 package net.jfabricationgames.notebook.client.controll;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import net.jfabricationgames.notebook.client.controll.NoteTextIndex.Field;
 import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
 import net.jfabricationgames.notebook.note.NoteSelector;
 
 public class NoteViewSelector extends NoteSelector {
@@ -33,24 +40,206 @@ public class NoteViewSelector extends NoteSelector {
 		}
 	}
 	
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+	
 	private SortOrder sortOrder = SortOrder.NONE;
 	private String headlineContainsText;
 	private String noteTextContainsText;
+	private int limit;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	
+	//the compiled plans are cached until the selector is changed
+	private NoteQueryPlan plan;
+	private NoteQueryPlan indexedPlan;
 	
+	/**
+	 * Get the matching notes of the list. The text filters match like the ones of {@link #getMatching(NoteStore)}, but the texts of every note
+	 * are searched.
+	 */
 	public List<Note> getMatching(List<Note> notes) {
-		notes = super.getMatching(notes);
-		Stream<Note> noteStream = notes.stream();
-		
-		if (headlineContainsText != null) {
-			noteStream.filter(note -> note.getHeadline().contains(headlineContainsText));
+		return compile().execute(notes);
+	}
+	
+	/**
+	 * Get the matching notes of a note store. The text filters are resolved by the text index of the store (so the notes match if they
+	 * contain all words of the filter text or words starting with them; case insensitive). With {@link SortOrder#NONE} the notes are ordered
+	 * by relevance.
+	 */
+	public List<Note> getMatching(NoteStore store) {
+		return compileForIndex().execute(getCandidates(store));
+	}
+	
+	/**
+	 * The number of matching notes of a note store (the limit is ignored).
+	 */
+	public int count(NoteStore store) {
+		return compileForIndex().count(getCandidates(store));
+	}
+	
+	/**
+	 * Get a page of the matching notes of a note store (the limit is ignored). The pages are ordered by the sort order and the id of the notes
+	 * (also for {@link SortOrder#NONE}), so every note is on exactly one page.
+	 * 
+	 * @param after
+	 *        The last note of the previous page, if it's known (the page is selected faster then), or null.
+	 *
+	 * @param offset
+	 *        The index of the first note of the page (only used if the last note of the previous page is not known).
+	 */
+	public List<Note> getPage(NoteStore store, Note after, int offset, int pageSize) {
+		NoteQueryPlan plan = compileForIndex();
+		List<Note> candidates = getCandidates(store);
+		if (after != null || offset == 0) {
+			return plan.executePage(candidates, after, pageSize);
+		}
+		return plan.executePage(candidates, offset, pageSize);
+	}
+	
+	/**
+	 * The index of a note in the pages of {@link #getPage(NoteStore, Note, int, int)} (or -1 if it doesn't match).
+	 */
+	public int indexOf(NoteStore store, Note note) {
+		return compileForIndex().indexOf(getCandidates(store), note);
+	}
+	
+	/**
+	 * The notes of the store that match the text filters (using the text index), or all notes if there are no text filters.
+	 */
+	private List<Note> getCandidates(NoteStore store) {
+		List<Note> candidates = null;
+		if (isTextFilter(headlineContainsText)) {
+			candidates = store.search(headlineContainsText, Field.HEADLINE);
 		}
-		if (noteTextContainsText != null) {
-			noteStream.filter(note -> note.getNoteText().contains(noteTextContainsText));
+		if (isTextFilter(noteTextContainsText)) {
+			List<Note> textMatches = store.search(noteTextContainsText, Field.TEXT);
+			candidates = candidates == null ? textMatches : intersect(candidates, textMatches);
+		}
+		if (candidates == null) {
+			candidates = store.snapshot();
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Compile the conditions, the sort order and the limit of this selector into a plan, that selects the notes in a single pass.
+	 */
+	public synchronized NoteQueryPlan compile() {
+		if (plan == null) {
+			plan = createPlan(true);
+		}
+		return plan;
+	}
+	/**
+	 * Compile the selector without the text filters (that are resolved by the text index of a {@link NoteStore}).
+	 */
+	private synchronized NoteQueryPlan compileForIndex() {
+		if (indexedPlan == null) {
+			indexedPlan = createPlan(false);
+		}
+		return indexedPlan;
+	}
+	
+	private NoteQueryPlan createPlan(boolean includeTextFilters) {
+		List<Predicate<Note>> conditions = new ArrayList<Predicate<Note>>();
+		addIdCondition(conditions);
+		addPriorityCondition(conditions);
+		if (getDateRelation() != null && getDateRelation() != NoteRelation.NONE) {
+			//the date relations are evaluated by the service's selector (for every note, so the notes are still selected in one pass)
+			conditions.add(note -> !super.getMatching(Collections.singletonList(note)).isEmpty());
+		}
+		if (includeTextFilters) {
+			addTextCondition(conditions, headlineContainsText, Note::getHeadline);
+			addTextCondition(conditions, noteTextContainsText, Note::getNoteText);
 		}
 		
-		List<Note> matching = noteStream.collect(Collectors.toList());
-		Collections.sort(matching, sortOrder.getComparator());
-		return matching;
+		Predicate<Note> predicate = conditions.stream().reduce(Predicate::and).orElse(null);
+		Comparator<Note> comparator = sortOrder == SortOrder.NONE ? null : sortOrder.getComparator();
+		return new NoteQueryPlan(predicate, comparator, limit, parallelThreshold);
+	}
+	
+	private void addIdCondition(List<Predicate<Note>> conditions) {
+		NoteRelation relation = getIdRelation();
+		List<Integer> ids = getIds();
+		if (relation == null || relation == NoteRelation.NONE) {
+			return;
+		}
+		if (ids == null || ids.isEmpty()) {
+			conditions.add(note -> false);
+			return;
+		}
+		int id = ids.get(0);
+		switch (relation) {
+			case EQUALS:
+			case IN:
+				Set<Integer> idSet = new HashSet<Integer>(ids);
+				conditions.add(note -> idSet.contains(note.getId()));
+				break;
+			case GREATER:
+				conditions.add(note -> note.getId() > id);
+				break;
+			case GREATER_EQUALS:
+				conditions.add(note -> note.getId() >= id);
+				break;
+			case LESS:
+				conditions.add(note -> note.getId() < id);
+				break;
+			case LESS_EQUALS:
+				conditions.add(note -> note.getId() <= id);
+				break;
+			default:
+				conditions.add(note -> !super.getMatching(Collections.singletonList(note)).isEmpty());
+		}
+	}
+	
+	private void addTextCondition(List<Predicate<Note>> conditions, String query, Function<Note, String> field) {
+		Predicate<String> matcher = NoteTextIndex.createMatcher(query);
+		if (matcher != null) {
+			conditions.add(note -> matcher.test(field.apply(note)));
+		}
+	}
+	
+	private void addPriorityCondition(List<Predicate<Note>> conditions) {
+		NoteRelation relation = getPriorityRelation();
+		int priority = getPriority();
+		if (relation == null || relation == NoteRelation.NONE) {
+			return;
+		}
+		switch (relation) {
+			case EQUALS:
+				conditions.add(note -> note.getPriority() == priority);
+				break;
+			case GREATER:
+				conditions.add(note -> note.getPriority() > priority);
+				break;
+			case GREATER_EQUALS:
+				conditions.add(note -> note.getPriority() >= priority);
+				break;
+			case LESS:
+				conditions.add(note -> note.getPriority() < priority);
+				break;
+			case LESS_EQUALS:
+				conditions.add(note -> note.getPriority() <= priority);
+				break;
+			default:
+				conditions.add(note -> !super.getMatching(Collections.singletonList(note)).isEmpty());
+		}
+	}
+	
+	private synchronized void invalidatePlan() {
+		plan = null;
+		indexedPlan = null;
+	}
+	
+	/**
+	 * Whether the text filters anything (a text without terms, like "!!!", doesn't).
+	 */
+	private boolean isTextFilter(String text) {
+		return !NoteTextIndex.tokenize(text).isEmpty();
+	}
+	
+	private List<Note> intersect(List<Note> notes, List<Note> otherNotes) {
+		Set<Integer> otherIds = otherNotes.stream().map(Note::getId).collect(Collectors.toSet());
+		return notes.stream().filter(note -> otherIds.contains(note.getId())).collect(Collectors.toList());
 	}
 	
 	public SortOrder getSortOrder() {
@@ -58,6 +247,7 @@ public class NoteViewSelector extends NoteSelector {
 	}
 	public void setSortOrder(SortOrder sortOrder) {
 		this.sortOrder = sortOrder;
+		invalidatePlan();
 	}
 	
 	public String getHeadlineContainsText() {
@@ -65,6 +255,7 @@ public class NoteViewSelector extends NoteSelector {
 	}
 	public void setHeadlineContainsText(String headlineContainsText) {
 		this.headlineContainsText = headlineContainsText;
+		invalidatePlan();
 	}
 	
 	public String getNoteTextContainsText() {
@@ -72,5 +263,61 @@ public class NoteViewSelector extends NoteSelector {
 	}
 	public void setNoteTextContainsText(String noteTextContainsText) {
 		this.noteTextContainsText = noteTextContainsText;
+		invalidatePlan();
+	}
+	
+	/**
+	 * The maximum number of selected notes (e.g. the notes on the first page), or a value smaller than 1 to select all matching notes.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	public void setLimit(int limit) {
+		this.limit = limit;
+		invalidatePlan();
+	}
+	
+	/**
+	 * The number of notes from which on the notes are selected by a parallel stream (or a value smaller than 1 to never use a parallel stream).
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+		invalidatePlan();
+	}
+	
+	//the conditions of the service's selector are part of the compiled plan, so the plan is invalidated when they are changed
+	
+	@Override
+	public void setIds(List<Integer> ids) {
+		super.setIds(ids);
+		invalidatePlan();
+	}
+	@Override
+	public void setIdRelation(NoteRelation idRelation) {
+		super.setIdRelation(idRelation);
+		invalidatePlan();
+	}
+	@Override
+	public void setDate(LocalDateTime date) {
+		super.setDate(date);
+		invalidatePlan();
+	}
+	@Override
+	public void setDateRelation(NoteRelation dateRelation) {
+		super.setDateRelation(dateRelation);
+		invalidatePlan();
+	}
+	@Override
+	public void setPriority(int priority) {
+		super.setPriority(priority);
+		invalidatePlan();
+	}
+	@Override
+	public void setPriorityRelation(NoteRelation priorityRelation) {
+		super.setPriorityRelation(priorityRelation);
+		invalidatePlan();
 	}
 }
\ No newline at end of file
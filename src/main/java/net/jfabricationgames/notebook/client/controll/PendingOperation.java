@@ -0,0 +1,75 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.ArrayList;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A change of a note, that was done locally but couldn't be sent to the server yet (see {@link PendingOperationQueue}).
+ */
+public class PendingOperation {
+	
+	public enum Type {
+		CREATE, UPDATE, DELETE;
+	}
+	
+	private final Type type;
+	private int noteId;
+	private Note note;
+	
+	/**
+	 * @param type
+	 *        The type of the operation.
+	 * 
+	 * @param noteId
+	 *        The id of the note (a negative temporary id for notes that were not yet created on the server).
+	 * 
+	 * @param note
+	 *        A copy of the note's content (for CREATE and UPDATE operations) or null (for DELETE operations).
+	 */
+	public PendingOperation(Type type, int noteId, Note note) {
+		this.type = type;
+		this.noteId = noteId;
+		this.note = note;
+	}
+	
+	/**
+	 * Create a copy of the note, so later changes of the note don't change the pending operation.
+	 */
+	public static Note copyOf(Note note) {
+		Note copy = new Note();
+		copy.setId(note.getId());
+		copy.setHeadline(note.getHeadline());
+		copy.setNoteText(note.getNoteText());
+		copy.setPriority(note.getPriority());
+		copy.setExecutionDates(note.getExecutionDates() == null ? null : new ArrayList<>(note.getExecutionDates()));
+		copy.setReminderDates(note.getReminderDates() == null ? null : new ArrayList<>(note.getReminderDates()));
+		return copy;
+	}
+	
+	@Override
+	public String toString() {
+		return "PendingOperation [type=" + type + ", noteId=" + noteId + "]";
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public int getNoteId() {
+		return noteId;
+	}
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+		if (note != null) {
+			note.setId(noteId);
+		}
+	}
+	
+	public Note getNote() {
+		return note;
+	}
+	public void setNote(Note note) {
+		this.note = note;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,351 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.client.controll.PendingOperation.Type;
+import net.jfabricationgames.notebook.client.error.NoteBookConnectionException;
+import net.jfabricationgames.notebook.client.error.NoteBookException;
+import net.jfabricationgames.notebook.note.Note;
+import net.jfabricationgames.notebook.note.NoteRelation;
+import net.jfabricationgames.notebook.note.NoteSelectorBuilder;
+
+/**
+ * A durable log of the note changes that couldn't be sent to the server, because the server was not reachable.
+ *
+ * The operations are stored in a local file (so they survive a restart) and are replayed in order when the server can be reached again
+ * (retrying with an exponential backoff). Consecutive updates of the same note are coalesced into one update. Notes that are created
+ * while offline get a negative temporary id, that is replaced by the id from the server when the create operation was replayed.
+ */
+public class PendingOperationQueue {
+	
+	private static final Logger LOGGER = LogManager.getLogger(PendingOperationQueue.class);
+	
+	/**
+	 * Informs about the results of the replayed operations.
+	 */
+	public interface Listener {
+		
+		/**
+		 * A note that was created offline was created on the server.
+		 */
+		public void noteCreated(int temporaryId, int noteId);
+		
+		/**
+		 * An operation was rejected by the server, or a creation failed after it might have been executed (it is removed from the queue, because
+		 * repeating it won't help or could create the note twice).
+		 */
+		public void operationFailed(PendingOperation operation, NoteBookException cause);
+	}
+	
+	public static final String DEFAULT_QUEUE_FILE = "./notebookclient.pending.ops";
+	
+	public static final int MAGIC = 0x4E42504F;//"NBPO"
+	public static final int SCHEMA_VERSION = 1;
+	
+	public static final long INITIAL_RETRY_DELAY = 1000;
+	public static final long MAX_RETRY_DELAY = 5 * 60 * 1000;
+	
+	private final NoteClient client;
+	private final Path queueFile;
+	private final ScheduledExecutorService replayer;
+	private Listener listener;
+	
+	private List<PendingOperation> operations = new ArrayList<PendingOperation>();
+	private PendingOperation inFlight;
+	private int nextTemporaryId = -1;
+	//the ids of the notes that were created by a replayed operation (by their temporary id), for the operations that are queued before the
+	//temporary id is replaced in the notes of the listener
+	private final Map<Integer, Integer> createdIds = new HashMap<Integer, Integer>();
+	
+	private boolean replayScheduled;
+	private int failedAttempts;
+	
+	public PendingOperationQueue(NoteClient client) {
+		this(client, Paths.get(DEFAULT_QUEUE_FILE));
+	}
+	
+	public PendingOperationQueue(NoteClient client, Path queueFile) {
+		this.client = client;
+		this.queueFile = queueFile;
+		replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PendingOperationQueue-Replayer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		load();
+		if (!operations.isEmpty()) {
+			scheduleReplay(0);
+		}
+	}
+	
+	/**
+	 * Queue the creation of a note. The note gets a (negative) temporary id, that is replaced when the note is created on the server.
+	 *
+	 * @return The temporary id of the note.
+	 */
+	public synchronized int enqueueCreate(Note note) {
+		int temporaryId = nextTemporaryId--;
+		note.setId(temporaryId);
+		operations.add(new PendingOperation(Type.CREATE, temporaryId, PendingOperation.copyOf(note)));
+		LOGGER.info("queued creation of note with temporary id {} ({} pending operations)", temporaryId, operations.size());
+		operationsChanged();
+		return temporaryId;
+	}
+	
+	/**
+	 * Queue the update of a note. If the last pending operation of the note is an update or a create, the update is coalesced into it.
+	 */
+	public synchronized void enqueueUpdate(Note note) {
+		Note copy = PendingOperation.copyOf(note);
+		copy.setId(resolveId(note.getId()));
+		PendingOperation last = findLastOperation(copy.getId());
+		if (last != null && last != inFlight && (last.getType() == Type.UPDATE || last.getType() == Type.CREATE)) {
+			last.setNote(copy);
+			LOGGER.info("coalesced update of note {} into pending {}", copy.getId(), last);
+		}
+		else {
+			operations.add(new PendingOperation(Type.UPDATE, copy.getId(), copy));
+			LOGGER.info("queued update of note {} ({} pending operations)", copy.getId(), operations.size());
+		}
+		operationsChanged();
+	}
+	
+	/**
+	 * Queue the deletion of a note. Pending updates of the note are dropped. If the note was not yet created on the server, nothing has to be
+	 * sent at all.
+	 */
+	public synchronized void enqueueDelete(int temporaryOrNoteId) {
+		int noteId = resolveId(temporaryOrNoteId);
+		boolean createPending = operations.stream().anyMatch(op -> op.getNoteId() == noteId && op.getType() == Type.CREATE && op != inFlight);
+		operations.removeIf(op -> op.getNoteId() == noteId && op != inFlight && (createPending || op.getType() == Type.UPDATE));
+		if (!createPending) {
+			operations.add(new PendingOperation(Type.DELETE, noteId, null));
+		}
+		LOGGER.info("queued deletion of note {} ({} pending operations)", noteId, operations.size());
+		operationsChanged();
+	}
+	
+	/**
+	 * The id of the note on the server, if the note was created with the temporary id by a replayed operation (otherwise the id itself).
+	 */
+	private int resolveId(int noteId) {
+		return createdIds.getOrDefault(noteId, noteId);
+	}
+	
+	private PendingOperation findLastOperation(int noteId) {
+		for (int i = operations.size() - 1; i >= 0; i--) {
+			if (operations.get(i).getNoteId() == noteId) {
+				return operations.get(i);
+			}
+		}
+		return null;
+	}
+	
+	public synchronized boolean isEmpty() {
+		return operations.isEmpty();
+	}
+	
+	public synchronized int size() {
+		return operations.size();
+	}
+	
+	/**
+	 * Check whether there are pending operations for the note (so the server's version of the note is outdated).
+	 */
+	public synchronized boolean hasPendingOperations(int noteId) {
+		int resolvedId = resolveId(noteId);
+		return operations.stream().anyMatch(op -> op.getNoteId() == resolvedId);
+	}
+	
+	/**
+	 * Try to replay the pending operations now (e.g. because the server was reachable again), without waiting for the backoff delay.
+	 */
+	public synchronized void replayNow() {
+		if (!operations.isEmpty()) {
+			failedAttempts = 0;
+			replayScheduled = false;
+			scheduleReplay(0);
+		}
+	}
+	
+	public void close() {
+		replayer.shutdownNow();
+	}
+	
+	private void operationsChanged() {
+		persist();
+		if (!replayScheduled) {
+			scheduleReplay(getRetryDelay());
+		}
+	}
+	
+	private synchronized void scheduleReplay(long delay) {
+		if (!replayScheduled) {
+			replayScheduled = true;
+			replayer.schedule(this::replay, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private long getRetryDelay() {
+		if (failedAttempts == 0) {
+			return INITIAL_RETRY_DELAY;
+		}
+		return Math.min(MAX_RETRY_DELAY, INITIAL_RETRY_DELAY << Math.min(failedAttempts, 20));
+	}
+	
+	/**
+	 * Send the pending operations in order (executed by the replayer thread).
+	 */
+	private void replay() {
+		while (true) {
+			PendingOperation operation;
+			synchronized (this) {
+				replayScheduled = false;
+				if (operations.isEmpty()) {
+					failedAttempts = 0;
+					return;
+				}
+				operation = operations.get(0);
+				inFlight = operation;
+			}
+			
+			int createdId = 0;
+			try {
+				createdId = execute(operation);
+			}
+			catch (NoteBookConnectionException nbce) {
+				if (operation.getType() != Type.CREATE || JsonRpcTransport.isConnectFailure(nbce)) {
+					synchronized (this) {
+						inFlight = null;
+						failedAttempts++;
+						long delay = getRetryDelay();
+						LOGGER.warn("server not reachable; retrying {} pending operations in {}ms", operations.size(), delay);
+						scheduleReplay(delay);
+					}
+					return;
+				}
+				//the note might have been created (e.g. if the response timed out), so it's not sent again to not create it twice
+				LOGGER.error("pending operation {} might have been executed; dropping it", operation, nbce);
+				dropOperation(operation, nbce);
+				continue;
+			}
+			catch (NoteBookException nbe) {
+				LOGGER.error("pending operation {} was rejected by the server; dropping it", operation, nbe);
+				dropOperation(operation, nbe);
+				continue;
+			}
+			
+			int temporaryId = operation.getNoteId();
+			synchronized (this) {
+				inFlight = null;
+				operations.remove(operation);
+				if (operation.getType() == Type.CREATE) {
+					//replace the temporary id in all following operations (and in the ones that are queued until the listener replaced it)
+					createdIds.put(temporaryId, createdId);
+					for (PendingOperation following : operations) {
+						if (following.getNoteId() == temporaryId) {
+							following.setNoteId(createdId);
+						}
+					}
+				}
+				persist();
+			}
+			if (operation.getType() == Type.CREATE && listener != null) {
+				listener.noteCreated(temporaryId, createdId);
+			}
+		}
+	}
+	
+	private void dropOperation(PendingOperation operation, NoteBookException cause) {
+		synchronized (this) {
+			inFlight = null;
+			operations.remove(operation);
+			persist();
+		}
+		if (listener != null) {
+			listener.operationFailed(operation, cause);
+		}
+	}
+	
+	/**
+	 * Send an operation to the server.
+	 *
+	 * @return The id of the created note (for CREATE operations).
+	 */
+	private int execute(PendingOperation operation) throws NoteBookException {
+		LOGGER.info("replaying pending operation: {}", operation);
+		switch (operation.getType()) {
+			case CREATE:
+				return client.createNote(operation.getNote());
+			case UPDATE:
+				client.updateNote(operation.getNote());
+				return 0;
+			case DELETE:
+				client.deleteNotes(new NoteSelectorBuilder().addId(operation.getNoteId()).setIdRelation(NoteRelation.EQUALS).build());
+				return 0;
+			default:
+				throw new IllegalStateException("Unknown operation type: " + operation.getType());
+		}
+	}
+	
+	private void load() {
+		if (!Files.exists(queueFile)) {
+			return;
+		}
+		try {
+			NoteBinaryFormat.readFile(queueFile, MAGIC, SCHEMA_VERSION, in -> {
+				nextTemporaryId = in.readInt();
+				int size = in.readInt();
+				for (int i = 0; i < size; i++) {
+					Type type = Type.values()[in.readByte()];
+					int noteId = in.readInt();
+					Note note = in.readBoolean() ? NoteBinaryFormat.readNote(in) : null;
+					operations.add(new PendingOperation(type, noteId, note));
+				}
+				return null;
+			});
+			LOGGER.info("loaded {} pending operations from {}", operations.size(), queueFile);
+		}
+		catch (IOException | RuntimeException e) {
+			LOGGER.error("pending operations couldn't be loaded from {}", queueFile, e);
+			operations.clear();
+		}
+	}
+	
+	private synchronized void persist() {
+		try {
+			NoteBinaryFormat.writeFileAtomically(queueFile, MAGIC, SCHEMA_VERSION, out -> {
+				out.writeInt(nextTemporaryId);
+				out.writeInt(operations.size());
+				for (PendingOperation operation : operations) {
+					out.writeByte(operation.getType().ordinal());
+					out.writeInt(operation.getNoteId());
+					out.writeBoolean(operation.getNote() != null);
+					if (operation.getNote() != null) {
+						NoteBinaryFormat.writeNote(out, operation.getNote());
+					}
+				}
+			});
+		}
+		catch (IOException ioe) {
+			LOGGER.error("pending operations couldn't be written to {}", queueFile, ioe);
+		}
+	}
+	
+	public synchronized void setListener(Listener listener) {
+		this.listener = listener;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Fires the reminder dates of the notes when they are due.
+ *
+ * The future reminders of all notes are kept in a sorted set (by due time), that is updated incrementally when a note is changed (see
+ * {@link NoteStore.Listener}), so only the first reminder has to be checked. A single timer thread waits until the first reminder is due
+ * (reminders in the past are not fired).
+ */
+public class ReminderScheduler implements NoteStore.Listener {
+	
+	private static final Logger LOGGER = LogManager.getLogger(ReminderScheduler.class);
+	
+	/**
+	 * The maximum time (in milliseconds) the timer waits before checking the first reminder again, so a reminder is not fired too late if the
+	 * system clock was changed or the computer was suspended.
+	 */
+	public static final long MAX_CHECK_DELAY = 60000;
+	
+	private final IntFunction<Note> noteLookup;
+	private final Clock clock;
+	private final ScheduledThreadPoolExecutor timer;
+	
+	private final NavigableSet<Reminder> reminders = new TreeSet<Reminder>();
+	//the reminders of every note (to remove them when the note is changed)
+	private final IntObjectHashMap<List<Reminder>> remindersByNote = new IntObjectHashMap<List<Reminder>>();
+	
+	private ScheduledFuture<?> nextCheck;
+	private long nextCheckTime;
+	private boolean closed;
+	
+	private volatile Listener listener;
+	
+	/**
+	 * Is informed about the reminders that are due (on the timer thread).
+	 */
+	public interface Listener {
+		
+		public void reminderDue(Note note, LocalDateTime reminderDate);
+	}
+	
+	private static final class Reminder implements Comparable<Reminder> {
+		
+		private final long time;
+		private final LocalDateTime date;
+		private final int noteId;
+		
+		private Reminder(long time, LocalDateTime date, int noteId) {
+			this.time = time;
+			this.date = date;
+			this.noteId = noteId;
+		}
+		
+		@Override
+		public int compareTo(Reminder other) {
+			int cmp = Long.compare(time, other.time);
+			if (cmp == 0) {
+				cmp = Integer.compare(noteId, other.noteId);
+			}
+			return cmp;
+		}
+	}
+	
+	/**
+	 * @param noteLookup
+	 *        Finds the current version of a note by it's id, when it's reminder is due (e.g. {@link NoteManager#getNote(int)}).
+	 */
+	public ReminderScheduler(IntFunction<Note> noteLookup) {
+		this(noteLookup, Clock.systemDefaultZone());
+	}
+	
+	public ReminderScheduler(IntFunction<Note> noteLookup, Clock clock) {
+		this.noteLookup = noteLookup;
+		this.clock = clock;
+		//the timer thread is only started when the first reminder is scheduled
+		timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "ReminderScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+	}
+	
+	/**
+	 * Schedule the future reminders of the note (replacing the reminders that were scheduled for the note before).
+	 */
+	@Override
+	public synchronized void notePut(Note note) {
+		removeReminders(note.getId());
+		if (note.getReminderDates() != null) {
+			long now = clock.millis();
+			List<Reminder> noteReminders = new ArrayList<Reminder>(note.getReminderDates().size());
+			for (LocalDateTime date : note.getReminderDates()) {
+				if (date == null) {
+					continue;
+				}
+				Reminder reminder = new Reminder(date.atZone(clock.getZone()).toInstant().toEpochMilli(), date, note.getId());
+				//the same date can be contained twice, but is only fired once
+				if (reminder.time > now && reminders.add(reminder)) {
+					noteReminders.add(reminder);
+				}
+			}
+			if (!noteReminders.isEmpty()) {
+				remindersByNote.put(note.getId(), noteReminders);
+			}
+		}
+		scheduleNextCheck();
+	}
+	
+	/**
+	 * Remove the reminders of the note.
+	 */
+	@Override
+	public synchronized void noteRemoved(int id) {
+		removeReminders(id);
+	}
+	
+	private void removeReminders(int noteId) {
+		List<Reminder> noteReminders = remindersByNote.remove(noteId);
+		if (noteReminders != null) {
+			for (Reminder reminder : noteReminders) {
+				reminders.remove(reminder);
+			}
+		}
+	}
+	
+	/**
+	 * The number of reminders that are not yet due.
+	 */
+	public synchronized int size() {
+		return reminders.size();
+	}
+	
+	/**
+	 * The date of the next reminder (or null if there is none).
+	 */
+	public synchronized LocalDateTime getNextReminderDate() {
+		return reminders.isEmpty() ? null : reminders.first().date;
+	}
+	
+	public Listener getListener() {
+		return listener;
+	}
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Stop the timer (no more reminders are fired).
+	 */
+	public synchronized void close() {
+		closed = true;
+		timer.shutdownNow();
+	}
+	
+	private void scheduleNextCheck() {
+		if (closed || reminders.isEmpty()) {
+			return;
+		}
+		long now = clock.millis();
+		long checkTime = Math.min(reminders.first().time, now + MAX_CHECK_DELAY);
+		if (nextCheck != null) {
+			if (nextCheckTime <= checkTime) {
+				//an earlier check is already scheduled
+				return;
+			}
+			nextCheck.cancel(false);
+		}
+		nextCheckTime = checkTime;
+		nextCheck = timer.schedule(this::fireDueReminders, Math.max(checkTime - now, 0), TimeUnit.MILLISECONDS);
+	}
+	
+	private void fireDueReminders() {
+		List<Reminder> due = new ArrayList<Reminder>();
+		synchronized (this) {
+			nextCheck = null;
+			long now = clock.millis();
+			while (!reminders.isEmpty() && reminders.first().time <= now) {
+				Reminder reminder = reminders.pollFirst();
+				List<Reminder> noteReminders = remindersByNote.get(reminder.noteId);
+				noteReminders.remove(reminder);
+				if (noteReminders.isEmpty()) {
+					remindersByNote.remove(reminder.noteId);
+				}
+				due.add(reminder);
+			}
+			scheduleNextCheck();
+		}
+		
+		//the listener is informed without holding the lock (the lookup of the note may lock the note manager, that changes the reminders)
+		Listener currentListener = listener;
+		for (Reminder reminder : due) {
+			Note note = noteLookup.apply(reminder.noteId);
+			LOGGER.info("Reminder for note {} is due: {}", reminder.noteId, reminder.date);
+			if (note != null && currentListener != null) {
+				try {
+					currentListener.reminderDue(note, reminder.date);
+				}
+				catch (RuntimeException e) {
+					//an exception would stop the timer
+					LOGGER.error("The reminder for note {} couldn't be shown", reminder.noteId, e);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package net.jfabricationgames.notebook.client.controll;
+
+/**
+ * The statistics of one synchronization of the local notes with the server.
+ */
+public class SyncStatistics {
+	
+	public enum SyncType {
+		/** Only notes with a higher id than the last known id were loaded */
+		DELTA,
+		/** All notes were loaded and compared to the local notes (to find updated and deleted notes) */
+		FULL;
+	}
+	
+	private final SyncType syncType;
+	private final int notesTransferred;
+	private final long bytesTransferred;
+	private final int notesAdded;
+	private final int notesUpdated;
+	private final int notesRemoved;
+	private final long durationMillis;
+	
+	public SyncStatistics(SyncType syncType, int notesTransferred, long bytesTransferred, int notesAdded, int notesUpdated, int notesRemoved,
+			long durationMillis) {
+		this.syncType = syncType;
+		this.notesTransferred = notesTransferred;
+		this.bytesTransferred = bytesTransferred;
+		this.notesAdded = notesAdded;
+		this.notesUpdated = notesUpdated;
+		this.notesRemoved = notesRemoved;
+		this.durationMillis = durationMillis;
+	}
+	
+	@Override
+	public String toString() {
+		return "SyncStatistics [syncType=" + syncType + ", notesTransferred=" + notesTransferred + ", bytesTransferred=" + bytesTransferred
+				+ ", notesAdded=" + notesAdded + ", notesUpdated=" + notesUpdated + ", notesRemoved=" + notesRemoved + ", durationMillis="
+				+ durationMillis + "]";
+	}
+	
+	public SyncType getSyncType() {
+		return syncType;
+	}
+	public int getNotesTransferred() {
+		return notesTransferred;
+	}
+	public long getBytesTransferred() {
+		return bytesTransferred;
+	}
+	public int getNotesAdded() {
+		return notesAdded;
+	}
+	public int getNotesUpdated() {
+		return notesUpdated;
+	}
+	public int getNotesRemoved() {
+		return notesRemoved;
+	}
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
\ No newline at end of file
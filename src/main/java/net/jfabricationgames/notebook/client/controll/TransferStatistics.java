@@ -0,0 +1,74 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.util.Locale;
+
+/**
+ * The progress of a note import or export (see {@link NoteImporter} and {@link NoteExporter}).
+ */
+public class TransferStatistics {
+	
+	private final long notesRead;
+	private final long notesTransferred;
+	private final long notesInvalid;
+	private final long notesFailed;
+	private final long requests;
+	private final long durationMillis;
+	
+	/**
+	 * @param notesRead
+	 *        The notes that were read from the file (import) or received from the server (export).
+	 *
+	 * @param notesTransferred
+	 *        The notes that were created on the server (import) or written to the file (export).
+	 *
+	 * @param notesInvalid
+	 *        The notes of the file that couldn't be read or were not valid (and were skipped).
+	 *
+	 * @param notesFailed
+	 *        The notes that were sent, but couldn't be created on the server.
+	 *
+	 * @param requests
+	 *        The number of (batch) requests that were sent.
+	 */
+	public TransferStatistics(long notesRead, long notesTransferred, long notesInvalid, long notesFailed, long requests, long durationMillis) {
+		this.notesRead = notesRead;
+		this.notesTransferred = notesTransferred;
+		this.notesInvalid = notesInvalid;
+		this.notesFailed = notesFailed;
+		this.requests = requests;
+		this.durationMillis = durationMillis;
+	}
+	
+	/**
+	 * The number of transferred notes per second.
+	 */
+	public double getThroughput() {
+		return durationMillis == 0 ? 0 : notesTransferred * 1000.0 / durationMillis;
+	}
+	
+	@Override
+	public String toString() {
+		return "TransferStatistics [notesRead=" + notesRead + ", notesTransferred=" + notesTransferred + ", notesInvalid=" + notesInvalid
+				+ ", notesFailed=" + notesFailed + ", requests=" + requests + ", durationMillis=" + durationMillis + ", notesPerSecond="
+				+ String.format(Locale.ROOT, "%.1f", getThroughput()) + "]";
+	}
+	
+	public long getNotesRead() {
+		return notesRead;
+	}
+	public long getNotesTransferred() {
+		return notesTransferred;
+	}
+	public long getNotesInvalid() {
+		return notesInvalid;
+	}
+	public long getNotesFailed() {
+		return notesFailed;
+	}
+	public long getRequests() {
+		return requests;
+	}
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
\ No newline at end of file
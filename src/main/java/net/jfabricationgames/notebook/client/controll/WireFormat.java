@@ -0,0 +1,111 @@
+package net.jfabricationgames.notebook.client.controll;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.jfabricationgames.json_rpc.JsonRpcError;
+import net.jfabricationgames.json_rpc.JsonRpcErrorResponse;
+import net.jfabricationgames.json_rpc.JsonRpcRequest;
+import net.jfabricationgames.json_rpc.JsonRpcResponse;
+
+/**
+ * The encodings of the JSON-RPC requests and responses. The binary encodings (Smile and CBOR) represent the same data model as JSON, but are
+ * smaller and faster to parse. They can only be used if the host supports them (the host answers in the encoding of the request).
+ */
+public enum WireFormat {
+	
+	/**
+	 * Compact JSON (without whitespace).
+	 */
+	JSON(new JsonFactory(), MediaType.APPLICATION_JSON_TYPE.withCharset(StandardCharsets.UTF_8.name())),
+	SMILE(new SmileFactory(), new MediaType("application", "x-jackson-smile")),
+	CBOR(new CBORFactory(), new MediaType("application", "cbor"));
+	
+	private final MediaType mediaType;
+	
+	//the mapper is only used to create the immutable (and thread safe) readers and writers (added JavaTimeModule to correctly serialize LocalDateTime objects)
+	private final ObjectMapper mapper;
+	private final ObjectWriter requestWriter;
+	private final ObjectWriter batchRequestWriter;
+	private final ObjectReader responseReader;
+	private final ObjectReader errorResponseReader;
+	private final ObjectReader errorReader;
+	
+	private WireFormat(JsonFactory factory, MediaType mediaType) {
+		this.mediaType = mediaType;
+		mapper = new ObjectMapper(factory).registerModule(new JavaTimeModule());
+		requestWriter = mapper.writerFor(JsonRpcRequest.class);
+		batchRequestWriter = mapper.writerFor(new TypeReference<List<JsonRpcRequest>>() {});
+		responseReader = mapper.readerFor(JsonRpcResponse.class);
+		errorResponseReader = mapper.readerFor(JsonRpcErrorResponse.class);
+		errorReader = mapper.readerFor(JsonRpcError.class);
+	}
+	
+	/**
+	 * Find the format by it's name (ignoring the case).
+	 *
+	 * @throws IllegalArgumentException
+	 *         If there is no format with this name.
+	 */
+	public static WireFormat forName(String name) throws IllegalArgumentException {
+		return valueOf(name.trim().toUpperCase());
+	}
+	
+	/**
+	 * Find the format of a content type header (or null if the content type is none of the formats).
+	 */
+	public static WireFormat forContentType(String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		MediaType type = MediaType.valueOf(contentType);
+		for (WireFormat format : values()) {
+			if (format.mediaType.isCompatible(type)) {
+				return format;
+			}
+		}
+		return null;
+	}
+	
+	public boolean isBinary() {
+		return this != JSON;
+	}
+	
+	/**
+	 * The media type of the request and response bodies (JSON is sent with the UTF-8 charset).
+	 */
+	public MediaType getMediaType() {
+		return mediaType;
+	}
+	
+	public ObjectMapper getMapper() {
+		return mapper;
+	}
+	
+	ObjectWriter getRequestWriter() {
+		return requestWriter;
+	}
+	ObjectWriter getBatchRequestWriter() {
+		return batchRequestWriter;
+	}
+	ObjectReader getResponseReader() {
+		return responseReader;
+	}
+	ObjectReader getErrorResponseReader() {
+		return errorResponseReader;
+	}
+	ObjectReader getErrorReader() {
+		return errorReader;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package net.jfabricationgames.notebook.client.error;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Thrown if some of the requests of a batch failed. The requests that didn't fail were executed anyway.
+ */
+public class NoteBookBatchException extends NoteBookCommunicationException {
+	
+	private static final long serialVersionUID = 2694338795713420125L;
+	
+	private final Map<String, String> errorsByRequestId;
+	
+	public NoteBookBatchException(String message, Map<String, String> errorsByRequestId) {
+		super(message + " " + errorsByRequestId);
+		this.errorsByRequestId = Collections.unmodifiableMap(errorsByRequestId);
+	}
+	
+	/**
+	 * The error messages of all failed requests by the JSON-RPC ids of the requests.
+	 */
+	public Map<String, String> getErrorsByRequestId() {
+		return errorsByRequestId;
+	}
+}
\ No newline at end of file
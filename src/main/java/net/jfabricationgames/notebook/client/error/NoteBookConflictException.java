@@ -0,0 +1,51 @@
+package net.jfabricationgames.notebook.client.error;
+
+/**
+ * Thrown if a note was changed or deleted by another operation (e.g. a synchronization with the server), since the version that should be
+ * changed was read.
+ */
+public class NoteBookConflictException extends NoteBookException {
+	
+	private static final long serialVersionUID = 6810247785290412093L;
+	
+	/**
+	 * The versions of a conflict that was detected by the server (the local versions are not known).
+	 */
+	public static final long UNKNOWN_VERSION = -1;
+	
+	private final int noteId;
+	private final long expectedVersion;
+	private final long actualVersion;
+	
+	public NoteBookConflictException(int noteId, long expectedVersion, long actualVersion) {
+		super("Note " + noteId + " was changed concurrently (expected version: " + expectedVersion + ", current version: " + actualVersion + ")");
+		this.noteId = noteId;
+		this.expectedVersion = expectedVersion;
+		this.actualVersion = actualVersion;
+	}
+	
+	/**
+	 * A conflict that was detected by the server (e.g. a rejected patch, see {@link NoteBookRpcException#isPatchConflict()}).
+	 */
+	public NoteBookConflictException(int noteId, Throwable cause) {
+		super("Note " + noteId + " was changed concurrently on the server", cause);
+		this.noteId = noteId;
+		this.expectedVersion = UNKNOWN_VERSION;
+		this.actualVersion = UNKNOWN_VERSION;
+	}
+	
+	public int getNoteId() {
+		return noteId;
+	}
+	
+	public long getExpectedVersion() {
+		return expectedVersion;
+	}
+	
+	/**
+	 * The current version of the note ({@link net.jfabricationgames.notebook.client.controll.NoteStore#NO_VERSION} if it was deleted).
+	 */
+	public long getActualVersion() {
+		return actualVersion;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package net.jfabricationgames.notebook.client.error;
+
+/**
+ * Thrown if the server couldn't be reached (the request could be repeated later).
+ */
+public class NoteBookConnectionException extends NoteBookCommunicationException {
+	
+	private static final long serialVersionUID = -2219570425917335735L;
+	
+	public NoteBookConnectionException(String arg0, Throwable arg1) {
+		super(arg0, arg1);
+	}
+	
+	public NoteBookConnectionException(String arg0) {
+		super(arg0);
+	}
+	
+	public NoteBookConnectionException(Throwable arg0) {
+		super(arg0);
+	}
+}
\ No newline at end of file
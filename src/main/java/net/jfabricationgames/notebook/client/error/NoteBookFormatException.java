@@ -0,0 +1,29 @@
+package net.jfabricationgames.notebook.client.error;
+
+/**
+ * Thrown if a note of an imported file couldn't be read (e.g. invalid JSON or a date in a wrong format). The following notes of the file can
+ * still be read.
+ */
+public class NoteBookFormatException extends NoteBookException {
+	
+	private static final long serialVersionUID = -3317870452093157402L;
+	
+	private final int lineNumber;
+	
+	public NoteBookFormatException(int lineNumber, String message) {
+		super("Line " + lineNumber + ": " + message);
+		this.lineNumber = lineNumber;
+	}
+	
+	public NoteBookFormatException(int lineNumber, String message, Throwable cause) {
+		super("Line " + lineNumber + ": " + message, cause);
+		this.lineNumber = lineNumber;
+	}
+	
+	/**
+	 * The line of the file in which the note starts.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package net.jfabricationgames.notebook.client.error;
+
+/**
+ * Thrown if a request was not sent to the server at all (e.g. because an earlier batch failed), so it can be sent again later without being
+ * executed twice.
+ */
+public class NoteBookNotSentException extends NoteBookConnectionException {
+	
+	private static final long serialVersionUID = 5026314787391163742L;
+	
+	public NoteBookNotSentException(String message, Throwable cause) {
+		super(message, cause);
+	}
+	
+	public NoteBookNotSentException(String message) {
+		super(message);
+	}
+}
\ No newline at end of file
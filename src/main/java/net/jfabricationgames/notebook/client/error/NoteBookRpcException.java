@@ -0,0 +1,43 @@
+package net.jfabricationgames.notebook.client.error;
+
+/**
+ * Thrown if the server answered a request with a JSON-RPC error response.
+ */
+public class NoteBookRpcException extends NoteBookCommunicationException {
+	
+	private static final long serialVersionUID = 4182339270512446361L;
+	
+	/**
+	 * The JSON-RPC error code of a method that the server doesn't know.
+	 */
+	public static final int METHOD_NOT_FOUND = -32601;
+	/**
+	 * The JSON-RPC error code of a patch that is not based on the server's version of the note (the text was changed concurrently).
+	 */
+	public static final int PATCH_CONFLICT = -32001;
+	
+	private final int errorCode;
+	private final String errorMessage;
+	
+	public NoteBookRpcException(String message, int errorCode, String errorMessage) {
+		super(message + " (JSON-RPC error " + errorCode + ": " + errorMessage + ")");
+		this.errorCode = errorCode;
+		this.errorMessage = errorMessage;
+	}
+	
+	public int getErrorCode() {
+		return errorCode;
+	}
+	
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+	
+	public boolean isMethodNotFound() {
+		return errorCode == METHOD_NOT_FOUND;
+	}
+	
+	public boolean isPatchConflict() {
+		return errorCode == PATCH_CONFLICT;
+	}
+}
\ No newline at end of file
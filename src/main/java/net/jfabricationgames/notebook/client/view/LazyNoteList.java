@@ -0,0 +1,226 @@
+package net.jfabricationgames.notebook.client.view;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.collections.ObservableListBase;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * A read-only list of notes for a {@link javafx.scene.control.ListView}, that loads the notes page by page when they are shown (instead of
+ * adding all notes to the list at once). The pages next to a loaded page are prefetched in the background and only a limited number of pages
+ * stays in memory (the least recently used pages are dropped and loaded again if they are needed).
+ *
+ * The list has to be used by the JavaFX application thread only (the prefetching is done by a background thread). After the notes were
+ * changed the list has to be refreshed (see {@link #refresh()}).
+ */
+public class LazyNoteList extends ObservableListBase<Note> {
+	
+	private static final Logger LOGGER = LogManager.getLogger(LazyNoteList.class);
+	
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	public static final int DEFAULT_MAX_RESIDENT_PAGES = 10;
+	
+	//prefetches the pages for all lists (one thread is enough, because the pages are loaded from the local notes)
+	private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "LazyNoteList-Prefetch");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Loads the pages of the list.
+	 */
+	public interface PageLoader {
+		
+		/**
+		 * The number of notes in the list.
+		 */
+		public int count();
+		
+		/**
+		 * Load a page of notes.
+		 *
+		 * @param after
+		 *        The last note of the previous page (if it's known) or null.
+		 *
+		 * @param offset
+		 *        The index of the first note of the page.
+		 */
+		public List<Note> loadPage(Note after, int offset, int pageSize);
+		
+		/**
+		 * The index of the note in the list (or -1 if it's not in the list).
+		 */
+		public int indexOf(Note note);
+	}
+	
+	private final PageLoader loader;
+	private final int pageSize;
+	
+	//the resident pages in access order (the access is synchronized, because the pages are prefetched by another thread)
+	private final Map<Integer, List<Note>> pages;
+	//the last notes of all loaded pages, that are used to load the next pages faster (keyset pagination)
+	private final Map<Integer, Note> lastNotes = new HashMap<Integer, Note>();
+	
+	private int size;
+	//the pages of an older state of the list are discarded
+	private int generation;
+	
+	public LazyNoteList(PageLoader loader) {
+		this(loader, DEFAULT_PAGE_SIZE, DEFAULT_MAX_RESIDENT_PAGES);
+	}
+	public LazyNoteList(PageLoader loader, int pageSize, int maxResidentPages) {
+		if (pageSize < 1 || maxResidentPages < 1) {
+			throw new IllegalArgumentException("The page size and the number of resident pages must be positive");
+		}
+		this.loader = loader;
+		this.pageSize = pageSize;
+		pages = new LinkedHashMap<Integer, List<Note>>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<Note>> eldest) {
+				return size() > maxResidentPages;
+			}
+		};
+		size = loader.count();
+	}
+	
+	/**
+	 * Drop all loaded pages and count the notes again (after the notes or the selection were changed). The list views are informed that all
+	 * notes were replaced.
+	 */
+	public void refresh() {
+		int oldSize = size;
+		synchronized (pages) {
+			generation++;
+			pages.clear();
+			lastNotes.clear();
+		}
+		size = loader.count();
+		LOGGER.debug("refreshed lazy note list (notes: {})", size);
+		
+		beginChange();
+		//the removed notes are not loaded again only to report them
+		nextReplace(0, size, Collections.nCopies(oldSize, (Note) null));
+		endChange();
+	}
+	
+	@Override
+	public Note get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int pageIndex = index / pageSize;
+		List<Note> page = getPage(pageIndex);
+		int indexInPage = index % pageSize;
+		//the notes might have been removed since the list was refreshed
+		return indexInPage < page.size() ? page.get(indexInPage) : null;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public int indexOf(Object object) {
+		if (!(object instanceof Note)) {
+			return -1;
+		}
+		//search the resident pages first, before the position is computed by the loader
+		synchronized (pages) {
+			for (Map.Entry<Integer, List<Note>> page : pages.entrySet()) {
+				int indexInPage = page.getValue().indexOf(object);
+				if (indexInPage != -1) {
+					return page.getKey() * pageSize + indexInPage;
+				}
+			}
+		}
+		int index = loader.indexOf((Note) object);
+		if (index < 0 || index >= size || get(index) != object) {
+			return -1;
+		}
+		return index;
+	}
+	
+	@Override
+	public boolean contains(Object object) {
+		return indexOf(object) != -1;
+	}
+	
+	private List<Note> getPage(int pageIndex) {
+		List<Note> page;
+		int currentGeneration;
+		Note after;
+		synchronized (pages) {
+			page = pages.get(pageIndex);
+			currentGeneration = generation;
+			after = lastNotes.get(pageIndex - 1);
+		}
+		if (page == null) {
+			page = loadPage(pageIndex, after, currentGeneration);
+		}
+		prefetch(pageIndex + 1);
+		prefetch(pageIndex - 1);
+		return page;
+	}
+	
+	private List<Note> loadPage(int pageIndex, Note after, int pageGeneration) {
+		LOGGER.trace("loading page {} (keyset: {})", pageIndex, after != null);
+		List<Note> page = loader.loadPage(after, pageIndex * pageSize, pageSize);
+		synchronized (pages) {
+			if (pageGeneration == generation) {
+				pages.put(pageIndex, page);
+				if (!page.isEmpty()) {
+					lastNotes.put(pageIndex, page.get(page.size() - 1));
+				}
+			}
+		}
+		return page;
+	}
+	
+	private void prefetch(int pageIndex) {
+		if (pageIndex < 0 || pageIndex * pageSize >= size) {
+			return;
+		}
+		int currentGeneration;
+		Note after;
+		synchronized (pages) {
+			//containsKey doesn't change the access order, so the prefetched pages don't keep the shown pages from being dropped
+			if (pages.containsKey(pageIndex)) {
+				return;
+			}
+			currentGeneration = generation;
+			after = lastNotes.get(pageIndex - 1);
+		}
+		try {
+			PREFETCH_EXECUTOR.execute(() -> {
+				synchronized (pages) {
+					if (currentGeneration != generation || pages.containsKey(pageIndex)) {
+						return;
+					}
+				}
+				loadPage(pageIndex, after, currentGeneration);
+			});
+		}
+		catch (RejectedExecutionException ree) {
+			LOGGER.warn("page {} couldn't be prefetched", pageIndex, ree);
+		}
+	}
+	
+	public int getPageSize() {
+		return pageSize;
+	}
+}
\ No newline at end of file
@@ -17,6 +17,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import net.jfabricationgames.notebook.client.controll.JsonRpcTransport;
 
 public class NoteBookClientApp extends Application {
 	
@@ -65,6 +66,12 @@ public class NoteBookClientApp extends Application {
 		}
 	}
 	
+	@Override
+	public void stop() {
+		//release the pooled connections of the note client
+		JsonRpcTransport.closeInstance();
+	}
+	
 	private void loadStyleConfiguration() {
 		LOGGER.info("loading configuration file: {}", propertiesFile);
 		styleProperties = new Properties();
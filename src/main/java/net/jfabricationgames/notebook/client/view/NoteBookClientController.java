@@ -15,11 +15,15 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -36,10 +40,14 @@ import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import net.jfabricationgames.notebook.client.controll.AsyncNoteClient;
+import net.jfabricationgames.notebook.client.controll.AutoSaveScheduler;
+import net.jfabricationgames.notebook.client.controll.NoteChangeSubscriber;
 import net.jfabricationgames.notebook.client.controll.NoteManager;
+import net.jfabricationgames.notebook.client.controll.NotePatch;
+import net.jfabricationgames.notebook.client.controll.NoteSynchronizer;
 import net.jfabricationgames.notebook.client.controll.NoteViewSelector;
 import net.jfabricationgames.notebook.client.controll.NoteViewSelector.SortOrder;
-import net.jfabricationgames.notebook.client.error.NoteBookException;
 import net.jfabricationgames.notebook.note.Note;
 import tornadofx.control.DateTimePicker;
 
@@ -48,7 +56,11 @@ public class NoteBookClientController implements Initializable {
 	private static final Logger LOGGER = LogManager.getLogger(NoteBookClientController.class);
 	
 	private static final String propertyAutoSave = "autoSave";
+	private static final String propertyAutoSaveDelay = "autoSaveDelay";
 	private static final String propertyAlwaysAskBeforeClosing = "alwaysAskToSaveBeforeClosingNote";
+	private static final String propertyFullSyncInterval = "fullSyncInterval";
+	private static final String propertyNoteListPageSize = "noteListPageSize";
+	private static final String propertyNoteListResidentPages = "noteListResidentPages";
 	
 	private static final String propertiesFile = "./notebookclient.controller.properties";
 	private Properties properties;
@@ -63,6 +75,8 @@ public class NoteBookClientController implements Initializable {
 	private final ObservableList<LocalDateTime> reminderDates = FXCollections.observableArrayList();
 	
 	private boolean noteChanged = false;
+	//the editor is filled with the selected note (the changes of the editor are no changes of the note)
+	private boolean showingNote = false;
 	
 	@FXML
 	private ListView<Note> listNotes;
@@ -129,10 +143,13 @@ public class NoteBookClientController implements Initializable {
 	@FXML
 	private Button buttonExecutionDateAddMonth;
 	
-	private ObservableList<Note> notes;
+	private LazyNoteList notes;
 	private NoteManager noteManager;
+	private AutoSaveScheduler autoSaveScheduler;
+	private ReminderNotifier reminderNotifier;
+	private NoteChangeSubscriber changeSubscriber;
 	
-	public NoteBookClientController() throws NoteBookException {
+	public NoteBookClientController() {
 		//set default view selection (id of notes in descending order)
 		viewSelector = new NoteViewSelector();
 		viewSelector.setSortOrder(SortOrder.ID_DESC);
@@ -147,17 +164,43 @@ public class NoteBookClientController implements Initializable {
 		this.priorities = FXCollections.observableArrayList(priorities);
 		loadProperties();
 		
-		//create a note manager
-		try {
-			noteManager = new NoteManager();
-			noteManager.loadNotes();
-			notes = FXCollections.observableList(noteManager.getSelectedNotes(viewSelector));
-		}
-		catch (NoteBookException e) {
-			LOGGER.error("Couldn't initialize NoteManager", e);
-			showExceptionDialog(e);
-			throw e;
-		}
+		//create a note manager (that starts with the cached notes; the notes are synchronized with the server after the window is shown)
+		noteManager = new NoteManager();
+		noteManager.getSynchronizer().setFullSyncInterval(getIntProperty(propertyFullSyncInterval, NoteSynchronizer.DEFAULT_FULL_SYNC_INTERVAL));
+		
+		//the reminder dates of the notes are shown as desktop notifications when they are due
+		reminderNotifier = new ReminderNotifier();
+		noteManager.getReminderScheduler().setListener(reminderNotifier);
+		
+		//the changes of other clients are pushed by the server (or polled if it doesn't push them), so the list doesn't have to be updated manually
+		changeSubscriber = new NoteChangeSubscriber(noteManager);
+		changeSubscriber.setListener(() -> Platform.runLater(this::updateNoteListLocally));
+		
+		//the changes are saved in the background, after the note was not changed for the delay (the debounced saves are started on the UI thread)
+		//the saves fail if the note was changed concurrently since it was shown (e.g. by a synchronization with the server)
+		autoSaveScheduler = new AutoSaveScheduler(this::saveNoteAsync, Platform::runLater,
+				getIntProperty(propertyAutoSaveDelay, (int) AutoSaveScheduler.DEFAULT_DELAY),
+				throwable -> Platform.runLater(() -> handleAsyncException(throwable)));
+		
+		//the list view loads the notes page by page when they are shown
+		notes = new LazyNoteList(new LazyNoteList.PageLoader() {
+			
+			@Override
+			public int count() {
+				return noteManager.countSelectedNotes(viewSelector);
+			}
+			
+			@Override
+			public List<Note> loadPage(Note after, int offset, int pageSize) {
+				return noteManager.getSelectedNotesPage(viewSelector, after, offset, pageSize);
+			}
+			
+			@Override
+			public int indexOf(Note note) {
+				return noteManager.indexOfSelectedNote(viewSelector, note);
+			}
+		}, getIntProperty(propertyNoteListPageSize, LazyNoteList.DEFAULT_PAGE_SIZE),
+				getIntProperty(propertyNoteListResidentPages, LazyNoteList.DEFAULT_MAX_RESIDENT_PAGES));
 	}
 	
 	private void loadProperties() {
@@ -170,7 +213,11 @@ public class NoteBookClientController implements Initializable {
 			//set default values and store the file
 			LOGGER.info("no configuration file found ({}); creating default", propertiesFile);
 			properties.setProperty(propertyAutoSave, "true");
+			properties.setProperty(propertyAutoSaveDelay, Long.toString(AutoSaveScheduler.DEFAULT_DELAY));
 			properties.setProperty(propertyAlwaysAskBeforeClosing, "true");
+			properties.setProperty(propertyFullSyncInterval, Integer.toString(NoteSynchronizer.DEFAULT_FULL_SYNC_INTERVAL));
+			properties.setProperty(propertyNoteListPageSize, Integer.toString(LazyNoteList.DEFAULT_PAGE_SIZE));
+			properties.setProperty(propertyNoteListResidentPages, Integer.toString(LazyNoteList.DEFAULT_MAX_RESIDENT_PAGES));
 			try (OutputStream output = new FileOutputStream(propertiesFile)) {
 				properties.store(output, null);
 			}
@@ -185,6 +232,16 @@ public class NoteBookClientController implements Initializable {
 		}
 	}
 	
+	private int getIntProperty(String property, int defaultValue) {
+		try {
+			return Integer.parseInt(properties.getProperty(property, Integer.toString(defaultValue)));
+		}
+		catch (NumberFormatException nfe) {
+			LOGGER.warn("property {} couldn't be parsed as int; using default value: {}", property, defaultValue);
+			return defaultValue;
+		}
+	}
+	
 	@Override
 	public void initialize(URL arg0, ResourceBundle arg1) {
 		listNotes.setItems(notes);
@@ -232,11 +289,13 @@ public class NoteBookClientController implements Initializable {
 			protected void updateItem(Note item, boolean empty) {
 				super.updateItem(item, empty);
 				
-				if (empty || item == null || item.getHeadline() == null) {
+				//the list might still contain an older instance of a saved note
+				Note note = empty || item == null ? null : getCurrentNote(item);
+				if (note == null || note.getHeadline() == null) {
 					setText(null);
 				}
 				else {
-					setText(item.getHeadline());
+					setText(note.getHeadline());
 				}
 			}
 		});
@@ -257,36 +316,65 @@ public class NoteBookClientController implements Initializable {
 		choiceBoxNotePriority.getSelectionModel().selectedItemProperty().addListener((observable, oldVal, newVal) -> noteChanged());
 		choiceBoxNoteExecutionDate.getSelectionModel().selectedItemProperty().addListener((observable, oldVal, newVal) -> noteChanged());
 		choiceBoxNoteReminderDate.getSelectionModel().selectedItemProperty().addListener((observable, oldVal, newVal) -> noteChanged());
+		executionDates.addListener((ListChangeListener<LocalDateTime>) change -> noteChanged());
+		reminderDates.addListener((ListChangeListener<LocalDateTime>) change -> noteChanged());
+		
+		//synchronize the cached notes with the server in the background
+		updateNoteList();
+		changeSubscriber.start();
 	}
 	
 	/**
-	 * Mark that the note was changed and auto-save needs to notice.
+	 * Mark that the note was changed and auto-save needs to notice. With auto-save the note is saved after the user stopped changing it.
 	 */
 	private void noteChanged() {
+		if (showingNote) {
+			return;
+		}
 		noteChanged = true;
+		Note note = listNotes.getSelectionModel().getSelectedItem();
+		if (note != null && isAutoSave()) {
+			autoSaveScheduler.changed(note, getEditorContent(note));
+		}
+	}
+	
+	private boolean isAutoSave() {
+		return Boolean.parseBoolean(properties.getProperty(propertyAutoSave, "true"));
 	}
 	
 	/**
 	 * Getting the scene within the initialize method won't work. Therefore this method is to be called from the Application class.
 	 */
 	public void sendScene(Scene scene) {
-		//register a window closing listener
-		scene.getWindow().setOnCloseRequest(e -> autoSaveChanges());
+		//register a window closing listener (the window is only closed after the changes were saved)
+		scene.getWindow().setOnCloseRequest(e -> {
+			try {
+				autoSaveChanges().join();
+			}
+			catch (CompletionException ce) {
+				LOGGER.error("Changes couldn't be saved before closing", AsyncNoteClient.unwrap(ce));
+			}
+			autoSaveScheduler.close();
+			changeSubscriber.close();
+			//write the note cache for the next start
+			noteManager.close();
+			reminderNotifier.close();
+		});
 	}
 	
 	private void newNote() {
 		LOGGER.debug("Creating a new Note");
-		try {
-			Note newNote = new Note("New Note", "", minPriority);
-			noteManager.addNote(newNote);
-			updateNoteListLocally();
-			//select the new note
-			listNotes.getSelectionModel().select(newNote);
-		}
-		catch (NoteBookException nbe) {
-			LOGGER.error("NoteBookExcepiton", nbe);
-			showExceptionDialog(nbe);
-		}
+		Note newNote = new Note("New Note", "", minPriority);
+		noteManager.addNoteAsync(newNote).whenComplete((note, throwable) -> Platform.runLater(() -> {
+			if (throwable != null) {
+				handleAsyncException(throwable);
+			}
+			else {
+				updateNoteListLocally();
+				//select the new note
+				listNotes.getSelectionModel().select(newNote);
+			}
+		}));
 	}
 	
 	/**
@@ -294,14 +382,15 @@ public class NoteBookClientController implements Initializable {
 	 */
 	private void updateNoteList() {
 		LOGGER.debug("Updating note list");
-		try {
-			noteManager.loadNotes();
-			updateNoteListLocally();
-		}
-		catch (NoteBookException nbe) {
-			LOGGER.error("NoteBookExcepiton", nbe);
-			showExceptionDialog(nbe);
-		}
+		//save the changes before loading, so the loaded notes contain them
+		autoSaveChanges().thenCompose(v -> noteManager.loadNotesAsync()).whenComplete((v, throwable) -> Platform.runLater(() -> {
+			if (throwable != null) {
+				handleAsyncException(throwable);
+			}
+			else {
+				updateNoteListLocally();
+			}
+		}));
 	}
 	/**
 	 * Update the note list without loading from database
@@ -309,18 +398,28 @@ public class NoteBookClientController implements Initializable {
 	private void updateNoteListLocally() {
 		LOGGER.debug("updating note list locally");
 		autoSaveChanges();
-		notes.clear();
-		notes.addAll(noteManager.getSelectedNotes(viewSelector));
+		Note selected = listNotes.getSelectionModel().getSelectedItem();
+		notes.refresh();
+		
+		//select the previously selected note again (it might be a new instance if it was changed on the server)
+		if (selected != null) {
+			Note current = noteManager.getNote(selected.getId());
+			if (current != null) {
+				listNotes.getSelectionModel().select(current);
+			}
+		}
 	}
 	
 	private void updateSelectedNote(Note oldVal, Note newVal) {
 		LOGGER.debug("updating shown note");
-		Note note = newVal;
+		//the list might still contain an older instance of the note (the saved notes are replaced in the note manager)
+		Note note = newVal != null ? getCurrentNote(newVal) : null;
 		//don't auto save if the old value is null or not in the list (got removed)
-		if (oldVal != null && notes.contains(oldVal)) {
+		if (oldVal != null && noteManager.containsNote(oldVal)) {
 			autoSaveChanges(oldVal);
 		}
 		
+		showingNote = true;
 		executionDates.clear();
 		reminderDates.clear();
 		if (note != null) {
@@ -360,23 +459,28 @@ public class NoteBookClientController implements Initializable {
 			
 			//reset the noteChanged field for autosave
 			noteChanged = false;
+			autoSaveScheduler.markSaved(note, noteManager.getNoteVersion(note));
 		}
+		showingNote = false;
 	}
 	
-	private void autoSaveChanges() {
-		autoSaveChanges(listNotes.getSelectionModel().getSelectedItem());
+	private CompletableFuture<Void> autoSaveChanges() {
+		return autoSaveChanges(listNotes.getSelectionModel().getSelectedItem());
 	}
-	private void autoSaveChanges(Note note) {
+	/**
+	 * Save the changes of the note (if there are any). The returned future is completed when the note was saved.
+	 */
+	private CompletableFuture<Void> autoSaveChanges(Note note) {
 		LOGGER.debug("autoSaveChanges was called");
-		if (noteChanged) {
-			boolean autoSave = Boolean.parseBoolean(properties.getProperty(propertyAutoSave, "true"));
+		if (isAutoSave()) {
+			//the changes were already passed to the auto save scheduler, that saves them now (without waiting for the delay)
+			LOGGER.debug("autosaving notes");
+			noteChanged = false;
+			return autoSaveScheduler.flush();
+		}
+		else if (noteChanged) {
 			boolean askBeforeClosing = Boolean.parseBoolean(properties.getProperty(propertyAlwaysAskBeforeClosing, "true"));
-			if (autoSave) {
-				LOGGER.debug("autosaving note");
-				saveNote(note);
-				noteChanged = false;
-			}
-			else if (askBeforeClosing) {
+			if (askBeforeClosing) {
 				Alert alert = new Alert(AlertType.CONFIRMATION);
 				alert.setTitle("Notiz speichern");
 				alert.setHeaderText("Soll die aktuelle Notiz gespeichert werden?");
@@ -384,14 +488,15 @@ public class NoteBookClientController implements Initializable {
 				Optional<ButtonType> result = alert.showAndWait();
 				if (result.get() == ButtonType.OK) {
 					LOGGER.debug("saving note after confirm dialog");
-					saveNote(note);
 					noteChanged = false;
+					return saveNote(note);
 				}
 			}
 		}
 		else {
 			LOGGER.debug("Note was not changed - aborting autosave");
 		}
+		return CompletableFuture.completedFuture(null);
 	}
 	
 	private void showSelectorSettings() {
@@ -401,24 +506,56 @@ public class NoteBookClientController implements Initializable {
 	private void saveCurrentNote() {
 		saveNote(listNotes.getSelectionModel().getSelectedItem());
 	}
-	private void saveNote(Note note) {
+	/**
+	 * Save the note without blocking the UI thread. The returned future is completed when the note was saved (errors are shown in a dialog).
+	 */
+	private CompletableFuture<Void> saveNote(Note note) {
 		LOGGER.debug("saving note");
 		Note currentNote = note;//listNotes.getSelectionModel().getSelectedItem();
 		if (currentNote != null) {
-			currentNote.setHeadline(textFieldNoteTitle.getText());
-			currentNote.setNoteText(textAreaNoteText.getText());
-			currentNote.setPriority(choiceBoxNotePriority.getValue());
-			currentNote.setExecutionDates(new ArrayList<>(executionDates));
-			currentNote.setReminderDates(new ArrayList<>(reminderDates));
-			
-			try {
-				noteManager.updateNote(currentNote);
-			}
-			catch (NoteBookException nbe) {
-				LOGGER.error("NoteBookExcepiton", nbe);
-				showExceptionDialog(nbe);
-			}
+			//the scheduler only sends the note if it was changed since it was saved the last time
+			return autoSaveScheduler.saveNow(currentNote, getEditorContent(currentNote)).whenComplete((v, throwable) -> {
+				if (throwable != null) {
+					Platform.runLater(() -> handleAsyncException(throwable));
+				}
+			});
 		}
+		return CompletableFuture.completedFuture(null);
+	}
+	
+	/**
+	 * Save the note in the background (used by the auto save scheduler). The note list is updated after the note was saved, because the note
+	 * manager stores the saved note as a new instance.
+	 */
+	private CompletableFuture<Long> saveNoteAsync(Note note, NotePatch patch, long expectedVersion) {
+		return noteManager.updateNoteAsync(note, patch, expectedVersion).whenComplete((version, throwable) -> {
+			if (throwable == null) {
+				Platform.runLater(listNotes::refresh);
+			}
+		});
+	}
+	
+	/**
+	 * The current local instance of a note of the list (or the note itself if it's not stored anymore).
+	 */
+	private Note getCurrentNote(Note note) {
+		Note current = noteManager.getNote(note.getId());
+		return current != null ? current : note;
+	}
+	
+	/**
+	 * A copy of the note with the content of the editor.
+	 */
+	private Note getEditorContent(Note note) {
+		Note content = new Note();
+		content.setId(note.getId());
+		content.setHeadline(textFieldNoteTitle.getText());
+		content.setNoteText(textAreaNoteText.getText());
+		Integer priority = choiceBoxNotePriority.getValue();
+		content.setPriority(priority != null ? priority : note.getPriority());
+		content.setExecutionDates(new ArrayList<>(executionDates));
+		content.setReminderDates(new ArrayList<>(reminderDates));
+		return content;
 	}
 	
 	private void deleteNote() {
@@ -427,15 +564,29 @@ public class NoteBookClientController implements Initializable {
 			return;
 		}
 		LOGGER.debug("deleting note (id: {})", listNotes.getSelectionModel().getSelectedItem().getId());
-		try {
-			Note toDelete = listNotes.getSelectionModel().getSelectedItem();
-			noteManager.deleteNote(toDelete);
-			notes.remove(toDelete);//also remove from list to prevent update errors
-		}
-		catch (NoteBookException nbe) {
-			LOGGER.error("NoteBookExcepiton", nbe);
-			showExceptionDialog(nbe);
-		}
+		Note toDelete = getCurrentNote(listNotes.getSelectionModel().getSelectedItem());
+		//the note manager removes the note right away, so it's not auto saved when the selection changes
+		autoSaveScheduler.discard(toDelete.getId());
+		CompletableFuture<Void> deleted = noteManager.deleteNoteAsync(toDelete);
+		notes.refresh();//remove from list right away to prevent update errors
+		deleted.whenComplete((v, throwable) -> {
+			if (throwable != null) {
+				Platform.runLater(() -> {
+					handleAsyncException(throwable);
+					//show the note again, because it was not deleted
+					updateNoteListLocally();
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Show the cause of a failed async request (has to be called on the JavaFX application thread).
+	 */
+	private void handleAsyncException(Throwable throwable) {
+		Throwable cause = AsyncNoteClient.unwrap(throwable);
+		LOGGER.error("NoteBookExcepiton", cause);
+		showExceptionDialog(cause);
 	}
 	
 	private void addExecutionDate() {
@@ -0,0 +1,88 @@
+package net.jfabricationgames.notebook.client.view;
+
+import java.awt.AWTException;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.SystemTray;
+import java.awt.TrayIcon;
+import java.awt.image.BufferedImage;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import net.jfabricationgames.notebook.client.controll.ReminderScheduler;
+import net.jfabricationgames.notebook.note.Note;
+
+/**
+ * Shows the due reminders of the notes as desktop notifications (in the system tray), or as a (non modal) dialog if the system has no tray.
+ */
+public class ReminderNotifier implements ReminderScheduler.Listener {
+	
+	private static final Logger LOGGER = LogManager.getLogger(ReminderNotifier.class);
+	
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+	
+	private TrayIcon trayIcon;
+	
+	public ReminderNotifier() {
+		if (SystemTray.isSupported()) {
+			try {
+				trayIcon = new TrayIcon(createIcon(), NoteBookClientApp.APPLICATION_NAME);
+				trayIcon.setImageAutoSize(true);
+				SystemTray.getSystemTray().add(trayIcon);
+			}
+			catch (AWTException | UnsupportedOperationException e) {
+				LOGGER.warn("The tray icon couldn't be added; showing the reminders as dialogs", e);
+				trayIcon = null;
+			}
+		}
+	}
+	
+	@Override
+	public void reminderDue(Note note, LocalDateTime reminderDate) {
+		String title = "Erinnerung: " + (note.getHeadline() != null ? note.getHeadline() : "Notiz " + note.getId());
+		String text = DATE_FORMAT.format(reminderDate);
+		if (trayIcon != null) {
+			trayIcon.displayMessage(title, text, TrayIcon.MessageType.INFO);
+		}
+		else {
+			Platform.runLater(() -> {
+				Alert alert = new Alert(AlertType.INFORMATION);
+				alert.setTitle("Erinnerung");
+				alert.setHeaderText(title);
+				alert.setContentText(text);
+				//the dialog doesn't block the application (several reminders can be shown at the same time)
+				alert.show();
+			});
+		}
+	}
+	
+	/**
+	 * Remove the tray icon.
+	 */
+	public void close() {
+		if (trayIcon != null) {
+			SystemTray.getSystemTray().remove(trayIcon);
+			trayIcon = null;
+		}
+	}
+	
+	private static BufferedImage createIcon() {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(new Color(0xF0C000));
+		graphics.fillRect(2, 1, 12, 14);
+		graphics.setColor(Color.DARK_GRAY);
+		for (int y = 4; y < 14; y += 3) {
+			graphics.drawLine(4, y, 11, y);
+		}
+		graphics.dispose();
+		return image;
+	}
+}
\ No newline at end of file